@@ -0,0 +1,30 @@
+package ardash.gdx.scenes.scene3d.benchmarks;
+
+import static ardash.gdx.scenes.scene3d.actions.Actions3D.forever;
+import static ardash.gdx.scenes.scene3d.actions.Actions3D.moveBy;
+import static ardash.gdx.scenes.scene3d.actions.Actions3D.rotateBy;
+import static ardash.gdx.scenes.scene3d.actions.Actions3D.sequence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/** Measures {@link ardash.gdx.scenes.scene3d.Stage3D#act(float)}, which runs the actions of the actors, followed by the
+ * validation of the transforms they changed. */
+public class ActBenchmark extends SceneState {
+    /** The percentage of cubes that run actions. */
+    @Param({"10", "100"})
+    public int animatedPercent;
+
+    @Override
+    protected void setUp () {
+        final int animated = leaves.size * animatedPercent / 100;
+        for (int i = 0; i < animated; i++)
+            leaves.get(i).addAction(forever(sequence(moveBy(1, 0, 0, 0.5f), rotateBy(90, 0, 0, 0.25f), moveBy(-1, 0, 0, 0.5f))));
+    }
+
+    @Benchmark
+    public void act () {
+        stage.act(1 / 60f);
+        stage.validate();
+    }
+}
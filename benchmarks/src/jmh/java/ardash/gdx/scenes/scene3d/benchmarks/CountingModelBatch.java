@@ -0,0 +1,56 @@
+package ardash.gdx.scenes.scene3d.benchmarks;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.graphics.g3d.ModelBatch;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.RenderableProvider;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+import ardash.gdx.scenes.scene3d.utils.RenderableCounter;
+
+/** A model batch that collects the renderables of each provider like {@link ModelBatch} does, but only counts them instead of
+ * rendering, so the scene graph traversal can be measured without a GPU. */
+class CountingModelBatch extends ModelBatch implements RenderableCounter {
+    private final Array<Renderable> renderables = new Array<>(Renderable.class);
+    private final Pool<Renderable> pool = new Pool<Renderable>() {
+        @Override
+        protected Renderable newObject () {
+            return new Renderable();
+        }
+    };
+
+    /** The number of render calls and renderables since {@link #begin(Camera)}. */
+    int renderCalls, renderableCount;
+
+    @Override
+    public int getRenderableCount () {
+        return renderableCount;
+    }
+
+    @Override
+    public void begin (Camera camera) {
+        this.camera = camera;
+        renderCalls = 0;
+        renderableCount = 0;
+    }
+
+    @Override
+    public void end () {
+    }
+
+    @Override
+    public void render (RenderableProvider renderableProvider) {
+        render(renderableProvider, (Environment)null);
+    }
+
+    @Override
+    public void render (RenderableProvider renderableProvider, Environment environment) {
+        renderCalls++;
+        renderableProvider.getRenderables(renderables, pool);
+        renderableCount += renderables.size;
+        pool.freeAll(renderables);
+        renderables.clear();
+    }
+}
@@ -0,0 +1,49 @@
+package ardash.gdx.scenes.scene3d.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import com.badlogic.gdx.graphics.g3d.ModelBatch;
+
+import ardash.gdx.scenes.scene3d.Actor3D;
+
+/** Measures {@link ardash.gdx.scenes.scene3d.Stage3D#draw()}: transform validation, culling and collecting the visible actors,
+ * and submitting their renderables to a model batch that does not render. */
+public class DrawBenchmark extends SceneState {
+    /** The percentage of cubes that move each frame. */
+    @Param({"0", "10"})
+    public int movingPercent;
+
+    /** Whether transforms are validated and actors culled on the common fork/join pool. */
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private CountingModelBatch modelBatch;
+    private float direction = 0.01f;
+
+    @Override
+    protected ModelBatch createModelBatch () {
+        modelBatch = new CountingModelBatch();
+        return modelBatch;
+    }
+
+    @Override
+    protected void setUp () {
+        // small enough that the groups of the generated scenes are split
+        if (parallel) stage.setParallel(ForkJoinPool.commonPool(), 64);
+    }
+
+    @Benchmark
+    public int draw () {
+        final int moving = leaves.size * movingPercent / 100;
+        direction = -direction;
+        for (int i = 0; i < moving; i++) {
+            final Actor3D actor = leaves.get(i);
+            actor.translate(direction, 0, 0);
+        }
+        stage.draw();
+        return modelBatch.renderableCount;
+    }
+}
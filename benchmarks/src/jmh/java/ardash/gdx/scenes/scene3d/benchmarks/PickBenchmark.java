@@ -0,0 +1,58 @@
+package ardash.gdx.scenes.scene3d.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import com.badlogic.gdx.math.collision.Ray;
+
+import ardash.gdx.scenes.scene3d.Actor3D;
+import ardash.gdx.scenes.scene3d.PickResult;
+
+/** Measures picking the nearest actor under a pointer, through the stage and by testing every actor. */
+public class PickBenchmark extends SceneState {
+    private static final int RAYS = 64;
+
+    private final Ray[] rays = new Ray[RAYS];
+    private final PickResult result = new PickResult();
+    private int next;
+
+    @Override
+    protected void setUp () {
+        for (int i = 0; i < RAYS; i++) {
+            final Ray ray = stage.getCamera().getPickRay(random.nextFloat() * 800, random.nextFloat() * 480, 0, 0, 800, 480);
+            rays[i] = new Ray(ray.origin, ray.direction);
+        }
+    }
+
+    /** Picks through the stage, which only tests the actors near the ray. */
+    @Benchmark
+    public PickResult pick () {
+        return stage.pick(rays[next++ & RAYS - 1], stage.getRoot(), result);
+    }
+
+    /** Tests the ray against the bounding sphere of every actor. */
+    @Benchmark
+    public Actor3D intersectsAll () {
+        final Ray ray = rays[next++ & RAYS - 1];
+        Actor3D nearest = null;
+        float nearestDistance = Float.POSITIVE_INFINITY;
+        for (int i = 0, n = leaves.size; i < n; i++) {
+            final Actor3D actor = leaves.get(i);
+            final float distance = actor.intersects(ray);
+            if (distance >= 0 && distance < nearestDistance) {
+                nearest = actor;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    /** Tests the ray against the oriented bounding box of every actor. */
+    @Benchmark
+    public PickResult intersectsAllBounds () {
+        final Ray ray = rays[next++ & RAYS - 1];
+        result.reset();
+        for (int i = 0, n = leaves.size; i < n; i++)
+            leaves.get(i).intersects(ray, result);
+        return result;
+    }
+}
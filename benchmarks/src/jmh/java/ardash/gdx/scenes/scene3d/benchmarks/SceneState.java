@@ -0,0 +1,93 @@
+package ardash.gdx.scenes.scene3d.benchmarks;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.graphics.g3d.ModelBatch;
+import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
+import com.badlogic.gdx.utils.Array;
+
+import ardash.gdx.scenes.scene3d.Actor3D;
+import ardash.gdx.scenes.scene3d.Group3D;
+import ardash.gdx.scenes.scene3d.Stage3D;
+import ardash.gdx.scenes.scene3d.shape.CubeActor3D;
+
+/** A synthetic scene of cubes spread over a tree of nested groups in front of the camera. About a third of the cubes are
+ * outside of the camera's frustum. */
+@State(Scope.Thread)
+public class SceneState {
+    /** The number of cubes. */
+    @Param({"1000", "10000"})
+    public int size;
+
+    /** The number of nested group levels above the cubes. */
+    @Param({"1", "4"})
+    public int depth;
+
+    Stage3D stage;
+    final Array<Actor3D> leaves = new Array<>(Actor3D.class);
+    final Random random = new Random(42);
+
+    @Setup(Level.Trial)
+    public void setUpScene () {
+        HeadlessGdx.start();
+        stage = new Stage3D(800, 480, new Environment(), createModelBatch());
+        stage.getCamera().position.set(0, 0, 150);
+        stage.getCamera().lookAt(0, 0, 0);
+        stage.getCamera().update();
+        final Group3D root = stage.getRoot();
+
+        final int branching = Math.max(2, (int)Math.ceil(Math.pow(size, 1.0 / (depth + 1))));
+        final ModelBuilder modelBuilder = new ModelBuilder();
+        while (leaves.size < size)
+            addChildren(root, 0, branching, modelBuilder);
+        stage.validate();
+        setUp();
+    }
+
+    /** @return the model batch the stage draws with, or null for the stage's own. */
+    protected ModelBatch createModelBatch () {
+        return null;
+    }
+
+    /** Called after the scene was built. JMH does not order setup methods of super and subclasses, so subclasses override this. */
+    protected void setUp () {
+    }
+
+    private void addChildren (Group3D group, int level, int branching, ModelBuilder modelBuilder) {
+        for (int i = 0; i < branching && leaves.size < size; i++) {
+            if (level < depth) {
+                final Group3D child = new Group3D();
+                child.setPosition(spread(60), spread(60), spread(60));
+                group.addActor(child);
+                addChildren(child, level + 1, branching, modelBuilder);
+            } else {
+                final CubeActor3D cube = new CubeActor3D(1, 1, 1, modelBuilder);
+                cube.setPosition(spread(40), spread(40), spread(40));
+                group.addActor(cube);
+                leaves.add(cube);
+            }
+        }
+    }
+
+    protected void tearDown () {
+    }
+
+    private float spread (float range) {
+        return (random.nextFloat() - 0.5f) * 2 * range;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownScene () {
+        tearDown();
+        stage.dispose();
+        leaves.clear();
+    }
+}
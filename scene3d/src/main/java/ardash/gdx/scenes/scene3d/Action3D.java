@@ -1,6 +1,5 @@
 package ardash.gdx.scenes.scene3d;
 
-import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.actions.DelayAction;
 import com.badlogic.gdx.scenes.scene2d.actions.TemporalAction;
 import com.badlogic.gdx.utils.Pool;
@@ -13,8 +12,11 @@ abstract public class Action3D<T extends Action3D> implements Poolable {
         protected Actor3D actor;
 
         private Pool<Action3D<T>> pool;
+        private int priority;
+        /** The index of this action in the {@link ActionScheduler3D} of its actor's stage, or -1 if it is not scheduled. */
+        int schedulerIndex = -1;
 
-        /** Updates the action based on time. Typically this is called each frame by {@link Actor#act(float)}.
+        /** Updates the action based on time. Typically this is called each frame by the {@link ActionScheduler3D} of the stage.
          * @param delta Time in seconds since the last frame.
          * @return true if the action is done. This method may continue to be called after the action is done. */
         abstract public boolean act (float delta);
@@ -49,13 +51,28 @@ abstract public class Action3D<T extends Action3D> implements Poolable {
         /** Resets the optional state of this action to as if it were newly created, allowing the action to be pooled and reused. State
          * required to be set for every usage of this action or computed during the action does not need to be reset.
          * <p>
-         * The default implementation calls {@link #restart()}.
+         * The default implementation sets the {@link #setPriority(int) priority} back to 0 and calls {@link #restart()}.
          * <p>
          * If a subclass has optional state, it must override this method, call super, and reset the optional state. */
         public void reset () {
+                priority = 0;
                 restart();
         }
 
+        public int getPriority () {
+                return priority;
+        }
+
+        /** Sets the order in which the actions on a stage act each frame, lower priorities first. Actions of equal priority act in
+         * the order they were added. Default is 0.
+         * @see ActionScheduler3D */
+        public void setPriority (int priority) {
+                if (this.priority == priority) return;
+                this.priority = priority;
+                if (schedulerIndex != -1 && actor != null && actor.getStage() != null)
+                        actor.getStage().getActionScheduler().priorityChanged();
+        }
+
         public Pool<Action3D<T>> getPool () {
                 return pool;
         }
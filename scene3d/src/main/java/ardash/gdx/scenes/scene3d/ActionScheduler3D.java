@@ -0,0 +1,113 @@
+package ardash.gdx.scenes.scene3d;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/** Keeps the running actions of all actors on a stage in one array, ordered by {@link Action3D#setPriority(int) priority}, and
+ * advances them in a single loop instead of recursing through the scene graph. Actions of equal priority run in the order they
+ * were added.
+ * <p>
+ * Actions are added and removed by their actors, {@link Actor3D#addAction(Action3D)} and the other action methods of the actor
+ * keep working as before. A removed action leaves an empty slot behind, the slots are compacted once after each
+ * {@link #act(float)}. Completed actions are removed from their actor, which returns them to their pool. Actions added while
+ * the actions act start acting in the next call. */
+public class ActionScheduler3D {
+    private static final Comparator<Action3D> priorityComparator = new Comparator<Action3D>() {
+        @Override
+        public int compare (Action3D a, Action3D b) {
+            return Integer.compare(a.getPriority(), b.getPriority());
+        }
+    };
+
+    private Action3D[] actions = new Action3D[64];
+    private int size, removed;
+    /** At least the highest priority added since the last sort, an action with a lower priority breaks the order. */
+    private int maxPriority = Integer.MIN_VALUE;
+    private boolean sorted = true, acting;
+
+    /** Schedules an action. Called by the actor the action was added to, once the actor is on the stage. */
+    void add (Action3D action) {
+        if (action.schedulerIndex != -1) return;
+        if (size == actions.length) {
+            if (removed > 0 && !acting)
+                compact();
+            else
+                actions = Arrays.copyOf(actions, size * 2);
+        }
+        final int priority = action.getPriority();
+        if (priority < maxPriority)
+            sorted = false;
+        else
+            maxPriority = priority;
+        action.schedulerIndex = size;
+        actions[size++] = action;
+    }
+
+    /** Unschedules an action, its slot is freed by the next compaction. */
+    void remove (Action3D action) {
+        final int index = action.schedulerIndex;
+        if (index == -1) return;
+        actions[index] = null;
+        action.schedulerIndex = -1;
+        removed++;
+    }
+
+    /** Called when the priority of a scheduled action changed, the actions are sorted again before they next act. */
+    void priorityChanged () {
+        sorted = false;
+    }
+
+    /** Acts on all scheduled actions in priority order and removes the completed ones from their actors.
+     * @param delta Time in seconds since the last frame. */
+    public void act (float delta) {
+        if (removed > 0) compact();
+        if (!sorted) sort();
+        acting = true;
+        try {
+            for (int i = 0, n = size; i < n; i++) {
+                // not cached, the array is replaced when actions are added while acting
+                final Action3D action = actions[i];
+                if (action == null || !action.act(delta)) continue;
+                // the action may have removed its actor from the stage, then it is only removed from the actor
+                final Actor3D actor = action.getActor();
+                if (actor != null)
+                    actor.removeAction(action);
+                else
+                    remove(action);
+            }
+        } finally {
+            acting = false;
+        }
+        if (removed > 0) compact();
+    }
+
+    /** @return the number of scheduled actions. */
+    public int size () {
+        return size - removed;
+    }
+
+    /** Moves the actions over the empty slots, keeping their order. */
+    private void compact () {
+        final Action3D[] actions = this.actions;
+        int count = 0;
+        for (int i = 0, n = size; i < n; i++) {
+            final Action3D action = actions[i];
+            if (action == null) continue;
+            action.schedulerIndex = count;
+            actions[count++] = action;
+        }
+        Arrays.fill(actions, count, size, null);
+        size = count;
+        removed = 0;
+    }
+
+    /** Sorts the actions by priority. The sort is stable and mostly runs over presorted runs, so it is close to linear. */
+    private void sort () {
+        final Action3D[] actions = this.actions;
+        Arrays.sort(actions, 0, size, priorityComparator);
+        for (int i = 0, n = size; i < n; i++)
+            actions[i].schedulerIndex = i;
+        maxPriority = size > 0 ? actions[size - 1].getPriority() : Integer.MIN_VALUE;
+        sorted = true;
+    }
+}
@@ -1,9 +1,7 @@
 package ardash.gdx.scenes.scene3d;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.VertexAttributes;
 import com.badlogic.gdx.graphics.g3d.Environment;
 import com.badlogic.gdx.graphics.g3d.Material;
@@ -14,6 +12,7 @@ import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
 import com.badlogic.gdx.graphics.g3d.utils.AnimationController;
 import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
 import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Quaternion;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.math.collision.BoundingBox;
 import com.badlogic.gdx.math.collision.Ray;
@@ -23,12 +22,28 @@ import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.DelayedRemovalArray;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pools;
+
+import ardash.gdx.scenes.scene3d.utils.SharedModelCache;
+import ardash.gdx.scenes.scene3d.utils.TriangleMesh;
 
 public class Actor3D extends ModelInstance implements Disposable {
+    /** How precisely a pick ray is tested against an actor, see {@link Actor3D#intersects(Ray, PickResult)}. */
+    public enum HitMode {
+        /** Only the bounding sphere of the world bounds is tested. */
+        sphere,
+        /** The bounding box is tested in model space, so it is oriented and scaled like the actor. */
+        bounds,
+        /** After the bounding box, the triangles of the model are tested. */
+        mesh
+    }
+
     private Stage3D stage3D;
     private Group3D parent;
 
     private final DelayedRemovalArray<Event3DListener> listeners = new DelayedRemovalArray<>(0);
+    private final DelayedRemovalArray<Event3DListener> captureListeners = new DelayedRemovalArray<>(0);
     private final Array<Action3D> actions = new Array<>(0);
 
     public final Vector3 center = new Vector3();
@@ -44,11 +59,56 @@ public class Actor3D extends ModelInstance implements Disposable {
     private ModelInstance axis;
     private ModelBuilder modelBuilder;
 
+    /** Position, scale and angles. They are unused while the actor is in a {@link TransformStore}, which holds them instead and
+     * copies them back when the actor is removed from it. */
     float x, y, z;
     float scaleX = 1, scaleY = 1, scaleZ = 1;
     float yaw = 0f,pitch =0f, roll=0f;
-    Matrix4 rotationMatrix = new Matrix4();
+    /** The rotation described by yaw, pitch and roll, kept up to date by the rotation setters. While the actor is in a store it
+     * only holds the rotation last read from or written to the store. */
+    final Quaternion rotation = new Quaternion();
+    /** The store holding position, scale and rotation instead of the fields above, or null, see {@link TransformStore}. */
+    TransformStore transformStore;
+    /** The index of the first value of this actor in the store. */
+    int transformOffset = -1;
+
+    /** The transform relative to the parent, composed from position, rotation and scale. The inherited {@link #transform} holds
+     * the world transform, which is the parent's world transform multiplied by this one. */
+    final Matrix4 localTransform = new Matrix4();
+    /** True when position, rotation or scale changed since the world transform was last computed. */
+    boolean transformDirty = true;
+    /** True when position, rotation or scale changed since the local transform was last composed, which
+     * {@link TransformStore#validate()} may do before the world transform is computed. */
+    boolean localTransformDirty = true;
+    /** Incremented each time the world transform is recomputed, so children can tell their parent moved. */
+    int transformVersion;
+    private int parentTransformVersion = -1;
+
+    /** World space bounds, updated together with the world transform. For a group they enclose its children. */
+    final BoundingBox worldBounds = new BoundingBox();
+    /** Bounding sphere of {@link #worldBounds}, the radius is negative when there is nothing to enclose. */
+    final Vector3 worldCenter = new Vector3();
+    float worldRadius = -1;
+    /** True if this actor, or a descendant, has no valid bounding box and can therefore never be culled. */
+    boolean unbounded;
+    /** The id of this actor in the bounding volume hierarchy of the stage, or -1. */
+    int proxyId = -1;
+    /** The id of this actor in the octree of the stage, or -1. */
+    int octreeId = -1;
+    /** The id of this actor in the collision broadphase of the stage, or -1. */
+    int collisionId = -1;
+    /** The index of this actor among the actors whose state the stage captured during the current fixed step, or -1. */
+    int interpolationIndex = -1;
+    private boolean collidable;
+    /** True while this actor waits in the stage for its proxy to be updated. */
+    boolean proxyQueued;
+    private HitMode hitMode = HitMode.bounds;
+    private TriangleMesh triangles;
+    private boolean modelReleased;
     private AnimationController animation;
+    /** True if this actor has a running animation, actions while it is not on a stage, or overrides {@link #act(float)}, so it
+     * must act each frame. */
+    private boolean active;
 
     public Actor3D(){
         this(new Model());
@@ -67,14 +127,20 @@ public class Actor3D extends ModelInstance implements Disposable {
         dimensions.set(boundBox.getDimensions(new Vector3()));
         radius = dimensions.len() / 2f;
         animation = new AnimationController(this);
+        setActive(overridesAct(getClass()));
     }
 
     /** Updates the actor based on time. Typically this is called each frame by {@link Stage3D#act(float)}.
      * <p>
-     * The default implementation calls {@link Action3D#act(float)} on each action and removes actions that are complete.
+     * The default implementation updates the animation. While the actor is not on a stage, it also calls
+     * {@link Action3D#act(float)} on each action and removes actions that are complete. On a stage, the actions are acted by the
+     * stage's {@link ActionScheduler3D} instead.
+     * <p>
+     * An actor only acts while it has a running animation or actions that are not scheduled, or if its class overrides this
+     * method. Groups skip children that don't act, so idle actors cost nothing.
      * @param delta Time in seconds since the last frame. */
     public void act (float delta) {
-        for (int i = 0; i < actions.size; i++) {
+        for (int i = 0; stage3D == null && i < actions.size; i++) {
             Action3D action3D = actions.get(i);
             if (action3D.act(delta) && i < actions.size) {
                 actions.removeIndex(i);
@@ -84,12 +150,44 @@ public class Actor3D extends ModelInstance implements Disposable {
         }
         if (animation.inAction)
             animation.update(delta);
+        updateActive();
     }
 
-    public void draw(ModelBatch modelBatch, Environment environment){
-    	Gdx.gl20.glEnable(GL20.GL_BLEND);
-    	Gdx.gl20.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+    /** Recomputes whether this actor must act. */
+    void updateActive () {
+        setActive(stage3D == null && actions.size > 0 || animation.inAction || overridesAct(getClass()));
+    }
+
+    private void setActive (boolean active) {
+        if (this.active == active) return;
+        final boolean needed = needsAct();
+        this.active = active;
+        if (parent != null && needed != needsAct()) parent.childActiveChanged(!needed);
+    }
 
+    /** @return true if {@link #act(float)} must be called on this actor, because it or, for a group, a descendant is active. */
+    boolean needsAct () {
+        return active;
+    }
+
+    private static final ObjectMap<Class<?>, Boolean> actOverrides = new ObjectMap<>();
+
+    private static synchronized boolean overridesAct (Class<?> type) {
+        if (type == Actor3D.class || type == Group3D.class) return false;
+        Boolean overrides = actOverrides.get(type);
+        if (overrides == null) {
+            try {
+                final Class<?> declaringClass = type.getMethod("act", float.class).getDeclaringClass();
+                overrides = declaringClass != Actor3D.class && declaringClass != Group3D.class;
+            } catch (NoSuchMethodException e) {
+                overrides = false;
+            }
+            actOverrides.put(type, overrides);
+        }
+        return overrides;
+    }
+
+    public void draw(ModelBatch modelBatch, Environment environment){
         modelBatch.render(this, environment);
         drawDebug(modelBatch, environment);
     }
@@ -124,13 +222,130 @@ public class Actor3D extends ModelInstance implements Disposable {
         return listeners;
     }
 
+    /** Adds a listener that is only notified during the capture phase.
+     * @see #fire(Event3D) */
+    public boolean addCaptureListener (Event3DListener listener) {
+        if (!captureListeners.contains(listener, true)) {
+            captureListeners.add(listener);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean removeCaptureListener (Event3DListener listener) {
+        return captureListeners.removeValue(listener, true);
+    }
+
+    public Array<Event3DListener> getCaptureListeners () {
+        return captureListeners;
+    }
+
+    /** Sets this actor as the event {@link Event3D#setTarget(Actor3D) target} and propagates the event to this actor and ancestor
+     * actors as necessary. If this actor is not in the stage, the stage must be set before calling this method.
+     * <p>
+     * Events are fired in 2 phases:
+     * <ol>
+     * <li>The first phase (the "capture" phase) notifies listeners on each actor starting at the root and propagating downward to
+     * (and including) this actor.</li>
+     * <li>The second phase notifies listeners on each actor starting at this actor and, if {@link Event3D#getBubbles()} is true,
+     * propagating upward to the root.</li>
+     * </ol>
+     * If the event is {@link Event3D#stop() stopped} at any time, it will not propagate to the next actor.
+     * @return true if the event was {@link Event3D#cancel() cancelled}. */
+    public boolean fire (Event3D event) {
+        if (event.getStage() == null) event.setStage(getStage());
+        event.setTarget(this);
+
+        // collect the ancestors so event propagation is unaffected by hierarchy changes
+        @SuppressWarnings("unchecked")
+        final Array<Group3D> ancestors = Pools.obtain(Array.class);
+        for (Group3D parent = this.parent; parent != null; parent = parent.getParent())
+            ancestors.add(parent);
+
+        try {
+            // notify all parent capture listeners, starting at the topmost actor
+            final Object[] ancestorsArray = ancestors.items;
+            for (int i = ancestors.size - 1; i >= 0; i--) {
+                ((Group3D)ancestorsArray[i]).notify(event, true);
+                if (event.isStopped()) return event.isCancelled();
+            }
+
+            // notify the target capture listeners
+            notify(event, true);
+            if (event.isStopped()) return event.isCancelled();
+
+            // notify the target listeners
+            notify(event, false);
+            if (!event.getBubbles()) return event.isCancelled();
+            if (event.isStopped()) return event.isCancelled();
+
+            // notify all parent listeners, starting at the target, this is the bubble phase
+            for (int i = 0, n = ancestors.size; i < n; i++) {
+                ((Group3D)ancestorsArray[i]).notify(event, false);
+                if (event.isStopped()) return event.isCancelled();
+            }
+
+            return event.isCancelled();
+        } finally {
+            ancestors.clear();
+            Pools.free(ancestors);
+        }
+    }
+
+    /** Notifies this actor's listeners of the event. The event is not propagated to any parents. Before notifying the listeners,
+     * this actor is set as the {@link Event3D#getListenerActor() listener actor}. The event {@link Event3D#setTarget(Actor3D)
+     * target} must be set before calling this method. If this actor is not in the stage, the stage must be set before calling
+     * this method.
+     * @param capture If true, the capture listeners will be notified instead of the regular listeners.
+     * @return true of the event was {@link Event3D#cancel() cancelled}. */
+    public boolean notify (Event3D event, boolean capture) {
+        if (event.getTarget() == null) throw new IllegalArgumentException("The event target cannot be null.");
+
+        final DelayedRemovalArray<Event3DListener> listeners = capture ? captureListeners : this.listeners;
+        if (listeners.size == 0) return event.isCancelled();
+
+        event.setListenerActor(this);
+        event.setCapture(capture);
+        if (event.getStage() == null) event.setStage(stage3D);
+
+        listeners.begin();
+        for (int i = 0, n = listeners.size; i < n; i++)
+            if (listeners.get(i).handle(event)) event.handle();
+        listeners.end();
+
+        return event.isCancelled();
+    }
+
+    /** If true, the stage fires {@link CollisionEvent3D collision events} on this actor when its world bounds overlap those of
+     * another collidable actor. Groups are never collidable. Default is false. */
+    public void setCollidable (boolean collidable) {
+        if (this.collidable == collidable) return;
+        this.collidable = collidable;
+        if (stage3D != null) {
+            stage3D.collisionsChanged = true;
+            stage3D.boundsChanged(this);
+        }
+    }
+
+    public boolean isCollidable () {
+        return collidable;
+    }
+
     public void addAction(Action3D action3D) {
         action3D.setActor(this);
         actions.add(action3D);
+        if (stage3D != null)
+            stage3D.getActionScheduler().add(action3D);
+        else
+            setActive(true);
     }
 
     public void removeAction(Action3D action) {
-        if (actions.removeValue(action, true)) action.setActor(null);
+        if (actions.removeValue(action, true)) {
+            if (stage3D != null) stage3D.getActionScheduler().remove(action);
+            action.setActor(null);
+        }
+        updateActive();
     }
 
     public Array<Action3D> getActions() {
@@ -139,14 +354,19 @@ public class Actor3D extends ModelInstance implements Disposable {
 
     /** Removes all actions on this actor. */
     public void clearActions() {
-        for (int i = actions.size - 1; i >= 0; i--)
-            actions.get(i).setActor(null);
+        for (int i = actions.size - 1; i >= 0; i--) {
+            final Action3D action = actions.get(i);
+            if (stage3D != null) stage3D.getActionScheduler().remove(action);
+            action.setActor(null);
+        }
         actions.clear();
+        updateActive();
     }
 
     /** Removes all listeners on this actor. */
     public void clearListeners () {
         listeners.clear();
+        captureListeners.clear();
     }
 
     /** Removes all actions and listeners on this actor. */
@@ -158,7 +378,22 @@ public class Actor3D extends ModelInstance implements Disposable {
     /** Called by the framework when this actor or any parent is added to a group that is in the stage3D.
      * @param stage May be null if the actor or any parent is no longer in a stage. */
     protected void setStage(Stage3D stage) {
+        if (stage3D != null && stage3D != stage) {
+            stage3D.actorRemoved(this);
+            for (int i = 0; i < actions.size; i++)
+                stage3D.getActionScheduler().remove(actions.get(i));
+        }
+        final boolean added = stage != null && stage3D != stage;
         this.stage3D = stage;
+        if (stage != null) {
+            if (collidable) stage.collisionsChanged = true;
+            stage.boundsChanged(this);
+            if (added) {
+                for (int i = 0; i < actions.size; i++)
+                    stage.getActionScheduler().add(actions.get(i));
+            }
+        }
+        updateActive();
     }
 
     /** Returns the stage3D that this actor is currently in, or null if not in a stage. */
@@ -201,12 +436,22 @@ public class Actor3D extends ModelInstance implements Disposable {
     /** Called by the framework when an actor is added to or removed from a group.
      * @param parent May be null if the actor has been removed from the parent. */
     protected void setParent (Group3D parent) {
+        if (needsAct()) {
+            if (this.parent != null) this.parent.childActiveChanged(false);
+            if (parent != null) parent.childActiveChanged(true);
+        }
         this.parent = parent;
+        invalidateTransform();
     }
 
     private static final Vector3 position = new Vector3();
+    private static final Quaternion tmpRotation = new Quaternion();
+
+    /** @return true if the bounds of this actor are at least partially inside the frustum of the camera. The bounds are those of
+     * the last {@link #validateTransform() validation}, which are current while the stage is drawn. */
     public boolean isCullable(final Camera cam) {
-        return cam.frustum.sphereInFrustum(getTransform().getTranslation(position).add(center), radius);
+        if (unbounded) return true;
+        return worldRadius >= 0 && cam.frustum.sphereInFrustum(worldCenter, worldRadius);
     }
 
     public boolean isVisible () {
@@ -215,34 +460,287 @@ public class Actor3D extends ModelInstance implements Disposable {
     }
     /** If false, the actor will not be drawn and will not receive touch events. Default is true. */
     public void setVisible (boolean visible) {
+        if (this.visible == visible) return;
         this.visible = visible;
+        // lets a frozen ancestor notice the change, see Group3D#freeze()
+        invalidateParents();
     }
 
-    /** @return -1 on no intersection, or when there is an intersection: the squared distance between the center of this
+    /** Tests the ray against the bounding sphere of the world bounds, which takes the scale of this actor and its ancestors into
+     * account.
+     * @return -1 on no intersection, or when there is an intersection: the squared distance between the center of this
      * object and the point on the ray closest to this object when there is intersection. */
     public float intersects(Ray ray) {
-        transform.getTranslation(position).add(center);
-        final float len = ray.direction.dot(position.x-ray.origin.x, position.y-ray.origin.y, position.z-ray.origin.z);
-        if (len < 0f)
+        getTransform();
+        final Vector3 center = worldCenter;
+        final float len = ray.direction.dot(center.x-ray.origin.x, center.y-ray.origin.y, center.z-ray.origin.z);
+        if (len < 0f || worldRadius < 0f)
             return -1f;
-        float dist2 = position.dst2(ray.origin.x+ray.direction.x*len, ray.origin.y+ray.direction.y*len, ray.origin.z+ray.direction.z*len);
-        return (dist2 <= radius * radius) ? dist2 : -1f;
+        float dist2 = center.dst2(ray.origin.x+ray.direction.x*len, ray.origin.y+ray.direction.y*len, ray.origin.z+ray.direction.z*len);
+        return (dist2 <= worldRadius * worldRadius) ? dist2 : -1f;
+    }
+
+    /** Tests the ray against this actor as precise as the {@link #setHitMode(HitMode) hit mode} asks for, and stores the hit in
+     * the result if it is nearer than the one already stored. The bounding sphere is tested first, then the oriented bounding
+     * box and then, in {@link HitMode#mesh} mode, the triangles of the model, which also stores the hit triangle with its
+     * barycentric and texture coordinates.
+     * @param ray the ray in world space, its direction must be normalized.
+     * @return true if this actor was hit nearer than {@link PickResult#distance}. */
+    public boolean intersects(Ray ray, PickResult result) {
+        getTransform();
+        if (worldRadius < 0) return false;
+        float distance = intersectSphere(ray);
+        if (distance < 0 || distance > result.distance) return false;
+        if (hitMode != HitMode.sphere) {
+            final Matrix4 inverse = result.inverse.set(transform);
+            if (!Matrix4.inv(inverse.val)) return false;
+            // the direction is not normalized, so a distance in model space is the same as in world space
+            final Ray localRay = result.localRay;
+            localRay.origin.set(ray.origin).mul(inverse);
+            localRay.direction.set(ray.direction).rot(inverse);
+            distance = intersectBounds(localRay);
+            if (distance < 0 || distance > result.distance) return false;
+            if (hitMode == HitMode.mesh) {
+                distance = intersectMesh(localRay, result);
+                if (distance < 0) return false;
+            }
+        }
+        if (hitMode != HitMode.mesh) {
+            result.triangle = -1;
+            result.barycentric.setZero();
+            result.uv.setZero();
+        }
+        result.actor = this;
+        result.distance = distance;
+        ray.getEndPoint(result.point, distance);
+        return true;
+    }
+
+    /** @return the distance along the ray to where it enters the bounding sphere of the world bounds, 0 if it starts inside, or
+     * -1 if it misses. */
+    protected float intersectSphere(Ray ray) {
+        final Vector3 center = worldCenter;
+        final float ox = center.x - ray.origin.x, oy = center.y - ray.origin.y, oz = center.z - ray.origin.z;
+        final float len = ray.direction.dot(ox, oy, oz);
+        final float dist2 = ox * ox + oy * oy + oz * oz - len * len;
+        final float radius2 = worldRadius * worldRadius;
+        if (dist2 > radius2) return -1f;
+        final float half = (float)Math.sqrt(radius2 - dist2);
+        if (len + half < 0) return -1f;
+        return Math.max(0f, len - half);
+    }
+
+    /** @param localRay the ray in model space.
+     * @return the multiple of the ray direction at which it enters the bounding box, 0 if it starts inside, or -1 if it misses. */
+    protected float intersectBounds(Ray localRay) {
+        final BoundingBox box = boundBox;
+        if (!box.isValid()) return -1f;
+        float near = 0f, far = Float.POSITIVE_INFINITY;
+        for (int axis = 0; axis < 3; axis++) {
+            final float origin, direction, min, max;
+            if (axis == 0) {
+                origin = localRay.origin.x; direction = localRay.direction.x; min = box.min.x; max = box.max.x;
+            } else if (axis == 1) {
+                origin = localRay.origin.y; direction = localRay.direction.y; min = box.min.y; max = box.max.y;
+            } else {
+                origin = localRay.origin.z; direction = localRay.direction.z; min = box.min.z; max = box.max.z;
+            }
+            if (direction == 0f) {
+                if (origin < min || origin > max) return -1f;
+                continue;
+            }
+            float t1 = (min - origin) / direction, t2 = (max - origin) / direction;
+            if (t1 > t2) {
+                final float t = t1;
+                t1 = t2;
+                t2 = t;
+            }
+            if (t1 > near) near = t1;
+            if (t2 < far) far = t2;
+            if (near > far) return -1f;
+        }
+        return near;
+    }
+
+    /** Tests the ray against the triangles of the model and, on a hit, stores the hit triangle, its barycentric and texture
+     * coordinates in the result. The triangles are shared by all instances of the model. Models without triangles are hit where
+     * the bounding box is hit, then the triangle is -1.
+     * @param localRay the ray in model space.
+     * @return the multiple of the ray direction at which the nearest triangle is hit, or -1 if none is hit nearer than
+     *         {@link PickResult#distance}. */
+    protected float intersectMesh(Ray localRay, PickResult result) {
+        final TriangleMesh triangles = getTriangles();
+        final TriangleMesh.Hit hit = result.meshHit;
+        if (triangles.size() == 0) {
+            result.triangle = -1;
+            result.barycentric.setZero();
+            result.uv.setZero();
+            return intersectBounds(localRay);
+        }
+        if (!triangles.intersect(localRay, result.distance, hit)) return -1f;
+        result.triangle = hit.triangle;
+        result.barycentric.set(1 - hit.u - hit.v, hit.u, hit.v);
+        triangles.getTexCoords(hit, result.uv);
+        return hit.distance;
+    }
+
+    /** @return the triangles of the model used in {@link HitMode#mesh} mode, built on the first call. */
+    public TriangleMesh getTriangles() {
+        // obtain is synchronized and returns the same mesh on each thread, so picks running in parallel may both set it
+        if (triangles == null) triangles = TriangleMesh.obtain(model);
+        return triangles;
+    }
+
+    /** Sets how precisely pick rays are tested against this actor. Default is {@link HitMode#bounds}. Setting
+     * {@link HitMode#mesh} {@link #prepareMeshHits() prepares} what the mesh test needs right away, so it is not built by the
+     * first pick. */
+    public void setHitMode(HitMode hitMode) {
+        if (hitMode == null) throw new IllegalArgumentException("hitMode cannot be null.");
+        this.hitMode = hitMode;
+        if (hitMode == HitMode.mesh) prepareMeshHits();
+    }
+
+    /** Builds what {@link #intersectMesh(Ray, PickResult)} needs, which is the {@link #getTriangles() triangles} of the model.
+     * Subclasses that test the ray differently override this. */
+    protected void prepareMeshHits() {
+        getTriangles();
+    }
+
+    public HitMode getHitMode() {
+        return hitMode;
     }
 
     public void setPosition(float x, float y, float z) {
-        this.x = x;
-        this.y = y;
-        this.z = z;
-        transform.setToTranslationAndScaling(this.x, this.y, this.z, scaleX, scaleY, scaleZ);
-        transform.mul(rotationMatrix);
+        setLocalPosition(x, y, z);
     }
 
     public void translate(float x, float y, float z) {
-        this.x += x;
-        this.y += y;
-        this.z += z;
-        transform.setToTranslationAndScaling(this.x, this.y, this.z, scaleX, scaleY, scaleZ);
-        transform.mul(rotationMatrix);
+        setLocalPosition(getX() + x, getY() + y, getZ() + z);
+    }
+
+    /** @return the store holding the position, scale and rotation of this actor, or null if they are kept in the actor. */
+    public TransformStore getTransformStore () {
+        return transformStore;
+    }
+
+    private void setLocalPosition (float x, float y, float z) {
+        captureState();
+        final TransformStore store = transformStore;
+        if (store == null) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        } else {
+            final float[] v = store.values;
+            final int i = transformOffset;
+            v[i + TransformStore.X] = x;
+            v[i + TransformStore.Y] = y;
+            v[i + TransformStore.Z] = z;
+        }
+        invalidateTransform();
+    }
+
+    private void setLocalScale (float scaleX, float scaleY, float scaleZ) {
+        captureState();
+        final TransformStore store = transformStore;
+        if (store == null) {
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+            this.scaleZ = scaleZ;
+        } else {
+            final float[] v = store.values;
+            final int i = transformOffset;
+            v[i + TransformStore.SCALE_X] = scaleX;
+            v[i + TransformStore.SCALE_Y] = scaleY;
+            v[i + TransformStore.SCALE_Z] = scaleZ;
+        }
+        invalidateTransform();
+    }
+
+    private void setAngles (float yaw, float pitch, float roll) {
+        captureState();
+        final TransformStore store = transformStore;
+        if (store == null) {
+            this.yaw = yaw;
+            this.pitch = pitch;
+            this.roll = roll;
+        } else {
+            final float[] v = store.values;
+            final int i = transformOffset;
+            v[i + TransformStore.YAW] = yaw;
+            v[i + TransformStore.PITCH] = pitch;
+            v[i + TransformStore.ROLL] = roll;
+        }
+    }
+
+    /** Lets the stage keep the state before the first change of a fixed step, to interpolate between the steps when drawing. */
+    void captureState () {
+        final Stage3D stage = stage3D;
+        if (stage != null && stage.simulating && interpolationIndex == -1) stage.captureState(this);
+    }
+
+    /** Copies the position, scale and rotation quaternion, {@link Stage3D#STATE_SIZE} floats. */
+    void getState (float[] out, int offset) {
+        final Quaternion rotation = readRotation();
+        out[offset] = getX();
+        out[offset + 1] = getY();
+        out[offset + 2] = getZ();
+        out[offset + 3] = getScaleX();
+        out[offset + 4] = getScaleY();
+        out[offset + 5] = getScaleZ();
+        out[offset + 6] = rotation.x;
+        out[offset + 7] = rotation.y;
+        out[offset + 8] = rotation.z;
+        out[offset + 9] = rotation.w;
+    }
+
+    /** Sets the position, scale and rotation quaternion copied by {@link #getState(float[], int)}. The angles are not changed. */
+    void setState (float[] state, int offset) {
+        final TransformStore store = transformStore;
+        if (store == null) {
+            x = state[offset];
+            y = state[offset + 1];
+            z = state[offset + 2];
+            scaleX = state[offset + 3];
+            scaleY = state[offset + 4];
+            scaleZ = state[offset + 5];
+        } else {
+            final float[] v = store.values;
+            final int i = transformOffset;
+            v[i + TransformStore.X] = state[offset];
+            v[i + TransformStore.Y] = state[offset + 1];
+            v[i + TransformStore.Z] = state[offset + 2];
+            v[i + TransformStore.SCALE_X] = state[offset + 3];
+            v[i + TransformStore.SCALE_Y] = state[offset + 4];
+            v[i + TransformStore.SCALE_Z] = state[offset + 5];
+        }
+        rotation.set(state[offset + 6], state[offset + 7], state[offset + 8], state[offset + 9]);
+        writeRotation();
+        invalidateTransform();
+    }
+
+    /** @return {@link #rotation}, loaded from the store if this actor is in one. */
+    private Quaternion readRotation () {
+        final TransformStore store = transformStore;
+        if (store != null) {
+            final float[] v = store.values;
+            final int i = transformOffset;
+            rotation.set(v[i + TransformStore.QX], v[i + TransformStore.QY], v[i + TransformStore.QZ], v[i + TransformStore.QW]);
+        }
+        return rotation;
+    }
+
+    /** Copies {@link #rotation} to the store if this actor is in one. */
+    private void writeRotation () {
+        final TransformStore store = transformStore;
+        if (store != null) {
+            final float[] v = store.values;
+            final int i = transformOffset;
+            v[i + TransformStore.QX] = rotation.x;
+            v[i + TransformStore.QY] = rotation.y;
+            v[i + TransformStore.QZ] = rotation.z;
+            v[i + TransformStore.QW] = rotation.w;
+        }
     }
     
     /*
@@ -250,19 +748,8 @@ public class Actor3D extends ModelInstance implements Disposable {
      *  @param newYaw, newPitch, newRoll these values must be within 360 degrees
      */
     public void setRotation(float newYaw, float newPitch, float newRoll){
-        yaw = newYaw;
-        pitch = newPitch;
-        roll = newRoll;
-        /*
-         * The libgdx library attaches the Euler angles to the wrong axis
-         * Setting the yaw rotates the actor around the y axis instead of the z axis
-         * Setting the pitch rotates the actor around the x axis instead of the y axis
-         * Setting the roll rotates the actor around the z axis instead of the x axis
-         * So we have to correct it
-         */
-        rotationMatrix = transform.setFromEulerAngles(pitch, roll, yaw).cpy();
-        transform.setToTranslationAndScaling(x, y, z, scaleX, scaleY, scaleZ);
-        transform.mul(rotationMatrix);
+        setAngles(newYaw, newPitch, newRoll);
+        updateRotation();
     }
 
     /*
@@ -270,10 +757,8 @@ public class Actor3D extends ModelInstance implements Disposable {
      *  @param newYaw value must be within 360 degrees
      */
     public void setYaw(float newYaw){
-        yaw = newYaw;
-        rotationMatrix = transform.setFromEulerAngles(pitch, roll, yaw).cpy();
-        transform.setToTranslationAndScaling(x, y, z, scaleX, scaleY, scaleZ);
-        transform.mul(rotationMatrix);
+        setAngles(newYaw, getPitch(), getRoll());
+        updateRotation();
     }
 
     /*
@@ -281,10 +766,8 @@ public class Actor3D extends ModelInstance implements Disposable {
      *  @param newPitch value must be within 360 degrees
      */
     public void setPitch(float newPitch){
-        pitch = newPitch;
-        rotationMatrix = transform.setFromEulerAngles(pitch, roll, yaw).cpy();
-        transform.setToTranslationAndScaling(x, y, z, scaleX, scaleY, scaleZ);
-        transform.mul(rotationMatrix);
+        setAngles(getYaw(), newPitch, getRoll());
+        updateRotation();
     }
 
     /*
@@ -292,10 +775,39 @@ public class Actor3D extends ModelInstance implements Disposable {
      *  @param newRoll value must be within 360 degrees
      */
     public void setRoll(float newRoll){
-        roll = newRoll;
-        rotationMatrix = transform.setFromEulerAngles(pitch, roll, yaw).cpy();
-        transform.setToTranslationAndScaling(x, y, z, scaleX, scaleY, scaleZ);
-        transform.mul(rotationMatrix);
+        setAngles(getYaw(), getPitch(), newRoll);
+        updateRotation();
+    }
+
+    private void updateRotation () {
+        /*
+         * The libgdx library attaches the Euler angles to the wrong axis
+         * Setting the yaw rotates the actor around the y axis instead of the z axis
+         * Setting the pitch rotates the actor around the x axis instead of the y axis
+         * Setting the roll rotates the actor around the z axis instead of the x axis
+         * So we have to correct it
+         */
+        rotation.setEulerAngles(getPitch(), getRoll(), getYaw());
+        writeRotation();
+        invalidateTransform();
+    }
+
+    /*
+     * With the corrected axes the rotation is pitch(y) * roll(x) * yaw(z), so a change in yaw can be applied on the right and a
+     * change in pitch on the left of the current rotation. A change in roll sits in the middle and needs a rebuild.
+     */
+    private void composeRotation (float amountYaw, float amountPitch) {
+        final Quaternion rotation = readRotation();
+        if (amountYaw != 0) rotation.mul(tmpRotation.setFromAxis(0, 0, 1, amountYaw));
+        if (amountPitch != 0) rotation.mulLeft(tmpRotation.setFromAxis(0, 1, 0, amountPitch));
+        rotation.nor();
+        writeRotation();
+        invalidateTransform();
+    }
+
+    /** @return the rotation of this actor relative to its parent. */
+    public Quaternion getRotation (Quaternion out) {
+        return out.set(readRotation());
     }
 
 
@@ -311,129 +823,195 @@ public class Actor3D extends ModelInstance implements Disposable {
      *  @param amountYaw,amountPitch,amountRoll These values must be within 360 degrees
      */
     public void rotate(float amountYaw, float amountPitch, float amountRoll){
-        yaw = normalizeDegrees(yaw + amountYaw);
-        pitch = normalizeDegrees(pitch + amountPitch);
-        roll = normalizeDegrees(roll + amountRoll);
-        rotationMatrix = transform.setFromEulerAngles(pitch, roll, yaw).cpy();
-        transform.setToTranslationAndScaling(x, y, z, scaleX, scaleY, scaleZ);
-        transform.mul(rotationMatrix);
+        setAngles(normalizeDegrees(getYaw() + amountYaw), normalizeDegrees(getPitch() + amountPitch),
+            normalizeDegrees(getRoll() + amountRoll));
+        if (amountRoll != 0)
+            updateRotation();
+        else
+            composeRotation(amountYaw, amountPitch);
     }
 
     public void rotateYaw(float amountYaw){
-        yaw = normalizeDegrees(yaw + amountYaw);
-        rotationMatrix = transform.setFromEulerAngles(pitch, roll, yaw).cpy();
-        transform.setToTranslationAndScaling(x, y, z, scaleX, scaleY, scaleZ);
-        transform.mul(rotationMatrix);
+        setAngles(normalizeDegrees(getYaw() + amountYaw), getPitch(), getRoll());
+        composeRotation(amountYaw, 0);
     }
 
     public void rotatePitch(float amountPitch){
-        pitch = normalizeDegrees(pitch + amountPitch);
-        rotationMatrix = transform.setFromEulerAngles(pitch, roll, yaw).cpy();
-        transform.setToTranslationAndScaling(x, y, z, scaleX, scaleY, scaleZ);
-        transform.mul(rotationMatrix);
+        setAngles(getYaw(), normalizeDegrees(getPitch() + amountPitch), getRoll());
+        composeRotation(0, amountPitch);
     }
 
     public void rotateRoll(float amountRoll){
-        roll = normalizeDegrees(roll + amountRoll);
-        rotationMatrix = transform.setFromEulerAngles(pitch, roll, yaw).cpy();
-        transform.setToTranslationAndScaling(x, y, z, scaleX, scaleY, scaleZ);
-        transform.mul(rotationMatrix);
+        setAngles(getYaw(), getPitch(), normalizeDegrees(getRoll() + amountRoll));
+        updateRotation();
     }
 
     public float getYaw(){
-        return yaw;
+        return transformStore == null ? yaw : transformStore.values[transformOffset + TransformStore.YAW];
     }
 
     public float getPitch(){
-        return pitch;
+        return transformStore == null ? pitch : transformStore.values[transformOffset + TransformStore.PITCH];
     }
 
     public float getRoll(){
-        return roll;
+        return transformStore == null ? roll : transformStore.values[transformOffset + TransformStore.ROLL];
     }
 
     public void setScale(float scaleX, float scaleY, float scaleZ) {
-        this.scaleX = scaleX;
-        this.scaleY = scaleY;
-        this.scaleZ = scaleZ;
-        transform.setToScaling(scaleX, scaleY, scaleZ);
+        setLocalScale(scaleX, scaleY, scaleZ);
     }
 
     public void setScale(float scale) {
-        this.scaleX = scale;
-        this.scaleY = scale;
-        this.scaleZ = scale;
-        transform.setToScaling(scaleX, scaleY, scaleZ);
+        setLocalScale(scale, scale, scale);
     }
 
     /** Adds the specified scale to the current scale. */
     public void scale(float scale) {
-        scaleX += scale;
-        scaleY += scale;
-        scaleZ += scale;
-        transform.scl(scale); // re-implement this
+        setLocalScale(getScaleX() + scale, getScaleY() + scale, getScaleZ() + scale);
     }
 
     public void scale(float scaleX, float scaleY, float scaleZ) {
-        this.scaleX += scaleX;
-        this.scaleY += scaleY;
-        this.scaleZ += scaleZ;
-        transform.scl(scaleX, scaleY, scaleZ); // re-implement this
+        setLocalScale(getScaleX() + scaleX, getScaleY() + scaleY, getScaleZ() + scaleZ);
     }
 
 
     public void setX (float x) {
-        this.x = x;
-        transform.setToTranslation(x, y, z);
+        setLocalPosition(x, getY(), getZ());
     }
 
     public float getX () {
-        return x;
+        return transformStore == null ? x : transformStore.values[transformOffset + TransformStore.X];
     }
 
     public void setY (float y) {
-        this.y = y;
-        transform.setToTranslation(x, y, z);
+        setLocalPosition(getX(), y, getZ());
     }
 
     public float getY () {
-        return y;
+        return transformStore == null ? y : transformStore.values[transformOffset + TransformStore.Y];
     }
 
     public void setZ (float z) {
-        this.z = z;
-        transform.setToTranslation(x, y, z);
+        setLocalPosition(getX(), getY(), z);
     }
 
     public float getZ (){
-        return z;
+        return transformStore == null ? z : transformStore.values[transformOffset + TransformStore.Z];
     }
 
     public void setScaleX (float scaleX) {
-        this.scaleX = scaleX;
-        transform.scale(scaleX, scaleY, scaleZ);
+        setLocalScale(scaleX, getScaleY(), getScaleZ());
     }
 
     public float getScaleX () {
-        return scaleX;
+        return transformStore == null ? scaleX : transformStore.values[transformOffset + TransformStore.SCALE_X];
     }
 
     public void setScaleY (float scaleY) {
-        this.scaleY = scaleY;
-        transform.scale(scaleX, scaleY, scaleZ);
+        setLocalScale(getScaleX(), scaleY, getScaleZ());
     }
 
     public float getScaleY () {
-        return scaleY;
+        return transformStore == null ? scaleY : transformStore.values[transformOffset + TransformStore.SCALE_Y];
     }
 
     public void setScaleZ (float scaleZ) {
-        this.scaleY = scaleZ;
-        transform.scale(scaleX, scaleY, scaleZ);
+        setLocalScale(getScaleX(), getScaleY(), scaleZ);
     }
 
     public float getScaleZ () {
-        return scaleZ;
+        return transformStore == null ? scaleZ : transformStore.values[transformOffset + TransformStore.SCALE_Z];
+    }
+
+    /** Marks the local transform as changed. The world transforms of this actor and its descendants are recomputed the next time
+     * they are needed, which is typically when the stage is drawn. */
+    protected void invalidateTransform () {
+        transformDirty = true;
+        localTransformDirty = true;
+        invalidateParents();
+    }
+
+    /** Marks the ancestors as having a changed descendant. */
+    void invalidateParents () {
+        for (Group3D group = parent; group != null && !group.childrenDirty; group = group.getParent())
+            group.childrenDirty = true;
+    }
+
+    /** Recomputes the world transform if this actor or its parent changed since the last call. The parent's world transform must
+     * already be up to date, which is the case when called top down as {@link Group3D#draw(ModelBatch, Environment)} does.
+     * @return true if the world transform was recomputed. */
+    protected boolean validateTransform () {
+        return updateWorldTransform();
+    }
+
+    /** Recomputes the {@link #getWorldBounds() world bounds} from the bounding box and the world transform. Called each time the
+     * world transform changed. */
+    protected void updateWorldBounds () {
+        final BoundingBox box = boundBox;
+        unbounded = !box.isValid();
+        if (unbounded) {
+            worldRadius = -1;
+            if (stage3D != null) stage3D.boundsChanged(this);
+            return;
+        }
+        final float[] m = transform.val;
+        final float cx = (box.min.x + box.max.x) * 0.5f, cy = (box.min.y + box.max.y) * 0.5f, cz = (box.min.z + box.max.z) * 0.5f;
+        final float ex = (box.max.x - box.min.x) * 0.5f, ey = (box.max.y - box.min.y) * 0.5f, ez = (box.max.z - box.min.z) * 0.5f;
+
+        // the box axes scaled by its half extents, in world space
+        final float ax = m[Matrix4.M00] * ex, ay = m[Matrix4.M10] * ex, az = m[Matrix4.M20] * ex;
+        final float bx = m[Matrix4.M01] * ey, by = m[Matrix4.M11] * ey, bz = m[Matrix4.M21] * ey;
+        final float qx = m[Matrix4.M02] * ez, qy = m[Matrix4.M12] * ez, qz = m[Matrix4.M22] * ez;
+
+        final float wx = m[Matrix4.M00] * cx + m[Matrix4.M01] * cy + m[Matrix4.M02] * cz + m[Matrix4.M03];
+        final float wy = m[Matrix4.M10] * cx + m[Matrix4.M11] * cy + m[Matrix4.M12] * cz + m[Matrix4.M13];
+        final float wz = m[Matrix4.M20] * cx + m[Matrix4.M21] * cy + m[Matrix4.M22] * cz + m[Matrix4.M23];
+        final float hx = Math.abs(ax) + Math.abs(bx) + Math.abs(qx);
+        final float hy = Math.abs(ay) + Math.abs(by) + Math.abs(qy);
+        final float hz = Math.abs(az) + Math.abs(bz) + Math.abs(qz);
+        worldBounds.min.set(wx - hx, wy - hy, wz - hz);
+        worldBounds.max.set(wx + hx, wy + hy, wz + hz);
+        worldBounds.set(worldBounds.min, worldBounds.max);
+        worldCenter.set(wx, wy, wz);
+
+        // the longest of the four diagonals of the transformed box, this also holds when a parent scales non-uniformly
+        final float ab = ax * bx + ay * by + az * bz, aq = ax * qx + ay * qy + az * qz, bq = bx * qx + by * qy + bz * qz;
+        final float cross = Math.max(Math.max(ab + aq + bq, ab - aq - bq), Math.max(-ab + aq - bq, -ab - aq + bq));
+        worldRadius = (float)Math.sqrt(ax * ax + ay * ay + az * az + bx * bx + by * by + bz * bz + qx * qx + qy * qy + qz * qz
+            + 2 * cross);
+        if (stage3D != null) stage3D.boundsChanged(this);
+    }
+
+    private boolean updateWorldTransform () {
+        final Group3D parent = this.parent;
+        final boolean parentChanged = parent != null && parent.transformVersion != parentTransformVersion;
+        if (!transformDirty && !parentChanged) return false;
+        if (localTransformDirty) {
+            final TransformStore store = transformStore;
+            if (store == null) {
+                localTransform.set(x, y, z, rotation.x, rotation.y, rotation.z, rotation.w, scaleX, scaleY, scaleZ);
+            } else {
+                final float[] v = store.values;
+                final int i = transformOffset;
+                localTransform.set(v[i + TransformStore.X], v[i + TransformStore.Y], v[i + TransformStore.Z],
+                    v[i + TransformStore.QX], v[i + TransformStore.QY], v[i + TransformStore.QZ], v[i + TransformStore.QW],
+                    v[i + TransformStore.SCALE_X], v[i + TransformStore.SCALE_Y], v[i + TransformStore.SCALE_Z]);
+            }
+            localTransformDirty = false;
+        }
+        transformDirty = false;
+        if (parent != null) {
+            transform.set(parent.transform).mul(localTransform);
+            parentTransformVersion = parent.transformVersion;
+        } else {
+            transform.set(localTransform);
+        }
+        transformVersion++;
+        // the transform may be recomputed lazily, outside of the parent's validateTransform(), which then doesn't see the change
+        if (parent != null) parent.boundsDirty = true;
+        updateWorldBounds();
+        return true;
     }
 
     /** Sets a name for easier identification of the actor in application code.
@@ -452,8 +1030,7 @@ public class Actor3D extends ModelInstance implements Disposable {
     public void drawDebug(ModelBatch modelBatch, Environment environment) {
         if (!debug) return;
 
-        axis.transform.setToTranslationAndScaling(this.x, this.y, this.z, scaleX, scaleY, scaleZ);
-        axis.transform.mul(rotationMatrix);
+        axis.transform.set(transform);
 
         modelBatch.render(axis, environment);
     }
@@ -508,29 +1085,73 @@ public class Actor3D extends ModelInstance implements Disposable {
         materials.get(0).set(ColorAttribute.createDiffuse(color));
     }
 
+    /** Returns the world transform, recomputing it first if this actor or any of its ancestors changed. The returned matrix must
+     * not be modified, use {@link #setTransform(Matrix4)} instead. */
     public Matrix4 getTransform(){
+        if (parent != null) parent.getTransform();
+        updateWorldTransform();
         return transform;
     }
 
+    /** Returns a number that changes each time the world transform is recomputed, so callers can tell whether this actor moved
+     * since they last looked at it. */
+    public int getTransformVersion(){
+        return transformVersion;
+    }
+
+    /** Returns the transform relative to the parent. The returned matrix must not be modified. */
+    public Matrix4 getLocalTransform(){
+        if (transformDirty) getTransform();
+        return localTransform;
+    }
+
+    /** Sets the position, rotation and scale of this actor from the specified transform, which is relative to the parent. */
     public void setTransform(Matrix4 transform){
-        this.transform = transform;
+        transform.getTranslation(position);
+        setLocalPosition(position.x, position.y, position.z);
+        transform.getScale(position);
+        setLocalScale(position.x, position.y, position.z);
+        transform.getRotation(rotation, true);
+        // see updateRotation() for the swapped axes
+        setAngles(rotation.getRoll(), rotation.getYaw(), rotation.getPitch());
+        writeRotation();
     }
 
     public BoundingBox getBoundingBox(){
         return boundBox;
     }
 
+    /** Returns the bounds of this actor in world space, taking position, rotation and scale of it and its ancestors into account.
+     * For a group these are the bounds of its children as of the last time the stage was drawn. */
+    public BoundingBox getWorldBounds(){
+        getTransform();
+        return worldBounds;
+    }
+
     public void setBoundingBox(BoundingBox box){
         boundBox = box;
+        invalidateTransform();
     }
 
+    /** Returns the animation controller. The actor acts while the controller is animating, start animations through the
+     * returned controller right away, so the actor keeps acting. */
     public AnimationController getAnimation(){
+        setActive(true);
         return animation;
     }
 
+    /** Cancels the {@link Stage3D#getTweens() tweens} of the actor, disposes the debug axes and releases the model if it is
+     * shared through the {@link SharedModelCache}, which disposes it once no other actor uses it. Models that are not shared are
+     * left to their owner. */
     @Override
     public void dispose() {
+        if (stage3D != null) stage3D.getTweens().cancel(this);
         if (axis != null) axis.model.dispose();
+        if (transformStore != null) transformStore.remove(this);
+        if (!modelReleased) {
+            modelReleased = true;
+            SharedModelCache.release(model);
+        }
     }
     
     public void moveBy (float x, float y)
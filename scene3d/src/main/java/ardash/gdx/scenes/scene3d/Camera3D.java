@@ -118,9 +118,9 @@ public class Camera3D extends PerspectiveCamera {
             rotateLastPercent = percent;
         }
         if (followedActor != null) {
-            moveTo(followedActor.x+offsetX, followedActor.y+offsetY, followedActor.z+offsetZ, followSpeed);
+            moveTo(followedActor.getX()+offsetX, followedActor.getY()+offsetY, followedActor.getZ()+offsetZ, followSpeed);
             if (lookAt)
-                lookAt(followedActor.x, followedActor.y, followedActor.z);
+                lookAt(followedActor.getX(), followedActor.getY(), followedActor.getZ());
         }
     }
 
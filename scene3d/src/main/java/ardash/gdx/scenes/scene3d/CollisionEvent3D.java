@@ -0,0 +1,46 @@
+package ardash.gdx.scenes.scene3d;
+
+/** Event fired on both actors of a pair whose bounds started, kept or stopped overlapping, see
+ * {@link Actor3D#setCollidable(boolean)}. Collision events are pooled, listeners must not keep them.
+ * @see Stage3D#act(float) */
+public class CollisionEvent3D extends Event3D {
+        private Type type;
+        private Actor3D relatedActor;
+
+        public void reset () {
+                super.reset();
+                type = null;
+                relatedActor = null;
+        }
+
+        public Type getType () {
+                return type;
+        }
+
+        public void setType (Type type) {
+                this.type = type;
+        }
+
+        /** The other actor of the pair. */
+        public Actor3D getRelatedActor () {
+                return relatedActor;
+        }
+
+        public void setRelatedActor (Actor3D relatedActor) {
+                this.relatedActor = relatedActor;
+        }
+
+        public String toString () {
+                return type.toString();
+        }
+
+        /** Types of collision events. */
+        public enum Type {
+                /** The bounds of the actors started to overlap. */
+                begin,
+                /** The bounds of the actors still overlap, fired each time the stage acts. */
+                stay,
+                /** The bounds of the actors stopped overlapping, or one of them was removed or is no longer collidable. */
+                end
+        }
+}
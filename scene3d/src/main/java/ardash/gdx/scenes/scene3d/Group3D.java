@@ -1,99 +1,351 @@
 package ardash.gdx.scenes.scene3d;
 
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.g3d.Environment;
 import com.badlogic.gdx.graphics.g3d.Model;
 import com.badlogic.gdx.graphics.g3d.ModelBatch;
 import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.scenes.scene2d.Action;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.SnapshotArray;
 
+import ardash.gdx.scenes.scene3d.utils.StaticBatch;
+
 
 public class Group3D extends Actor3D {
     private final SnapshotArray<Actor3D> children = new SnapshotArray<>(true, 4, Actor3D.class);
+    /** Number of actors in this group, including nested groups, that were drawn the last time this group was drawn. */
     public int visibleCount;
+    /** Number of actors or whole groups in this group, including nested groups, that were skipped the last time this group was
+     * drawn because they were outside of the camera's frustum. */
+    public int culledCount;
+    private boolean culling = true;
+    /** True when a descendant's transform changed since the last {@link #validateTransform()}. */
+    boolean childrenDirty;
+    /** True when children were removed or a child's world transform was recomputed, so the bounds must be updated even if no
+     * child reports a change when validated. */
+    boolean boundsDirty;
+    /** The world transform version of this group when its children were last validated. */
+    private int validatedTransformVersion;
+    /** The merged geometry of the children while this group is frozen, otherwise null. */
+    private StaticBatch staticBatch;
+    private int staticBatchTransformVersion;
+    /** The number of children that {@link Actor3D#needsAct() need to act}. */
+    private int activeChildren;
+    /** The tasks that last collected the visible descendants in parallel, kept so their buffers are reused. */
+    private CollectTask collectTask;
+    /** The tasks that last validated the transforms of the children in parallel, kept so they are reused. */
+    private ValidateTask validateTask;
 
+    /** Creates a group without a model. Unlike an actor without a model, which is scaled to 0 so it is not drawn, the group has
+     * a scale of 1, since its scale applies to its children. */
     public Group3D(){
         super();
+        setScale(1);
     }
 
     public Group3D(Model model){
         super(model);
     }
 
+    /** Acts on this group and on the children that have actions, running animations or override act, see
+     * {@link Actor3D#act(float)}. */
     public void act (float delta) {
         super.act(delta);
+        if (activeChildren == 0) return;
         Actor3D[] actors = children.begin();
         for (int i = 0, n = children.size; i < n; i++){
-            actors[i].act(delta);
+            if (actors[i].needsAct()) actors[i].act(delta);
         }
         children.end();
     }
 
-    /** Draws the group and its children. */
+    @Override
+    boolean needsAct () {
+        return super.needsAct() || activeChildren > 0;
+    }
+
+    /** Called when a child starts or stops needing to act, tells the ancestors if this group changes too. */
+    void childActiveChanged (boolean active) {
+        final boolean needed = needsAct();
+        activeChildren += active ? 1 : -1;
+        if (getParent() != null && needed != needsAct()) getParent().childActiveChanged(!needed);
+    }
+
+    /** Draws the group and its children. If {@link #setCulling(boolean) culling} is enabled, children and nested groups outside
+     * of the camera's frustum are skipped. */
     @Override
     public void draw(ModelBatch modelBatch, Environment environment) {
+        validateTransform();
+        if (staticBatch != null) {
+            drawFrozen(modelBatch, environment);
+            return;
+        }
+        final Camera camera = culling ? modelBatch.getCamera() : null;
         SnapshotArray<Actor3D> children = this.children;
         Actor3D[] actors = children.begin();
         visibleCount = 0;
+        culledCount = 0;
         for (int i = 0, n = children.size; i < n; i++){
                 Actor3D child = actors[i];
                 if (!child.isVisible()) continue;
-                
-                // update childs matrix
-                child.transform.setToTranslationAndScaling(child.x, child.y, child.z, child.scaleX, child.scaleY, child.scaleZ);
-                child.transform.mul(child.rotationMatrix);
-                Matrix4 m4 = new Matrix4();
-                m4.setToTranslationAndScaling(x, y, z, scaleX, scaleY, scaleZ);
-                m4.mul(rotationMatrix);
-
-                child.transform.mulLeft(m4);
+                if (camera != null && !child.isCullable(camera)) {
+                    culledCount++;
+                    continue;
+                }
                 child.draw(modelBatch, environment);
+                if (child instanceof Group3D) {
+                    visibleCount += ((Group3D)child).visibleCount;
+                    culledCount += ((Group3D)child).culledCount;
+                } else {
+                    visibleCount++;
+                }
+        }
+        children.end();
+    }
+
+    /** Adds the descendants to draw to the array, in the order {@link #draw(ModelBatch, Environment)} would draw them, and
+     * updates the visible and culled counts like draw does. Nested groups are traversed, unless they are frozen or override
+     * draw, then the group itself is added. The transforms must be validated before.
+     * @param camera the camera to cull against, groups that don't cull ignore it. */
+    void collectVisible(Camera camera, Array<Actor3D> out) {
+        final int n = children.size;
+        final int threshold = parallelThreshold(n);
+        final long counts;
+        if (threshold == 0) {
+            counts = collectVisible(camera, 0, n, out);
+        } else {
+            CollectTask task = collectTask;
+            if (task == null || task.to != n || task.threshold != threshold)
+                collectTask = task = new CollectTask(this, 0, n, threshold);
+            task.prepare(camera);
+            task.invoke();
+            task.drain(out);
+            counts = task.counts;
+        }
+        visibleCount = (int)(counts >>> 32);
+        culledCount = (int)counts;
+    }
+
+    /** Collects the visible descendants below the children in the range.
+     * @return the visible count in the upper and the culled count in the lower 32 bits. */
+    private long collectVisible(Camera camera, int from, int to, Array<Actor3D> out) {
+        final Camera cullCamera = culling ? camera : null;
+        int visibleCount = 0, culledCount = 0;
+        final Actor3D[] actors = children.items;
+        for (int i = from; i < to; i++) {
+            final Actor3D child = actors[i];
+            if (!child.isVisible()) continue;
+            if (cullCamera != null && !child.isCullable(cullCamera)) {
+                culledCount++;
+                continue;
+            }
+            if (!(child instanceof Group3D)) {
+                out.add(child);
+                visibleCount++;
+                continue;
+            }
+            final Group3D group = (Group3D)child;
+            if (group.staticBatch == null && !overridesDraw(group.getClass())) {
+                group.collectVisible(camera, out);
+                visibleCount += group.visibleCount;
+                culledCount += group.culledCount;
+            } else {
+                out.add(group);
+                visibleCount += group.staticBatch != null ? group.staticBatch.getProviderCount() : 1;
+            }
+        }
+        return (long)visibleCount << 32 | culledCount;
+    }
+
+    /** @return the most children one task processes if the children should be split into parallel tasks, otherwise 0. They are
+     * split if this group is validated or culled on the parallel pool of its stage and has more children than its threshold. */
+    private int parallelThreshold(int childCount) {
+        final Stage3D stage = getStage();
+        if (stage == null || stage.parallelPool == null || childCount <= stage.parallelThreshold) return 0;
+        return ForkJoinTask.getPool() == stage.parallelPool ? stage.parallelThreshold : 0;
+    }
+
+    private static final ObjectMap<Class<?>, Boolean> drawOverrides = new ObjectMap<>();
+
+    /** Synchronized, as groups may be culled in parallel. */
+    private static synchronized boolean overridesDraw(Class<?> type) {
+        if (type == Group3D.class) return false;
+        Boolean overrides = drawOverrides.get(type);
+        if (overrides == null) {
+            try {
+                overrides = type.getMethod("draw", ModelBatch.class, Environment.class).getDeclaringClass() != Group3D.class;
+            } catch (NoSuchMethodException e) {
+                overrides = false;
+            }
+            drawOverrides.put(type, overrides);
+        }
+        return overrides;
+    }
+
+    private void drawFrozen(ModelBatch modelBatch, Environment environment) {
+        if (staticBatchTransformVersion != transformVersion) {
+            staticBatch.setTransform(transform);
+            staticBatchTransformVersion = transformVersion;
+        }
+        modelBatch.render(staticBatch, environment);
+        visibleCount = staticBatch.getProviderCount();
+        culledCount = 0;
+    }
+
+    /** Merges the geometry of all visible descendants into a few meshes, one per material, so the whole group is drawn with a
+     * handful of draw calls. This suits scenery that doesn't change after it is loaded. The group itself can still be moved,
+     * rotated and scaled while frozen, but it is culled as a whole.
+     * <p>
+     * The group is unfrozen automatically when a descendant is moved, shown, hidden, added or removed. Changes to materials or
+     * animations of descendants are not detected, call {@link #unfreeze()} or freeze again after making them. A
+     * {@link LodActor3D} is merged with its most detailed level, which is drawn at any distance while the group is frozen. */
+    public void freeze () {
+        unfreeze();
+        getTransform();
+        validateTransform();
+        staticBatch = new StaticBatch();
+        staticBatch.begin(transform);
+        bake(this, staticBatch);
+        staticBatch.end();
+        staticBatchTransformVersion = transformVersion;
+    }
+
+    private static void bake (Group3D group, StaticBatch staticBatch) {
+        final Actor3D[] actors = group.children.items;
+        for (int i = 0, n = group.children.size; i < n; i++) {
+            final Actor3D child = actors[i];
+            if (!child.isVisible()) continue;
+            if (child instanceof Group3D)
+                bake((Group3D)child, staticBatch);
+            else
+                staticBatch.add(child);
+        }
+    }
+
+    /** Disposes the merged geometry, so the children are drawn separately again. Does nothing if the group is not frozen. */
+    public void unfreeze () {
+        if (staticBatch == null) return;
+        staticBatch.dispose();
+        staticBatch = null;
+    }
+
+    /** Unfreezes without touching GL, since validation may run on a thread of the stage's parallel pool. The merged geometry is
+     * disposed by the stage once validation is done, or right away if the group is not on a stage and so validated by the
+     * calling thread. */
+    private void retireStaticBatch () {
+        final Stage3D stage = getStage();
+        if (stage != null)
+            stage.disposeLater(staticBatch);
+        else
+            staticBatch.dispose();
+        staticBatch = null;
+    }
+
+    /** @return true if the children are drawn from merged geometry, see {@link #freeze()}. */
+    public boolean isFrozen () {
+        return staticBatch != null;
+    }
+
+    /** Updates the world transform of this group and, if anything below it changed, the transforms of its descendants and the
+     * bounds enclosing them. A frozen group is unfrozen if a descendant changed. */
+    @Override
+    protected boolean validateTransform () {
+        if (childrenDirty && staticBatch != null) retireStaticBatch();
+        // the world transform may have been recomputed lazily since the last validation, the children must follow it then
+        final boolean changed = super.validateTransform() || validatedTransformVersion != transformVersion;
+        if (!changed && !childrenDirty) return false;
+        childrenDirty = false;
+        validatedTransformVersion = transformVersion;
+        boolean boundsChanged = changed || boundsDirty;
+        Actor3D[] actors = children.begin();
+        final int n = children.size;
+        final int threshold = parallelThreshold(n);
+        if (threshold == 0) {
+            for (int i = 0; i < n; i++)
+                if (actors[i].validateTransform()) boundsChanged = true;
+        } else {
+            ValidateTask task = validateTask;
+            if (task == null || task.to != n || task.threshold != threshold)
+                validateTask = task = new ValidateTask(0, n, threshold);
+            task.prepare(actors);
+            task.invoke();
+            if (task.changed) boundsChanged = true;
         }
         children.end();
+        if (boundsChanged) updateChildrenBounds();
+        return boundsChanged;
+    }
+
+    @Override
+    protected void updateWorldBounds () {
+        // the bounds depend on the children, which are validated after this group, see validateTransform()
+    }
+
+    private void updateChildrenBounds () {
+        boundsDirty = false;
+        worldBounds.inf();
+        unbounded = false;
+        Actor3D[] actors = children.items;
+        for (int i = 0, n = children.size; i < n; i++) {
+            Actor3D child = actors[i];
+            if (child.unbounded)
+                unbounded = true;
+            else if (child.worldRadius >= 0)
+                worldBounds.ext(child.worldBounds);
+        }
+        if (worldBounds.isValid()) {
+            worldBounds.getCenter(worldCenter);
+            worldRadius = 0.5f * (float)Math.sqrt(worldBounds.getWidth() * worldBounds.getWidth()
+                + worldBounds.getHeight() * worldBounds.getHeight() + worldBounds.getDepth() * worldBounds.getDepth());
+        } else {
+            worldRadius = -1;
+        }
+    }
+
+    private void invalidateBounds () {
+        boundsDirty = true;
+        for (Group3D group = this; group != null && !group.childrenDirty; group = group.getParent())
+            group.childrenDirty = true;
     }
 
+    /** If true, children outside of the camera's frustum are not drawn. Nested groups use their own setting. Default is true. */
+    public void setCulling (boolean culling) {
+        this.culling = culling;
+    }
 
-//    public void drawChildren(ModelBatch modelBatch, Environment environment){
-//        SnapshotArray<Actor3D> children = this.children;
-//        Actor3D[] actors = children.begin();
-//        visibleCount = 0;
-//        for (int i = 0, n = children.size; i < n; i++){
-//                Actor3D child = actors[i];
-//                if (!child.isVisible()) continue;
-//                
-//                // update childs matrix
-//                child.transform.setToTranslationAndScaling(child.x, child.y, child.z, child.scaleX, child.scaleY, child.scaleZ);
-//                child.transform.mul(child.rotationMatrix);
-//                Matrix4 m4 = new Matrix4();
-//                m4.setToTranslationAndScaling(x, y, z, scaleX, scaleY, scaleZ);
-//                m4.mul(rotationMatrix);
-//
-//                child.transform.mulLeft(m4);
-//                child.draw(modelBatch, environment);
-//        }
-//        children.end();
-//    }
+    public boolean isCulling () {
+        return culling;
+    }
 
     /** Adds an actor as a child of this group. The actor is first removed from its parent group, if any.
      * @see #remove() */
     public void addActor(Actor3D actor) {
         actor.remove();
+        unfreeze();
         children.add(actor);
         actor.setParent(this);
         actor.setStage(getStage());
         childrenChanged();
     }
 
-    /** Removes an actor from this group. If the actor will not be used again and has actions, they should be
+    /** Removes an actor from this group. The touch focus of the actor and its descendants is cancelled, see
+     * {@link Stage3D#cancelTouchFocus(Actor3D)}. If the actor will not be used again and has actions, they should be
      * {@link Actor3D#clearActions() cleared} so the actions will be returned to their
      * {@link Action#setPool(com.badlogic.gdx.utils.Pool) pool}, if any. This is not done automatically. */
     public boolean removeActor(Actor3D actor) {
         if (!children.removeValue(actor, true)) return false;
+        unfreeze();
+        final Stage3D stage = getStage();
+        if (stage != null) stage.cancelTouchFocusBelow(actor);
         actor.setParent(null);
         actor.setStage(null);
+        invalidateBounds();
         childrenChanged();
         return true;
     }
@@ -104,14 +356,18 @@ public class Group3D extends Actor3D {
 
     /** Removes all actors from this group. */
     public void clearChildren () {
+        unfreeze();
+        final Stage3D stage = getStage();
         Actor3D[] actors = children.begin();
         for (int i = 0, n = children.size; i < n; i++) {
             Actor3D child = actors[i];
+            if (stage != null) stage.cancelTouchFocusBelow(child);
             child.setStage(null);
             child.setParent(null);
         }
         children.end();
         children.clear();
+        invalidateBounds();
         childrenChanged();
     }
 
@@ -193,6 +449,7 @@ public class Group3D extends Actor3D {
     @Override
     public void dispose() {
         super.dispose();
+        unfreeze();
         for (Actor3D actor3D : children)
             actor3D.dispose();
     }
@@ -201,4 +458,120 @@ public class Group3D extends Actor3D {
 		setYaw(f*MathUtils.radiansToDegrees);
 		
 	}
+
+    /** Validates the transforms of a range of children, splitting it into halves while it is larger than the threshold. The
+     * tasks are kept by the group and reused each frame, like {@link CollectTask}. */
+    private static final class ValidateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int from, to, threshold;
+        /** The halves of the range, or null if this task validates the range itself. */
+        private final ValidateTask left, right;
+        private Actor3D[] actors;
+        /** Whether any world bounds in the range changed. */
+        boolean changed;
+
+        ValidateTask (int from, int to, int threshold) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            if (to - from <= threshold) {
+                left = right = null;
+            } else {
+                final int middle = (from + to) >>> 1;
+                left = new ValidateTask(from, middle, threshold);
+                right = new ValidateTask(middle, to, threshold);
+            }
+        }
+
+        /** Readies the tasks of the range to be invoked again.
+         * @param actors the children, which may be a different array each frame. */
+        void prepare (Actor3D[] actors) {
+            reinitialize();
+            this.actors = actors;
+            if (left != null) {
+                left.prepare(actors);
+                right.prepare(actors);
+            }
+        }
+
+        @Override
+        protected void compute () {
+            if (left == null) {
+                boolean changed = false;
+                final Actor3D[] actors = this.actors;
+                for (int i = from, to = this.to; i < to; i++)
+                    if (actors[i].validateTransform()) changed = true;
+                this.changed = changed;
+                this.actors = null;
+                return;
+            }
+            invokeAll(left, right);
+            changed = left.changed || right.changed;
+            actors = null;
+        }
+    }
+
+    /** Collects the visible descendants below a range of children, splitting the range into halves while it is larger than the
+     * threshold. The tasks are kept by the group and reused each frame with their buffers, so collecting doesn't allocate once
+     * the number of children is stable. The buffers are drained in order, so the result is the same as without splitting. */
+    private static final class CollectTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Group3D group;
+        final int from, to, threshold;
+        /** The halves of the range, or null if this task collects the range itself. */
+        private final CollectTask left, right;
+        /** The actors collected by a task without halves. */
+        private final Array<Actor3D> out;
+        private Camera camera;
+        long counts;
+
+        CollectTask (Group3D group, int from, int to, int threshold) {
+            this.group = group;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            if (to - from <= threshold) {
+                left = right = null;
+                out = new Array<>(false, to - from, Actor3D.class);
+            } else {
+                final int middle = (from + to) >>> 1;
+                left = new CollectTask(group, from, middle, threshold);
+                right = new CollectTask(group, middle, to, threshold);
+                out = null;
+            }
+        }
+
+        /** Readies the tasks of the range to be invoked again. */
+        void prepare (Camera camera) {
+            reinitialize();
+            this.camera = camera;
+            if (left != null) {
+                left.prepare(camera);
+                right.prepare(camera);
+            }
+        }
+
+        @Override
+        protected void compute () {
+            if (left == null) {
+                counts = group.collectVisible(camera, from, to, out);
+                return;
+            }
+            invokeAll(left, right);
+            counts = left.counts + right.counts;
+        }
+
+        /** Moves the collected actors to the array, in the order of the children. */
+        void drain (Array<Actor3D> out) {
+            if (left == null) {
+                out.addAll(this.out);
+                this.out.clear();
+                return;
+            }
+            left.drain(out);
+            right.drain(out);
+        }
+    }
 }
@@ -2,23 +2,23 @@ package ardash.gdx.scenes.scene3d;
 
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.scenes.scene2d.Actor;
-import com.badlogic.gdx.scenes.scene2d.InputListener;
-import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Button;
 
 /** Event for actor input: touch, mouse, keyboard, and scroll.
- * @see InputListener */
+ * @see InputListener3D */
 public class InputEvent3D extends Event3D {
         private Type type;
         private float stageX, stageY, stageZ;
         private int pointer, button, keyCode, scrollAmount;
         private char character;
         private Actor3D relatedActor;
+        private boolean touchFocus = true;
 
         public void reset () {
                 super.reset();
                 relatedActor = null;
                 button = -1;
+                touchFocus = true;
         }
 
         /** The stage x coordinate where the event occurred. Valid for: touchDown, touchDragged, touchUp, mouseMoved, enter, and exit. */
@@ -30,7 +30,7 @@ public class InputEvent3D extends Event3D {
                 this.stageX = stageX;
         }
 
-        /** The stage x coordinate where the event occurred. Valid for: touchDown, touchDragged, touchUp, mouseMoved, enter, and exit. */
+        /** The stage y coordinate where the event occurred. Valid for: touchDown, touchDragged, touchUp, mouseMoved, enter, and exit. */
         public float getStageY () {
                 return stageY;
         }
@@ -39,6 +39,15 @@ public class InputEvent3D extends Event3D {
                 this.stageY = stageY;
         }
 
+        /** The stage z coordinate where the event occurred. Valid for: touchDown, touchDragged, touchUp, mouseMoved, enter, and exit. */
+        public float getStageZ () {
+                return stageZ;
+        }
+
+        public void setStageZ (float stageZ) {
+                this.stageZ = stageZ;
+        }
+
         /** The type of input event. */
         public Type getType () {
                 return type;
@@ -114,7 +123,17 @@ public class InputEvent3D extends Event3D {
                 return actorCoords;
         }
 
-        /** Returns true of this event is a touchUp triggered by {@link Stage#cancelTouchFocus()}. */
+        public boolean getTouchFocus () {
+                return touchFocus;
+        }
+
+        /** If false, {@link InputListener3D#handle(Event3D)} will not add the listener to the stage's touch focus when a touch down
+         * event is handled. Default is true. */
+        public void setTouchFocus (boolean touchFocus) {
+                this.touchFocus = touchFocus;
+        }
+
+        /** Returns true of this event is a touchUp triggered by {@link Stage3D#cancelTouchFocus()}. */
         public boolean isTouchFocusCancel () {
                 return stageX == Integer.MIN_VALUE || stageY == Integer.MIN_VALUE;
         }
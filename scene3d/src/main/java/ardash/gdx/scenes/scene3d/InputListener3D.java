@@ -0,0 +1,102 @@
+package ardash.gdx.scenes.scene3d;
+
+import com.badlogic.gdx.math.Vector3;
+
+/** EventListener for low-level input events. Unpacks {@link InputEvent3D}s and calls the appropriate method. By default the
+ * methods here do nothing with the event.
+ * <p>
+ * The coordinates passed to the methods are those of the {@link InputEvent3D#toCoordinates(Actor3D, Vector3) event}, the point
+ * where the pick ray hit the target actor.
+ * @see Stage3D#touchDown(int, int, int, int) */
+public class InputListener3D implements Event3DListener {
+        static private final Vector3 tmpCoords = new Vector3();
+
+        /** Try to handle the given event, if it is an {@link InputEvent3D}.
+         * <p>
+         * If the input event is of type {@link InputEvent3D.Type#touchDown} and {@link InputEvent3D#getTouchFocus()} is true and
+         * {@link #touchDown(InputEvent3D, float, float, float, int, int)} returns true (indicating the event was handled) then this
+         * listener is added to the stage's {@link Stage3D#addTouchFocus(Event3DListener, Actor3D, Actor3D, int, int) touch focus} so
+         * it will receive all touch dragged events until the next touch up event. */
+        public boolean handle (Event3D e) {
+                if (!(e instanceof InputEvent3D)) return false;
+                InputEvent3D event = (InputEvent3D)e;
+
+                event.toCoordinates(event.getListenerActor(), tmpCoords);
+
+                switch (event.getType()) {
+                case touchDown:
+                        boolean handled = touchDown(event, tmpCoords.x, tmpCoords.y, tmpCoords.z, event.getPointer(), event.getButton());
+                        if (handled && event.getTouchFocus()) {
+                                event.getStage().addTouchFocus(this, event.getListenerActor(), event.getTarget(), event.getPointer(),
+                                        event.getButton());
+                        }
+                        return handled;
+                case touchUp:
+                        touchUp(event, tmpCoords.x, tmpCoords.y, tmpCoords.z, event.getPointer(), event.getButton());
+                        return true;
+                case touchDragged:
+                        touchDragged(event, tmpCoords.x, tmpCoords.y, tmpCoords.z, event.getPointer());
+                        return true;
+                case mouseMoved:
+                        return mouseMoved(event, tmpCoords.x, tmpCoords.y, tmpCoords.z);
+                case scrolled:
+                        return scrolled(event, tmpCoords.x, tmpCoords.y, tmpCoords.z, event.getScrollAmount());
+                case enter:
+                        enter(event, tmpCoords.x, tmpCoords.y, tmpCoords.z, event.getPointer(), event.getRelatedActor());
+                        return false;
+                case exit:
+                        exit(event, tmpCoords.x, tmpCoords.y, tmpCoords.z, event.getPointer(), event.getRelatedActor());
+                        return false;
+                default:
+                        return false;
+                }
+        }
+
+        /** Called when a mouse button or a finger touch goes down on the actor. If true is returned, this listener will have
+         * {@link Stage3D#addTouchFocus(Event3DListener, Actor3D, Actor3D, int, int) touch focus}, so it will receive all touchDragged
+         * and touchUp events, even those not over this actor, until touchUp is received. Also when true is returned, the event is
+         * {@link Event3D#handle() handled}.
+         * @see InputEvent3D */
+        public boolean touchDown (InputEvent3D event, float x, float y, float z, int pointer, int button) {
+                return false;
+        }
+
+        /** Called when a mouse button or a finger touch goes up anywhere, but only if touchDown previously returned true for the mouse
+         * button or touch. The touchUp event is always {@link Event3D#handle() handled}.
+         * @see InputEvent3D */
+        public void touchUp (InputEvent3D event, float x, float y, float z, int pointer, int button) {
+        }
+
+        /** Called when a mouse button or a finger touch is moved anywhere, but only if touchDown previously returned true for the mouse
+         * button or touch. The touchDragged event is always {@link Event3D#handle() handled}. The coordinates are on the pick ray, at
+         * the distance from the camera where the touch went down.
+         * @see InputEvent3D */
+        public void touchDragged (InputEvent3D event, float x, float y, float z, int pointer) {
+        }
+
+        /** Called any time the mouse is moved when a button is not down. This event only occurs on the desktop. When true is returned,
+         * the event is {@link Event3D#handle() handled}.
+         * @see InputEvent3D */
+        public boolean mouseMoved (InputEvent3D event, float x, float y, float z) {
+                return false;
+        }
+
+        /** Called any time the mouse cursor or a finger touch is moved over an actor. On the desktop, this event occurs even when no
+         * mouse buttons are pressed (pointer will be -1).
+         * @param fromActor May be null.
+         * @see InputEvent3D */
+        public void enter (InputEvent3D event, float x, float y, float z, int pointer, Actor3D fromActor) {
+        }
+
+        /** Called any time the mouse cursor or a finger touch is moved out of an actor. On the desktop, this event occurs even when no
+         * mouse buttons are pressed (pointer will be -1).
+         * @param toActor May be null.
+         * @see InputEvent3D */
+        public void exit (InputEvent3D event, float x, float y, float z, int pointer, Actor3D toActor) {
+        }
+
+        /** Called when the mouse wheel has been scrolled. When true is returned, the event is {@link Event3D#handle() handled}. */
+        public boolean scrolled (InputEvent3D event, float x, float y, float z, int amount) {
+                return false;
+        }
+}
@@ -0,0 +1,140 @@
+package ardash.gdx.scenes.scene3d;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.ModelBatch;
+import com.badlogic.gdx.graphics.g3d.ModelInstance;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+
+import ardash.gdx.scenes.scene3d.utils.SharedModelCache;
+
+/** An actor with several models of decreasing detail, of which the one matching the distance to the camera is drawn. Level 0 is
+ * the model of the actor itself, it is used for bounds and picking. Level i + 1 is drawn from {@link #getDistance(int)
+ * distance} i on. To avoid flicker at a switching distance, a coarser level is only chosen once the distance exceeds it by the
+ * {@link #setHysteresis(float) hysteresis}, and a finer level once the distance is below it by the same amount.
+ * <p>
+ * The levels use the materials of level 0, so changing its color or blending changes all levels. Models obtained from the
+ * {@link SharedModelCache} are released when the actor is disposed. In a {@link Group3D#freeze() frozen} group only level 0 is
+ * drawn. */
+public class LodActor3D extends Actor3D {
+    private final ModelInstance[] levels;
+    private final float[] distances;
+    private float hysteresis = 0.1f;
+    private float cullDistance = Float.POSITIVE_INFINITY;
+    private int level;
+    private boolean levelsReleased;
+
+    /** @param models the levels, the most detailed first.
+     * @param distances the distances from which each level after the first is drawn, ascending, one less than models. */
+    public LodActor3D (Model[] models, float[] distances) {
+        super(models[0]);
+        if (distances.length != models.length - 1)
+            throw new IllegalArgumentException("distances must have one less element than models: " + distances.length);
+        for (int i = 1; i < distances.length; i++)
+            if (distances[i] < distances[i - 1]) throw new IllegalArgumentException("distances must be ascending");
+        this.distances = distances.clone();
+        levels = new ModelInstance[models.length];
+        levels[0] = this;
+        for (int i = 1; i < models.length; i++) {
+            final ModelInstance instance = new ModelInstance(models[i]);
+            instance.transform = transform;
+            shareMaterials(instance.nodes, instance);
+            levels[i] = instance;
+        }
+    }
+
+    private void shareMaterials (Iterable<Node> nodes, ModelInstance instance) {
+        for (Node node : nodes) {
+            for (NodePart part : node.parts) {
+                final int index = instance.materials.indexOf(part.material, true);
+                part.material = materials.get(Math.min(Math.max(index, 0), materials.size - 1));
+            }
+            shareMaterials(node.getChildren(), instance);
+        }
+    }
+
+    /** Sets how far beyond a switching distance the camera must move before the level changes, as a fraction of that distance.
+     * Default is 0.1. */
+    public void setHysteresis (float hysteresis) {
+        this.hysteresis = hysteresis;
+    }
+
+    public float getHysteresis () {
+        return hysteresis;
+    }
+
+    /** Sets the distance from which the actor is not drawn at all. Default is infinity. */
+    public void setCullDistance (float cullDistance) {
+        this.cullDistance = cullDistance;
+    }
+
+    public float getCullDistance () {
+        return cullDistance;
+    }
+
+    public int getLevelCount () {
+        return levels.length;
+    }
+
+    /** @return the level drawn last. */
+    public int getLevel () {
+        return level;
+    }
+
+    /** @return the distance from which the level after the specified one is drawn. */
+    public float getDistance (int level) {
+        return distances[level];
+    }
+
+    /** @return the instance drawn for the specified level, level 0 is this actor. */
+    public ModelInstance getLevelInstance (int level) {
+        return levels[level];
+    }
+
+    /** @return the distance from the camera to the center of the world bounds. */
+    public float getCameraDistance (Camera camera) {
+        return camera.position.dst(worldCenter);
+    }
+
+    /** Returns false beyond the {@link #setCullDistance(float) cull distance}, otherwise tests the frustum. */
+    @Override
+    public boolean isCullable (Camera cam) {
+        if (cullDistance != Float.POSITIVE_INFINITY && !unbounded
+            && cam.position.dst2(worldCenter) > cullDistance * cullDistance) return false;
+        return super.isCullable(cam);
+    }
+
+    /** Selects the level for the distance, starting from the current level so that the hysteresis applies. */
+    protected int selectLevel (float distance) {
+        final float[] distances = this.distances;
+        int level = this.level;
+        while (level < distances.length && distance > distances[level] * (1 + hysteresis))
+            level++;
+        while (level > 0 && distance < distances[level - 1] * (1 - hysteresis))
+            level--;
+        return level;
+    }
+
+    @Override
+    public void draw (ModelBatch modelBatch, Environment environment) {
+        final Camera camera = modelBatch.getCamera();
+        if (camera != null) level = selectLevel(getCameraDistance(camera));
+        if (level == 0) {
+            super.draw(modelBatch, environment);
+            return;
+        }
+        modelBatch.render(levels[level], environment);
+        drawDebug(modelBatch, environment);
+    }
+
+    @Override
+    public void dispose () {
+        super.dispose();
+        if (levelsReleased) return;
+        levelsReleased = true;
+        for (int i = 1; i < levels.length; i++)
+            SharedModelCache.release(levels[i].model);
+    }
+}
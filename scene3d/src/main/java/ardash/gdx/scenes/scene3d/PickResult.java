@@ -0,0 +1,58 @@
+package ardash.gdx.scenes.scene3d;
+
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+import com.badlogic.gdx.utils.IntArray;
+
+import ardash.gdx.scenes.scene3d.utils.TriangleMesh;
+
+/** The nearest actor hit by a pick ray, see {@link Stage3D#pick(int, int, PickResult)}. A result also holds the temporary
+ * objects used while picking, so a separate instance is required for each thread that picks, and for each ray of a
+ * {@link Stage3D#pickAll(float[], PickResult[]) batch}. */
+public class PickResult {
+    /** The actor that was hit, or null. */
+    public Actor3D actor;
+    /** The distance along the ray from its origin to the hit point, or {@link Float#POSITIVE_INFINITY} if nothing was hit. */
+    public float distance = Float.POSITIVE_INFINITY;
+    /** The hit point in world space, only valid if {@link #actor} is not null. */
+    public final Vector3 point = new Vector3();
+    /** The ray in world space, set by the batch picks of {@link Stage3D#pickAll(float[], PickResult[])}. */
+    public final Ray ray = new Ray();
+    /** The index of the hit triangle in the {@link TriangleMesh} of the actor's model, or -1 if the actor was not hit in
+     * {@link Actor3D.HitMode#mesh mesh} mode. */
+    public int triangle = -1;
+    /** The barycentric weights of the three corners of the hit triangle at the hit point, only valid if {@link #triangle} is not
+     * -1. */
+    public final Vector3 barycentric = new Vector3();
+    /** The texture coordinates at the hit point, interpolated from the corners of the hit triangle. Zero if {@link #triangle} is
+     * -1 or the model has no texture coordinates. */
+    public final Vector2 uv = new Vector2();
+
+    final Ray localRay = new Ray();
+    final Matrix4 inverse = new Matrix4();
+    final IntArray stack = new IntArray(32);
+    final TriangleMesh.Hit meshHit = new TriangleMesh.Hit();
+
+    /** @return true if an actor was hit. */
+    public boolean hasHit () {
+        return actor != null;
+    }
+
+    /** Clears the result, as done before each pick. */
+    public PickResult reset () {
+        actor = null;
+        distance = Float.POSITIVE_INFINITY;
+        point.setZero();
+        triangle = -1;
+        barycentric.setZero();
+        uv.setZero();
+        return this;
+    }
+
+    @Override
+    public String toString () {
+        return actor == null ? "no hit" : actor + " at " + point + ", distance " + distance;
+    }
+}
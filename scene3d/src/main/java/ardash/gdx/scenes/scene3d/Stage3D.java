@@ -1,15 +1,26 @@
 package ardash.gdx.scenes.scene3d;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Graphics;
 import com.badlogic.gdx.InputAdapter;
 import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g3d.Environment;
 import com.badlogic.gdx.graphics.g3d.ModelBatch;
 import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
 import com.badlogic.gdx.graphics.g3d.environment.DirectionalLight;
 import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
+import com.badlogic.gdx.graphics.g3d.utils.RenderableSorter;
+import com.badlogic.gdx.math.Frustum;
+import com.badlogic.gdx.math.Quaternion;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
 import com.badlogic.gdx.math.collision.Ray;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.EventListener;
@@ -17,16 +28,117 @@ import com.badlogic.gdx.scenes.scene2d.Group;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.LongArray;
+import com.badlogic.gdx.utils.Pool.Poolable;
+import com.badlogic.gdx.utils.Pools;
 import com.badlogic.gdx.utils.SnapshotArray;
 
+import ardash.gdx.scenes.scene3d.utils.BoxIntersector;
+import ardash.gdx.scenes.scene3d.utils.DynamicBvh;
+import ardash.gdx.scenes.scene3d.utils.FrameProfiler;
+import ardash.gdx.scenes.scene3d.utils.LooseOctree;
+import ardash.gdx.scenes.scene3d.utils.RenderableCounter;
+import ardash.gdx.scenes.scene3d.utils.StateSortingRenderableSorter;
+import ardash.gdx.scenes.scene3d.utils.StaticBatch;
+import ardash.gdx.scenes.scene3d.utils.SweepAndPrune;
+
 public class Stage3D extends InputAdapter implements Disposable {
     private final ModelBatch modelBatch;
+    private final StateSortingRenderableSorter renderableSorter = new StateSortingRenderableSorter();
     private Environment environment;
 
     private Camera3D camera;
 
     private final Group3D root;
 
+    /** Bounding volume hierarchy over the world bounds of all actors except groups, updated lazily before each query. */
+    private final DynamicBvh<Actor3D> bvh = new DynamicBvh<>(64);
+    /** Actors whose world bounds changed or that were added since the hierarchy was last updated. Actors may be queued from
+     * several threads while transforms are validated in parallel, so a slot is claimed by incrementing the size. Actors that
+     * don't fit go to the overflow list, and the array grows the next time the queue is processed. */
+    private Actor3D[] proxyQueue = new Actor3D[64];
+    private final AtomicInteger proxyQueueSize = new AtomicInteger();
+    private final Array<Actor3D> proxyOverflow = new Array<>(false, 16, Actor3D.class);
+    /** The merged geometry of groups unfrozen while their transforms were validated, which may run on the threads of the
+     * {@link #setParallel(ForkJoinPool, int) parallel pool}. It is disposed on the calling thread once validation is done. */
+    private final Array<StaticBatch> staleBatches = new Array<>(false, 4, StaticBatch.class);
+    /** Loose octree over the world bounds of all actors except groups, created by the first radius or nearest query and then
+     * updated from the same queue as the hierarchy. */
+    private LooseOctree<Actor3D> octree;
+    /** Broadphase over the world bounds of the collidable actors, updated from the same queue as the hierarchy. */
+    private final SweepAndPrune<Actor3D> collisionBroadphase = new SweepAndPrune<>();
+    private final BoxIntersector boxIntersector = new BoxIntersector();
+    private boolean collisionNarrowphase;
+    /** True when an actor became collidable, so collisions must be updated even if none were found before. */
+    boolean collisionsChanged;
+    /** The overlapping pairs found by the last collision update as sorted keys, and the two actors of each pair. */
+    private LongArray contacts = new LongArray(), newContacts = new LongArray();
+    private Array<Actor3D> contactActors = new Array<>(Actor3D.class), newContactActors = new Array<>(Actor3D.class);
+    private final ActorCollector actorCollector = new ActorCollector();
+    private final RayPicker rayPicker = new RayPicker();
+    private final PickResult pickResult = new PickResult();
+    /** The result of the one pick done for each input event. */
+    private final PickResult inputPick = new PickResult();
+    private final Vector3 inputPoint = new Vector3();
+    /** The distance from the camera at which each pointer went down, touch dragged and up events are placed at that depth. */
+    private final float[] pointerDistances = new float[20];
+    private int mouseScreenX, mouseScreenY;
+    /** True once the mouse moved over the stage, from then on the actor under it is tracked. */
+    private boolean hoverTracking;
+    /** The actor under the mouse, or null. */
+    private Actor3D hoverActor;
+    private final PickResult hoverPick = new PickResult();
+    private final Vector3 hoverPoint = new Vector3();
+    /** What the last hover pick depended on, it stays valid while none of these change. */
+    private int hoverScreenX, hoverScreenY, hoverBoundsVersion;
+    private Camera hoverCamera;
+    private final float[] hoverCombined = new float[16];
+    /** The time the stage acted so far and the time of the last hover pick, in seconds. */
+    private float hoverTime, hoverPickTime = Float.NEGATIVE_INFINITY;
+    private float hoverPickInterval = 1 / 60f;
+    /** Counts the updates of the world bounds of actors, so cached picks can tell whether the scene changed. */
+    private int boundsVersion;
+    private final SnapshotArray<TouchFocus> touchFocuses = new SnapshotArray<>(true, 4, TouchFocus.class);
+    /** The actors to draw in the current frame, collected by the culling pass. */
+    private final Array<Actor3D> visibleActors = new Array<>(false, 64, Actor3D.class);
+    private final FrameProfiler profiler = new FrameProfiler();
+    private final ActionScheduler3D actionScheduler = new ActionScheduler3D();
+    private final TweenEngine3D tweens = new TweenEngine3D(this);
+    /** The number of floats of an actor's state: position, scale and rotation quaternion. */
+    static final int STATE_SIZE = 10;
+    /** The length of a simulation step in seconds, or 0 to step once per {@link #act(float)} with the frame's delta. */
+    private float fixedTimeStep;
+    private int maxSubSteps = 5;
+    /** The time not yet simulated. */
+    private float accumulator;
+    /** True while a fixed step runs, actors then have their state captured before they first change. */
+    boolean simulating;
+    /** The actors that changed during the last fixed step, with their states before the step and, while drawing, after it. */
+    private final Array<Actor3D> interpolatedActors = new Array<>(false, 16, Actor3D.class);
+    private float[] previousStates = new float[16 * STATE_SIZE], currentStates = new float[16 * STATE_SIZE];
+    private final float[] interpolatedState = new float[STATE_SIZE];
+    private final Quaternion previousRotation = new Quaternion(), currentRotation = new Quaternion();
+    /** The pool transforms are validated and actors culled on, or null to do it on the calling thread. */
+    ForkJoinPool parallelPool;
+    /** The most children of a group one task processes, larger groups are split. */
+    int parallelThreshold = 1024;
+    /** The most rays of a {@link #pickAll(Ray[], PickResult[]) batch pick} one task casts. */
+    private static final int PICK_BATCH = 16;
+    /** The tasks of the last parallel batch pick, kept so they and their pickers are reused for batches of the same size. */
+    private PickTask pickTask;
+    private final RecursiveAction validatePass = new RecursiveAction() {
+        @Override
+        protected void compute () {
+            root.validateTransform();
+        }
+    };
+    private final RecursiveAction collectPass = new RecursiveAction() {
+        @Override
+        protected void compute () {
+            root.collectVisible(camera, visibleActors);
+        }
+    };
+
     /** Creates a stage with a viewport equal to the device screen resolution. The stage
      * will use its own {@link SpriteBatch}. */
     public Stage3D() {
@@ -47,35 +159,346 @@ public class Stage3D extends InputAdapter implements Disposable {
     }
 
     public Stage3D(float width, float height, Environment environment) {
+        this(width, height, environment, null);
+    }
+
+    /** @param modelBatch the batch the stage draws with, which is disposed when the stage is disposed. Null to create one that
+     *           sorts the renderables with the {@link #getRenderableSorter() renderable sorter} of the stage. */
+    public Stage3D(float width, float height, Environment environment, ModelBatch modelBatch) {
         root = new Group3D();
         root.setStage(this);
 
-        modelBatch = new ModelBatch();
+        this.modelBatch = modelBatch != null ? modelBatch : new ModelBatch(renderableSorter);
 
         camera =  new Camera3D(width, height);
         this.environment = environment;
     }
 
+    /** Draws the stage in phases: the transforms are updated, the actors inside the camera's frustum are collected, their
+     * renderables are submitted to the model batch, which sorts and renders them. Each phase is timed if the
+     * {@link #getProfiler() profiler} is enabled. With a {@link #setFixedTimeStep(float, int) fixed time step}, the actors that
+     * changed during the last step are drawn interpolated and restored afterwards. */
     public void draw(){
         camera.update();
         if (!root.isVisible()) return;
+        final FrameProfiler profiler = this.profiler;
+        final boolean profiling = profiler.isEnabled();
+        long time = profiling ? System.nanoTime() : 0;
+
+        final boolean interpolating = fixedTimeStep > 0 && interpolatedActors.size > 0;
+        if (interpolating) interpolate(getInterpolationAlpha());
+        validateTransforms();
+        if (profiling) time = profiler.lap(FrameProfiler.TRANSFORM_TIME, time);
+
+        final Array<Actor3D> visibleActors = this.visibleActors;
+        if (parallelPool == null) {
+            root.collectVisible(camera, visibleActors);
+        } else {
+            collectPass.reinitialize();
+            parallelPool.invoke(collectPass);
+        }
+        if (profiling) time = profiler.lap(FrameProfiler.CULL_TIME, time);
+
         modelBatch.begin(camera);
     	getModelBatch().setCamera(getCamera());
+        // once per frame instead of once per actor, the render context only tracks blending of materials that ask for it
+        Gdx.gl20.glEnable(GL20.GL_BLEND);
+        Gdx.gl20.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        final Actor3D[] actors = visibleActors.items;
+        for (int i = 0, n = visibleActors.size; i < n; i++)
+            actors[i].draw(modelBatch, environment);
+        visibleActors.clear();
+        if (profiling) time = profiler.lap(FrameProfiler.SUBMIT_TIME, time);
 
-        root.draw(modelBatch, environment);
         modelBatch.end();
+        if (interpolating) restoreInterpolated();
+        if (profiling) {
+            profiler.lap(FrameProfiler.RENDER_TIME, time);
+            profiler.set(FrameProfiler.VISIBLE, root.visibleCount);
+            profiler.set(FrameProfiler.CULLED, root.culledCount);
+            profiler.set(FrameProfiler.RENDERABLES, getRenderedCount());
+            profiler.endFrame();
+        }
+    }
+
+    /** @return the number of renderables the model batch rendered in the last frame, as counted by the batch or its sorter. */
+    private int getRenderedCount () {
+        if (modelBatch instanceof RenderableCounter) return ((RenderableCounter)modelBatch).getRenderableCount();
+        final RenderableSorter sorter = modelBatch.getRenderableSorter();
+        if (sorter instanceof RenderableCounter) return ((RenderableCounter)sorter).getRenderableCount();
+        return 0;
+    }
+
+    private void validateTransforms () {
+        if (parallelPool == null) {
+            root.validateTransform();
+        } else {
+            validatePass.reinitialize();
+            parallelPool.invoke(validatePass);
+        }
+        disposeStaleBatches();
+    }
+
+    private void disposeStaleBatches () {
+        final Array<StaticBatch> staleBatches = this.staleBatches;
+        for (int i = 0; i < staleBatches.size; i++)
+            staleBatches.get(i).dispose();
+        staleBatches.clear();
+    }
+
+    /** Called by a group that was unfrozen while its transform was validated, so the GL resources of its merged geometry are
+     * released on the thread that validates the stage. */
+    void disposeLater (StaticBatch staticBatch) {
+        synchronized (staleBatches) {
+            staleBatches.add(staticBatch);
+        }
+    }
+
+    /** Validates the world transforms and culls the actors on the specified pool before the stage is drawn. Groups with more
+     * children than the threshold split them into tasks, smaller groups are processed by one task. The actors to draw are then
+     * submitted to the model batch on the calling thread, in the same order as without a pool.
+     * <p>
+     * Overrides of {@link Actor3D#validateTransform()}, {@link Actor3D#updateWorldBounds()} and
+     * {@link Actor3D#isCullable(com.badlogic.gdx.graphics.Camera)} then run concurrently for different actors and must only
+     * change the actor itself.
+     * @param pool null to do everything on the calling thread, which is the default.
+     * @param threshold the most children of a group one task processes, must be > 0. */
+    public void setParallel (ForkJoinPool pool, int threshold) {
+        if (threshold < 1) throw new IllegalArgumentException("threshold must be > 0: " + threshold);
+        parallelPool = pool;
+        parallelThreshold = threshold;
+    }
+
+    public ForkJoinPool getParallelPool () {
+        return parallelPool;
     }
 
-    /** Calls {@link #act(float)} with {@link Graphics#getDeltaTime()}. */
+    public int getParallelThreshold () {
+        return parallelThreshold;
+    }
+
+    /** Calls {@link #act(float)} with {@link Graphics#getDeltaTime()}. Without a {@link #setFixedTimeStep(float, int) fixed time
+     * step} the delta is limited to 1/30 of a second. */
     public void act () {
-        act(Math.min(Gdx.graphics.getDeltaTime(), 1 / 30f));
+        final float delta = Gdx.graphics.getDeltaTime();
+        act(fixedTimeStep > 0 ? delta : Math.min(delta, 1 / 30f));
+    }
+
+    /** Makes {@link #act(float)} simulate in steps of a fixed length, so the results don't depend on the frame rate. The delta
+     * of each frame is added to an accumulator, from which as many whole steps are taken as fit, at most maxSubSteps per frame.
+     * Time beyond that is dropped, so the cost of a frame is bounded and the simulation slows down instead of stalling under
+     * load.
+     * <p>
+     * {@link #draw()} interpolates the actors that changed during the last step between their state before and after it, by
+     * the fraction of a step left in the accumulator. Only the position, scale and rotation set through the actor's setters are
+     * interpolated.
+     * @param timeStep the length of a step in seconds, or 0 to step once per frame with its delta, which is the default.
+     * @param maxSubSteps the most steps taken in one frame. */
+    public void setFixedTimeStep (float timeStep, int maxSubSteps) {
+        if (timeStep < 0) throw new IllegalArgumentException("timeStep can't be < 0: " + timeStep);
+        if (maxSubSteps < 1) throw new IllegalArgumentException("maxSubSteps must be > 0: " + maxSubSteps);
+        fixedTimeStep = timeStep;
+        this.maxSubSteps = maxSubSteps;
+        accumulator = 0;
+        clearInterpolation();
     }
 
-    /** Calls the {@link Actor#act(float)} method on each actor in the stage. Typically called each frame. This method also fires
-     * enter and exit events.
+    public float getFixedTimeStep () {
+        return fixedTimeStep;
+    }
+
+    public int getMaxSubSteps () {
+        return maxSubSteps;
+    }
+
+    /** @return the fraction of a fixed step between the last simulated state and the time of the current frame, 1 without a
+     * fixed time step. */
+    public float getInterpolationAlpha () {
+        return fixedTimeStep > 0 ? accumulator / fixedTimeStep : 1;
+    }
+
+    /** Acts on the actions of all actors in the stage with the {@link #getActionScheduler() action scheduler}, then calls the
+     * {@link Actor#act(float)} method on each actor in the stage that must act. The {@link #getTweens() tweens} are stepped in
+     * between. Typically called each frame. This method also fires enter and exit events, and {@link CollisionEvent3D collision
+     * events} for the {@link Actor3D#setCollidable(boolean) collidable} actors.
+     * <p>
+     * With a {@link #setFixedTimeStep(float, int) fixed time step}, all of this happens once per step that fits into the time
+     * accumulated so far, which may be none.
      * @param delta Time in seconds since the last frame. */
     public void act(float delta) {
+        final boolean profiling = profiler.isEnabled();
+        final long start = profiling ? System.nanoTime() : 0;
+        final float timeStep = fixedTimeStep;
+        if (timeStep > 0) {
+            accumulator += delta;
+            for (int steps = 0; accumulator >= timeStep && steps < maxSubSteps; steps++) {
+                clearInterpolation();
+                simulating = true;
+                try {
+                    step(timeStep);
+                } finally {
+                    simulating = false;
+                }
+                accumulator -= timeStep;
+            }
+            // drop the whole steps that didn't fit, keep the fraction for interpolation
+            if (accumulator >= timeStep) accumulator %= timeStep;
+        } else {
+            step(delta);
+        }
+        hoverTime += delta;
+        if (hoverTracking) updateHover();
+        if (!profiling) return;
+        profiler.lap(FrameProfiler.ACT_TIME, start);
+        profiler.set(FrameProfiler.ACTORS, 0);
+        profiler.set(FrameProfiler.ACTIONS, actionScheduler.size() + tweens.size());
+        countActors(root);
+    }
+
+    private void step (float delta) {
+        actionScheduler.act(delta);
+        tweens.act(delta);
         root.act(delta);
+        if (collisionsChanged || collisionBroadphase.size() > 0 || contacts.size > 0) updateCollisions();
+    }
+
+    /** Called by an actor before its position, scale or rotation first changes during a fixed step. */
+    void captureState (Actor3D actor) {
+        final int index = interpolatedActors.size;
+        if ((index + 1) * STATE_SIZE > previousStates.length) {
+            previousStates = Arrays.copyOf(previousStates, previousStates.length * 2);
+            currentStates = new float[previousStates.length];
+        }
+        actor.getState(previousStates, index * STATE_SIZE);
+        actor.interpolationIndex = index;
+        interpolatedActors.add(actor);
+    }
+
+    private void clearInterpolation () {
+        final Actor3D[] actors = interpolatedActors.items;
+        for (int i = 0, n = interpolatedActors.size; i < n; i++)
+            actors[i].interpolationIndex = -1;
+        interpolatedActors.clear();
+    }
+
+    /** Sets the actors that changed during the last fixed step to their states interpolated by alpha, keeping the simulated
+     * states to {@link #restoreInterpolated()} them after drawing. */
+    private void interpolate (float alpha) {
+        final Actor3D[] actors = interpolatedActors.items;
+        final float[] previous = previousStates, current = currentStates, state = interpolatedState;
+        for (int i = 0, n = interpolatedActors.size, o = 0; i < n; i++, o += STATE_SIZE) {
+            final Actor3D actor = actors[i];
+            if (actor.getStage() != this) continue;
+            actor.getState(current, o);
+            for (int j = 0; j < 6; j++)
+                state[j] = previous[o + j] + (current[o + j] - previous[o + j]) * alpha;
+            final Quaternion rotation = previousRotation.set(previous[o + 6], previous[o + 7], previous[o + 8], previous[o + 9])
+                .slerp(currentRotation.set(current[o + 6], current[o + 7], current[o + 8], current[o + 9]), alpha);
+            state[6] = rotation.x;
+            state[7] = rotation.y;
+            state[8] = rotation.z;
+            state[9] = rotation.w;
+            actor.setState(state, 0);
+        }
+    }
+
+    private void restoreInterpolated () {
+        final Actor3D[] actors = interpolatedActors.items;
+        for (int i = 0, n = interpolatedActors.size; i < n; i++)
+            if (actors[i].getStage() == this) actors[i].setState(currentStates, i * STATE_SIZE);
+    }
+
+    /** If true, pairs of collidable actors whose world bounds overlap are also tested with their bounding boxes oriented by
+     * their world transforms, which removes most false contacts of rotated actors. Default is false. */
+    public void setCollisionNarrowphase (boolean narrowphase) {
+        collisionNarrowphase = narrowphase;
+    }
+
+    public boolean getCollisionNarrowphase () {
+        return collisionNarrowphase;
+    }
+
+    /** Finds the overlapping pairs of collidable actors and fires begin, stay and end events on both actors of each pair that
+     * started, kept or stopped overlapping since the last call. */
+    private void updateCollisions () {
+        collisionsChanged = false;
+        validate();
+        final SweepAndPrune<Actor3D> broadphase = collisionBroadphase;
+        final LongArray pairs = newContacts;
+        final Array<Actor3D> pairActors = newContactActors;
+        pairs.clear();
+        pairActors.clear();
+        broadphase.findPairs(pairs);
+        int count = 0;
+        for (int i = 0; i < pairs.size; i++) {
+            final long key = pairs.get(i);
+            final Actor3D a = broadphase.getUserData(SweepAndPrune.getFirst(key));
+            final Actor3D b = broadphase.getUserData(SweepAndPrune.getSecond(key));
+            if (collisionNarrowphase
+                && !boxIntersector.overlaps(a.getBoundingBox(), a.transform, b.getBoundingBox(), b.transform)) continue;
+            pairs.items[count++] = key;
+            pairActors.add(a);
+            pairActors.add(b);
+        }
+        pairs.size = count;
+
+        // swap before firing, so listeners that act on the stage see the new contacts
+        final LongArray old = contacts;
+        final Array<Actor3D> oldActors = contactActors;
+        contacts = pairs;
+        contactActors = pairActors;
+        newContacts = old;
+        newContactActors = oldActors;
+
+        // both lists are sorted, so a merge finds the pairs that began, stayed and ended
+        int i = 0, j = 0;
+        while (i < old.size || j < pairs.size) {
+            final long oldKey = i < old.size ? old.get(i) : Long.MAX_VALUE;
+            final long newKey = j < pairs.size ? pairs.get(j) : Long.MAX_VALUE;
+            if (oldKey < newKey) {
+                fireCollision(CollisionEvent3D.Type.end, oldActors.get(i * 2), oldActors.get(i * 2 + 1));
+                i++;
+            } else if (newKey < oldKey) {
+                fireCollision(CollisionEvent3D.Type.begin, pairActors.get(j * 2), pairActors.get(j * 2 + 1));
+                j++;
+            } else {
+                // an id may have been reused by another actor in between
+                final Actor3D a = pairActors.get(j * 2), b = pairActors.get(j * 2 + 1);
+                if (oldActors.get(i * 2) == a && oldActors.get(i * 2 + 1) == b) {
+                    fireCollision(CollisionEvent3D.Type.stay, a, b);
+                } else {
+                    fireCollision(CollisionEvent3D.Type.end, oldActors.get(i * 2), oldActors.get(i * 2 + 1));
+                    fireCollision(CollisionEvent3D.Type.begin, a, b);
+                }
+                i++;
+                j++;
+            }
+        }
+        old.clear();
+        oldActors.clear();
+    }
+
+    private void fireCollision (CollisionEvent3D.Type type, Actor3D a, Actor3D b) {
+        fireCollisionEvent(type, a, b);
+        fireCollisionEvent(type, b, a);
+    }
+
+    private void fireCollisionEvent (CollisionEvent3D.Type type, Actor3D target, Actor3D related) {
+        final CollisionEvent3D event = Pools.obtain(CollisionEvent3D.class);
+        event.setStage(this);
+        event.setType(type);
+        event.setRelatedActor(related);
+        target.fire(event);
+        Pools.free(event);
+    }
+
+    private void countActors(Group3D group) {
+        final SnapshotArray<Actor3D> children = group.getChildren();
+        profiler.add(FrameProfiler.ACTORS, children.size);
+        for (int i = 0, n = children.size; i < n; i++) {
+            final Actor3D child = children.get(i);
+            if (child instanceof Group3D) countActors((Group3D)child);
+        }
     }
 
     /** Adds an actor to the root of the stage.
@@ -109,8 +532,9 @@ public class Stage3D extends InputAdapter implements Disposable {
         return root.removeListener(listener);
     }
 
-    /** Removes the root's children, actions, and listeners. */
+    /** Removes the touch focus and the root's children, actions, and listeners. */
     public void clear () {
+        cancelTouchFocus();
         root.clear();
     }
 
@@ -118,6 +542,32 @@ public class Stage3D extends InputAdapter implements Disposable {
         return modelBatch;
     }
 
+    /** Returns the sorter that orders the renderables of each frame by GL state, it also reports how many state changes the
+     * sorting avoided in the last frame. It is only used by the model batch the stage creates when none is passed to the
+     * constructor. */
+    public StateSortingRenderableSorter getRenderableSorter () {
+        return renderableSorter;
+    }
+
+    /** Returns the profiler that records the time spent in each phase of {@link #act(float)} and {@link #draw()}, and the number
+     * of actors, actions and renderables of each frame. The renderables are counted by the model batch or its sorter if either
+     * is a {@link RenderableCounter}, which the batch the stage creates is, otherwise they are recorded as 0. It is disabled by default. */
+    public FrameProfiler getProfiler () {
+        return profiler;
+    }
+
+    /** Returns the scheduler that acts on the actions of all actors in the stage, in the order of their
+     * {@link Action3D#setPriority(int) priorities}. */
+    public ActionScheduler3D getActionScheduler () {
+        return actionScheduler;
+    }
+
+    /** Returns the tweens that move, scale and rotate actors of this stage in bulk, they are stepped by {@link #act(float)}. The
+     * tweens of an actor are dropped once it has left the stage. */
+    public TweenEngine3D getTweens () {
+        return tweens;
+    }
+
     public Camera3D getCamera () {
         return camera;
     }
@@ -141,17 +591,9 @@ public class Stage3D extends InputAdapter implements Disposable {
         return environment;
     }
     
+    /** Returns the nearest visible actor under the specified screen coordinates, or null. */
     public Actor3D getObject(int screenX, int screenY) {
-         Actor3D temp = null;
-         SnapshotArray<Actor3D> children = root.getChildren();
-         Actor3D[] actors = children.begin();
-         for (int i = 0, n = children.size; i < n; i++){
-             temp = hit(screenX, screenY, actors[i]);
-             if (actors[i] instanceof Group3D)
-                 temp = hit(screenX, screenY, (Group3D)actors[i]);
-         }
-         children.end();
-         return temp;
+        return hit(screenX, screenY, root);
     }
     
     public Actor3D hit(int screenX, int screenY, Actor3D actor3D) {
@@ -163,17 +605,601 @@ public class Stage3D extends InputAdapter implements Disposable {
         return null;
     }
     
+    /** Returns the nearest visible actor in the specified group under the specified screen coordinates, or null. */
     public Actor3D hit(int screenX, int screenY, Group3D group3d) {
-         Actor3D temp = null;
-         SnapshotArray<Actor3D> children = group3d.getChildren();
-         Actor3D[] actors = children.begin();
-         for (int i = 0, n = children.size; i < n; i++){
-             temp = hit(screenX, screenY, actors[i]);
-             if (actors[i] instanceof Group3D)
-                 temp = hit(screenX, screenY, (Group3D)actors[i]);
-         }
-         children.end();
-         return temp;
+        return pick(camera.getPickRay(screenX, screenY), group3d, pickResult).actor;
+    }
+
+    /** Finds the nearest visible actor under the specified screen coordinates.
+     * @return the specified result. */
+    public PickResult pick(int screenX, int screenY, PickResult result) {
+        return pick(camera.getPickRay(screenX, screenY), root, result);
+    }
+
+    /** Finds the nearest visible actor in the specified group that is hit by the ray. Only actors whose bounds are near the ray
+     * are tested, each as precise as its {@link Actor3D#setHitMode(Actor3D.HitMode) hit mode} asks for.
+     * @param ray the ray in world space, its direction must be normalized.
+     * @return the specified result. */
+    public PickResult pick(Ray ray, Group3D group, PickResult result) {
+        validate();
+        result.reset();
+        final RayPicker picker = rayPicker;
+        picker.group = group;
+        picker.result = result;
+        bvh.raycast(ray, camera.far, picker);
+        picker.group = null;
+        picker.result = null;
+        return result;
+    }
+
+    /** Picks the actor under the screen coordinates and fires a touch down event on it, or on the root if no actor is hit.
+     * @return true if the event was {@link Event3D#isHandled() handled}. */
+    @Override
+    public boolean touchDown (int screenX, int screenY, int pointer, int button) {
+        final Actor3D target = pickInput(screenX, screenY);
+        if (pointer >= 0 && pointer < pointerDistances.length)
+            pointerDistances[pointer] = inputPick.hasHit() ? inputPick.distance : 0;
+        final InputEvent3D event = obtainInputEvent(InputEvent3D.Type.touchDown, pointer, button);
+        target.fire(event);
+        return freeInputEvent(event);
+    }
+
+    /** Fires a touch dragged event on the listeners that have touch focus for the pointer, no actor is picked.
+     * @return true if the event was {@link Event3D#isHandled() handled}. */
+    @Override
+    public boolean touchDragged (int screenX, int screenY, int pointer) {
+        mouseScreenX = screenX;
+        mouseScreenY = screenY;
+        if (touchFocuses.size == 0) return false;
+        setInputPoint(screenX, screenY, pointer);
+        final InputEvent3D event = obtainInputEvent(InputEvent3D.Type.touchDragged, pointer, -1);
+        final SnapshotArray<TouchFocus> touchFocuses = this.touchFocuses;
+        final TouchFocus[] focuses = touchFocuses.begin();
+        for (int i = 0, n = touchFocuses.size; i < n; i++) {
+            final TouchFocus focus = focuses[i];
+            if (focus.pointer != pointer) continue;
+            if (!touchFocuses.contains(focus, true)) continue; // removed by an earlier listener
+            fireTouchFocus(event, focus);
+        }
+        touchFocuses.end();
+        return freeInputEvent(event);
+    }
+
+    /** Fires a touch up event on the listeners that have touch focus for the pointer and button and removes their focus, no actor
+     * is picked.
+     * @return true if the event was {@link Event3D#isHandled() handled}. */
+    @Override
+    public boolean touchUp (int screenX, int screenY, int pointer, int button) {
+        if (touchFocuses.size == 0) return false;
+        setInputPoint(screenX, screenY, pointer);
+        final InputEvent3D event = obtainInputEvent(InputEvent3D.Type.touchUp, pointer, button);
+        final SnapshotArray<TouchFocus> touchFocuses = this.touchFocuses;
+        final TouchFocus[] focuses = touchFocuses.begin();
+        for (int i = 0, n = touchFocuses.size; i < n; i++) {
+            final TouchFocus focus = focuses[i];
+            if (focus.pointer != pointer || focus.button != button) continue;
+            if (!touchFocuses.removeValue(focus, true)) continue; // removed by an earlier listener
+            fireTouchFocus(event, focus);
+            Pools.free(focus);
+        }
+        touchFocuses.end();
+        return freeInputEvent(event);
+    }
+
+    /** Updates the actor under the mouse, firing exit and enter events if it changed, then fires a mouse moved event on it, or on
+     * the root if there is none. The actor may be up to one {@link #setHoverPickRate(float) hover pick} old.
+     * @return true if the event was {@link Event3D#isHandled() handled}. */
+    @Override
+    public boolean mouseMoved (int screenX, int screenY) {
+        mouseScreenX = screenX;
+        mouseScreenY = screenY;
+        hoverTracking = true;
+        final Actor3D target = updateHover();
+        inputPoint.set(hoverPoint);
+        final InputEvent3D event = obtainInputEvent(InputEvent3D.Type.mouseMoved, -1, -1);
+        target.fire(event);
+        return freeInputEvent(event);
+    }
+
+    /** Fires a scrolled event on the actor under the mouse, or on the root if there is none.
+     * @return true if the event was {@link Event3D#isHandled() handled}. */
+    @Override
+    public boolean scrolled (int amount) {
+        final Actor3D target = updateHover();
+        inputPoint.set(hoverPoint);
+        final InputEvent3D event = obtainInputEvent(InputEvent3D.Type.scrolled, -1, -1);
+        event.setScrollAmount(amount);
+        target.fire(event);
+        return freeInputEvent(event);
+    }
+
+    /** Limits how often the actor under the mouse is picked again, while the mouse moves or the scene changes under it. Mouse
+     * events in between use the last pick. A pick is only repeated when the mouse, the camera or the bounds of any actor changed
+     * since the last one. Default is 60.
+     * @param picksPerSecond the most picks per second of stage time, or 0 for no limit. */
+    public void setHoverPickRate (float picksPerSecond) {
+        if (picksPerSecond < 0) throw new IllegalArgumentException("picksPerSecond can't be < 0: " + picksPerSecond);
+        hoverPickInterval = picksPerSecond == 0 ? 0 : 1 / picksPerSecond;
+    }
+
+    public float getHoverPickRate () {
+        return hoverPickInterval == 0 ? 0 : 1 / hoverPickInterval;
+    }
+
+    /** @return the actor under the mouse as of the last hover pick, or null. */
+    public Actor3D getHoverActor () {
+        return hoverActor;
+    }
+
+    /** Picks the actor under the mouse unless the last pick is still valid or the pick rate is exceeded, and fires exit and enter
+     * events if it changed.
+     * @return the actor under the mouse, or the root. */
+    private Actor3D updateHover () {
+        final Actor3D previous = hoverActor;
+        if (previous != null && previous.getStage() != this) {
+            hoverActor = null;
+            fireHoverEvent(InputEvent3D.Type.exit, previous, null);
+        }
+        if (!isHoverPickValid() && hoverTime - hoverPickTime >= hoverPickInterval) {
+            final Ray ray = camera.getPickRay(mouseScreenX, mouseScreenY);
+            final PickResult result = pick(ray, root, hoverPick);
+            hoverPoint.set(result.hasHit() ? result.point : ray.origin);
+            hoverPickTime = hoverTime;
+            hoverScreenX = mouseScreenX;
+            hoverScreenY = mouseScreenY;
+            hoverBoundsVersion = boundsVersion;
+            hoverCamera = camera;
+            System.arraycopy(camera.combined.val, 0, hoverCombined, 0, 16);
+
+            final Actor3D over = result.actor;
+            final Actor3D old = hoverActor;
+            if (over != old) {
+                hoverActor = over;
+                if (old != null) fireHoverEvent(InputEvent3D.Type.exit, old, over);
+                if (over != null) fireHoverEvent(InputEvent3D.Type.enter, over, old);
+            }
+        }
+        return hoverActor != null ? hoverActor : root;
+    }
+
+    /** @return true if neither the mouse position, the camera nor the bounds of any actor changed since the last hover pick. */
+    private boolean isHoverPickValid () {
+        if (hoverCamera != camera || hoverScreenX != mouseScreenX || hoverScreenY != mouseScreenY) return false;
+        // the pick validates the stage, so the bounds are compared as of the next pick
+        validate();
+        if (hoverBoundsVersion != boundsVersion) return false;
+        final float[] combined = camera.combined.val, cached = hoverCombined;
+        for (int i = 0; i < 16; i++)
+            if (combined[i] != cached[i]) return false;
+        return true;
+    }
+
+    private void fireHoverEvent (InputEvent3D.Type type, Actor3D target, Actor3D related) {
+        inputPoint.set(hoverPoint);
+        final InputEvent3D event = obtainInputEvent(type, -1, -1);
+        event.setRelatedActor(related);
+        target.fire(event);
+        Pools.free(event);
+    }
+
+    /** Picks once for an input event and sets the input point to the hit point, or to the origin of the pick ray.
+     * @return the actor hit, or the root. */
+    private Actor3D pickInput (int screenX, int screenY) {
+        final Ray ray = camera.getPickRay(screenX, screenY);
+        final PickResult result = pick(ray, root, inputPick);
+        inputPoint.set(result.hasHit() ? result.point : ray.origin);
+        return result.hasHit() ? result.actor : root;
+    }
+
+    /** Sets the input point on the pick ray, at the distance from the camera at which the pointer went down. */
+    private void setInputPoint (int screenX, int screenY, int pointer) {
+        final float distance = pointer >= 0 && pointer < pointerDistances.length ? pointerDistances[pointer] : 0;
+        camera.getPickRay(screenX, screenY).getEndPoint(inputPoint, distance);
+    }
+
+    private InputEvent3D obtainInputEvent (InputEvent3D.Type type, int pointer, int button) {
+        final InputEvent3D event = Pools.obtain(InputEvent3D.class);
+        event.setStage(this);
+        event.setType(type);
+        event.setStageX(inputPoint.x);
+        event.setStageY(inputPoint.y);
+        event.setStageZ(inputPoint.z);
+        event.setPointer(pointer);
+        event.setButton(button);
+        return event;
+    }
+
+    /** @return true if the event was handled. */
+    private static boolean freeInputEvent (InputEvent3D event) {
+        final boolean handled = event.isHandled();
+        Pools.free(event);
+        return handled;
+    }
+
+    private static void fireTouchFocus (InputEvent3D event, TouchFocus focus) {
+        event.setTarget(focus.target);
+        event.setListenerActor(focus.listenerActor);
+        if (focus.listener.handle(event)) event.handle();
+    }
+
+    /** Adds the listener to be notified for all touchDragged and touchUp events for the specified pointer and button. Touch focus
+     * is added automatically when true is returned from {@link InputListener3D#touchDown(InputEvent3D, float, float, float, int,
+     * int) touchDown}. The specified actors will be used as the {@link Event3D#getListenerActor() listener actor} and
+     * {@link Event3D#getTarget() target} for the touchDragged and touchUp events. */
+    public void addTouchFocus (Event3DListener listener, Actor3D listenerActor, Actor3D target, int pointer, int button) {
+        final TouchFocus focus = Pools.obtain(TouchFocus.class);
+        focus.listenerActor = listenerActor;
+        focus.target = target;
+        focus.listener = listener;
+        focus.pointer = pointer;
+        focus.button = button;
+        touchFocuses.add(focus);
+    }
+
+    /** Removes touch focus for the specified listener, pointer, and button. Note the listener will not receive a touchUp event
+     * when this method is used. */
+    public void removeTouchFocus (Event3DListener listener, Actor3D listenerActor, Actor3D target, int pointer, int button) {
+        final SnapshotArray<TouchFocus> touchFocuses = this.touchFocuses;
+        for (int i = touchFocuses.size - 1; i >= 0; i--) {
+            final TouchFocus focus = touchFocuses.get(i);
+            if (focus.listener == listener && focus.listenerActor == listenerActor && focus.target == target
+                && focus.pointer == pointer && focus.button == button) {
+                touchFocuses.removeIndex(i);
+                Pools.free(focus);
+            }
+        }
+    }
+
+    /** Sends a touchUp event to all listeners that are registered to receive touchDragged and touchUp events and removes their
+     * touch focus. The event's {@link InputEvent3D#isTouchFocusCancel()} returns true. */
+    public void cancelTouchFocus () {
+        cancelTouchFocus(null);
+    }
+
+    /** Like {@link #cancelTouchFocus()}, but only for the touch focus whose listener actor is the specified actor.
+     * @param listenerActor May be null to cancel all touch focus. */
+    public void cancelTouchFocus (Actor3D listenerActor) {
+        cancelTouchFocus(listenerActor, false);
+    }
+
+    /** Called by a group before it removes the actor, cancels the touch focus whose listener actor or target is the actor or one
+     * of its descendants, so they receive no more events and are not referenced by the stage. */
+    void cancelTouchFocusBelow (Actor3D actor) {
+        cancelTouchFocus(actor, true);
+    }
+
+    private void cancelTouchFocus (Actor3D actor, boolean descendants) {
+        final SnapshotArray<TouchFocus> touchFocuses = this.touchFocuses;
+        if (touchFocuses.size == 0) return;
+        final InputEvent3D event = Pools.obtain(InputEvent3D.class);
+        event.setStage(this);
+        event.setType(InputEvent3D.Type.touchUp);
+        event.setStageX(Integer.MIN_VALUE);
+        event.setStageY(Integer.MIN_VALUE);
+        event.setStageZ(Integer.MIN_VALUE);
+
+        // the listeners may remove focus while they are notified, so work on a snapshot
+        final TouchFocus[] focuses = touchFocuses.begin();
+        for (int i = 0, n = touchFocuses.size; i < n; i++) {
+            final TouchFocus focus = focuses[i];
+            if (descendants) {
+                if (!focus.listenerActor.isDescendantOf(actor) && (focus.target == null || !focus.target.isDescendantOf(actor)))
+                    continue;
+            } else if (actor != null && focus.listenerActor != actor) {
+                continue;
+            }
+            if (!touchFocuses.removeValue(focus, true)) continue; // removed by an earlier listener
+            event.setPointer(focus.pointer);
+            event.setButton(focus.button);
+            fireTouchFocus(event, focus);
+            Pools.free(focus);
+        }
+        touchFocuses.end();
+        Pools.free(event);
+    }
+
+    /** Finds the nearest visible actor under each pair of screen coordinates. The rays are cast against the bounding volume
+     * hierarchy, in parallel on the {@link #setParallel(ForkJoinPool, int) parallel pool} if the stage has one.
+     * @param screenCoords x and y of each ray, in screen coordinates.
+     * @param out a result for each ray, its {@link PickResult#ray} is set to the pick ray. */
+    public void pickAll (float[] screenCoords, PickResult[] out) {
+        final int count = screenCoords.length / 2;
+        if (out.length < count)
+            throw new IllegalArgumentException("out must have a result for each ray: " + out.length + " < " + count);
+        for (int i = 0; i < count; i++)
+            out[i].ray.set(camera.getPickRay(screenCoords[i * 2], screenCoords[i * 2 + 1]));
+        pickAll(out, count, camera.far);
+    }
+
+    /** Like {@link #pickAll(Ray[], float, PickResult[])}, without a limit on the distance. */
+    public void pickAll (Ray[] rays, PickResult[] out) {
+        pickAll(rays, Float.POSITIVE_INFINITY, out);
+    }
+
+    /** Finds the nearest visible actor hit by each ray, see {@link #pickAll(float[], PickResult[])}. Unlike picks through the
+     * camera, the rays are not limited to the camera's far plane, so they suit queries such as line of sight.
+     * @param rays the rays in world space, their directions must be normalized.
+     * @param maxDistance actors further away from the origin of a ray are not hit.
+     * @param out a result for each ray, its {@link PickResult#ray} is set to a copy of the ray. */
+    public void pickAll (Ray[] rays, float maxDistance, PickResult[] out) {
+        final int count = rays.length;
+        if (out.length < count)
+            throw new IllegalArgumentException("out must have a result for each ray: " + out.length + " < " + count);
+        for (int i = 0; i < count; i++)
+            out[i].ray.set(rays[i]);
+        pickAll(out, count, maxDistance);
+    }
+
+    private void pickAll (PickResult[] results, int count, float maxDistance) {
+        validate();
+        if (parallelPool == null || count <= PICK_BATCH) {
+            pickRange(results, 0, count, maxDistance, rayPicker);
+            return;
+        }
+        PickTask task = pickTask;
+        if (task == null || task.to != count) pickTask = task = new PickTask(0, count);
+        task.prepare(results, maxDistance);
+        parallelPool.invoke(task);
+    }
+
+    /** Casts the rays of the results from index from to index to, the picker must not be used by another thread. */
+    private void pickRange (PickResult[] results, int from, int to, float maxDistance, RayPicker picker) {
+        picker.group = root;
+        for (int i = from; i < to; i++) {
+            final PickResult result = results[i];
+            result.reset();
+            picker.result = result;
+            bvh.raycast(result.ray, maxDistance, picker, result.stack);
+        }
+        picker.group = null;
+        picker.result = null;
+    }
+
+    /** Picks a range of a batch, splitting it into halves until each task casts at most {@link #PICK_BATCH} rays with a picker
+     * of its own. The tasks are kept by the stage and reused for batches of the same size, like the tasks of
+     * {@link Group3D#collectVisible(Camera, Array)}. */
+    private class PickTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int from, to;
+        /** The halves of the range, or null if this task casts the rays of the range itself. */
+        private final PickTask left, right;
+        /** The picker of a task without halves. */
+        private final RayPicker picker;
+        private PickResult[] results;
+        private float maxDistance;
+
+        PickTask (int from, int to) {
+            this.from = from;
+            this.to = to;
+            if (to - from <= PICK_BATCH) {
+                left = right = null;
+                picker = new RayPicker();
+            } else {
+                final int middle = (from + to) >>> 1;
+                left = new PickTask(from, middle);
+                right = new PickTask(middle, to);
+                picker = null;
+            }
+        }
+
+        /** Readies the tasks of the range to be invoked again. */
+        void prepare (PickResult[] results, float maxDistance) {
+            reinitialize();
+            this.results = results;
+            this.maxDistance = maxDistance;
+            if (left != null) {
+                left.prepare(results, maxDistance);
+                right.prepare(results, maxDistance);
+            }
+        }
+
+        @Override
+        protected void compute () {
+            if (left == null)
+                pickRange(results, from, to, maxDistance, picker);
+            else
+                invokeAll(left, right);
+            results = null;
+        }
+    }
+
+    /** Adds the actors whose bounds are at least partially inside the frustum to the specified array. Groups are not added.
+     * @return the specified array. */
+    public Array<Actor3D> getActors (Frustum frustum, Array<Actor3D> out) {
+        validate();
+        actorCollector.out = out;
+        bvh.query(frustum, actorCollector);
+        actorCollector.out = null;
+        return out;
+    }
+
+    /** Adds the actors whose bounds overlap the specified box to the specified array. Groups are not added.
+     * @return the specified array. */
+    public Array<Actor3D> getActors (BoundingBox box, Array<Actor3D> out) {
+        validate();
+        actorCollector.out = out;
+        bvh.query(box, actorCollector);
+        actorCollector.out = null;
+        return out;
+    }
+
+    /** Adds the actors whose bounds are within the radius of the point to the specified array. Groups are not added.
+     * @return the specified array. */
+    public Array<Actor3D> getActors (float x, float y, float z, float radius, Array<Actor3D> out) {
+        getOctree().query(x, y, z, radius, out);
+        return out;
+    }
+
+    /** Adds the k actors whose bounds are nearest to the point to the specified array, nearest first. Groups are not added.
+     * @return the specified array. */
+    public Array<Actor3D> getNearestActors (float x, float y, float z, int k, Array<Actor3D> out) {
+        getOctree().nearest(x, y, z, k, Float.POSITIVE_INFINITY, out);
+        return out;
+    }
+
+    /** Returns the loose octree over the world bounds of the actors in this stage, brought up to date. It is created on first use
+     * with a root cell enclosing the actors at that time, see {@link #createOctree(float, float, float, float, int)} to choose
+     * the extent. */
+    public LooseOctree<Actor3D> getOctree () {
+        if (octree != null) {
+            validate();
+            return octree;
+        }
+        validate();
+        final BoundingBox bounds = root.getWorldBounds();
+        if (bounds.isValid()) {
+            final float halfSize = Math.max(Math.max(bounds.getWidth(), bounds.getHeight()), bounds.getDepth()) * 0.5f;
+            createOctree(bounds.getCenterX(), bounds.getCenterY(), bounds.getCenterZ(), Math.max(1, halfSize), 8);
+        } else {
+            createOctree(0, 0, 0, 1, 8);
+        }
+        return octree;
+    }
+
+    /** Replaces the octree with one of the specified extent, filled with the actors of this stage. Actors outside of the root
+     * cell are still found, but are tested by every query.
+     * @param maxDepth the depth of the smallest cells, each level halves the cell size. */
+    public void createOctree (float centerX, float centerY, float centerZ, float halfSize, int maxDepth) {
+        validate();
+        octree = new LooseOctree<>(centerX, centerY, centerZ, halfSize, maxDepth);
+        addToOctree(root);
+    }
+
+    private void addToOctree (Group3D group) {
+        final SnapshotArray<Actor3D> children = group.getChildren();
+        for (int i = 0, n = children.size; i < n; i++) {
+            final Actor3D child = children.get(i);
+            if (child instanceof Group3D)
+                addToOctree((Group3D)child);
+            else
+                child.octreeId = child.proxyId == DynamicBvh.NULL ? LooseOctree.NULL : octree.add(child.worldBounds, child);
+        }
+    }
+
+    /** Returns the bounding volume hierarchy over the world bounds of the actors in this stage. Call {@link #validate()} before
+     * querying it directly. */
+    public DynamicBvh<Actor3D> getBoundingVolumeHierarchy () {
+        return bvh;
+    }
+
+    /** Brings the world transforms of all actors and the bounding volume hierarchy up to date. This happens automatically
+     * before queries and when the stage is drawn. */
+    public void validate () {
+        validateTransforms();
+        final Actor3D[] queue = proxyQueue;
+        final int size = proxyQueueSize.get();
+        for (int i = 0, n = Math.min(size, queue.length); i < n; i++) {
+            updateProxy(queue[i]);
+            queue[i] = null;
+        }
+        final Array<Actor3D> overflow = proxyOverflow;
+        if (size > 0) boundsVersion++;
+        for (int i = 0; i < overflow.size; i++)
+            updateProxy(overflow.get(i));
+        overflow.clear();
+        if (size > queue.length) proxyQueue = new Actor3D[Math.max(size, queue.length * 2)];
+        proxyQueueSize.set(0);
+    }
+
+    private void updateProxy (Actor3D actor) {
+        actor.proxyQueued = false;
+        if (actor.getStage() != this || actor instanceof Group3D) return;
+        if (actor.unbounded) {
+            actorRemoved(actor);
+            return;
+        }
+        if (actor.proxyId == DynamicBvh.NULL) {
+            actor.proxyId = bvh.createProxy(actor.worldBounds, actor);
+            if (octree != null) actor.octreeId = octree.add(actor.worldBounds, actor);
+        } else {
+            bvh.moveProxy(actor.proxyId, actor.worldBounds);
+            if (octree != null) octree.update(actor.octreeId, actor.worldBounds);
+        }
+        if (!actor.isCollidable()) {
+            if (actor.collisionId != SweepAndPrune.NULL) {
+                collisionBroadphase.remove(actor.collisionId);
+                actor.collisionId = SweepAndPrune.NULL;
+            }
+        } else if (actor.collisionId == SweepAndPrune.NULL) {
+            actor.collisionId = collisionBroadphase.add(actor.worldBounds, actor);
+        } else {
+            collisionBroadphase.update(actor.collisionId, actor.worldBounds);
+        }
+    }
+
+    /** Called by an actor that was added to this stage or whose world bounds changed. Safe to call from the threads of the
+     * {@link #setParallel(ForkJoinPool, int) parallel pool} for different actors. */
+    void boundsChanged (Actor3D actor) {
+        if (actor.proxyQueued) return;
+        actor.proxyQueued = true;
+        final int index = proxyQueueSize.getAndIncrement();
+        final Actor3D[] queue = proxyQueue;
+        if (index < queue.length) {
+            queue[index] = actor;
+        } else {
+            synchronized (proxyOverflow) {
+                proxyOverflow.add(actor);
+            }
+        }
+    }
+
+    /** Called by an actor that is no longer in this stage. */
+    void actorRemoved (Actor3D actor) {
+        boundsVersion++;
+        if (actor.collisionId != SweepAndPrune.NULL) {
+            collisionBroadphase.remove(actor.collisionId);
+            actor.collisionId = SweepAndPrune.NULL;
+        }
+        if (actor.octreeId != LooseOctree.NULL) {
+            octree.remove(actor.octreeId);
+            actor.octreeId = LooseOctree.NULL;
+        }
+        if (actor.proxyId == DynamicBvh.NULL) return;
+        bvh.destroyProxy(actor.proxyId);
+        actor.proxyId = DynamicBvh.NULL;
+    }
+
+    /** Internal class for managing touch focus. Public only for GWT.
+     * @see Stage3D#addTouchFocus(Event3DListener, Actor3D, Actor3D, int, int) */
+    public static final class TouchFocus implements Poolable {
+        Event3DListener listener;
+        Actor3D listenerActor, target;
+        int pointer, button;
+
+        @Override
+        public void reset () {
+            listenerActor = null;
+            listener = null;
+            target = null;
+        }
+    }
+
+    private static class ActorCollector implements DynamicBvh.QueryCallback<Actor3D> {
+        Array<Actor3D> out;
+
+        @Override
+        public boolean report (Actor3D actor) {
+            out.add(actor);
+            return true;
+        }
+    }
+
+    private static class RayPicker implements DynamicBvh.RayCallback<Actor3D> {
+        Group3D group;
+        PickResult result;
+
+        @Override
+        public float report (Actor3D actor, Ray ray, float maxDistance) {
+            if (!actor.isDescendantOf(group) || !isVisible(actor) || !actor.intersects(ray, result)) return maxDistance;
+            return result.distance;
+        }
+
+        private static boolean isVisible (Actor3D actor) {
+            for (; actor != null; actor = actor.getParent())
+                if (!actor.isVisible()) return false;
+            return true;
+        }
     }
 
     /** If true, {@link Actor3D#drawDebug(ModelBatch, Environment)} will be called for this group and, optionally, all children recursively. */
@@ -190,5 +1216,6 @@ public class Stage3D extends InputAdapter implements Disposable {
         modelBatch.dispose();
         root.dispose();
         clear();
+        disposeStaleBatches();
     }
 }
@@ -0,0 +1,240 @@
+package ardash.gdx.scenes.scene3d;
+
+import com.badlogic.gdx.math.Quaternion;
+
+/** Keeps the position, scale and rotation of many actors in one primitive array, {@link #STRIDE} floats per actor, instead of
+ * in fields spread over the heap. While an actor is in a store its getters and setters read and write the store, and bulk
+ * updates such as {@link #translate(float, float, float)} or {@link #setPositions(float[], int)} run as linear loops over the
+ * array. The actors keep their own fields for these values, which are unused while they are in the store, so the store
+ * doesn't make actors smaller, it lays their values out for linear loops.
+ * <p>
+ * The world transforms stay in each actor's {@link Actor3D#transform}, which is where the model batch reads them, but they are
+ * composed from the store. {@link #validate()} recomputes them in handle order.
+ * <p>
+ * Like the setters of the actors, the bulk updates let the stage interpolate the actors under a
+ * {@link Stage3D#setFixedTimeStep(float, int) fixed time step}. Values written to {@link #getValues()} directly are not
+ * interpolated.
+ * <p>
+ * An actor is identified by its handle, which is its index in the store. Removing an actor moves the last actor into its slot,
+ * so handles are only stable while no actor is removed. */
+public class TransformStore {
+    /** The offsets of the values of an actor, relative to its handle times {@link #STRIDE}. The angles are in degrees, the
+     * quaternion is the rotation they describe. */
+    public static final int X = 0, Y = 1, Z = 2, SCALE_X = 3, SCALE_Y = 4, SCALE_Z = 5, YAW = 6, PITCH = 7, ROLL = 8, QX = 9,
+        QY = 10, QZ = 11, QW = 12;
+    public static final int STRIDE = 13;
+
+    float[] values;
+    private Actor3D[] actors;
+    private int size;
+    private final Quaternion tmp = new Quaternion();
+
+    public TransformStore () {
+        this(64);
+    }
+
+    /** @param capacity the number of actors the store holds before it grows. */
+    public TransformStore (int capacity) {
+        capacity = Math.max(1, capacity);
+        values = new float[capacity * STRIDE];
+        actors = new Actor3D[capacity];
+    }
+
+    /** Moves the position, scale and rotation of the actor into this store. The actor is removed from the store it was in before.
+     * @return the handle of the actor. */
+    public int add (Actor3D actor) {
+        if (actor.transformStore == this) return actor.transformOffset / STRIDE;
+        if (actor.transformStore != null) actor.transformStore.remove(actor);
+        if (size == actors.length) resize(size * 2);
+        final int handle = size++;
+        final int i = handle * STRIDE;
+        final float[] v = values;
+        v[i + X] = actor.x;
+        v[i + Y] = actor.y;
+        v[i + Z] = actor.z;
+        v[i + SCALE_X] = actor.scaleX;
+        v[i + SCALE_Y] = actor.scaleY;
+        v[i + SCALE_Z] = actor.scaleZ;
+        v[i + YAW] = actor.yaw;
+        v[i + PITCH] = actor.pitch;
+        v[i + ROLL] = actor.roll;
+        final Quaternion rotation = actor.rotation;
+        v[i + QX] = rotation.x;
+        v[i + QY] = rotation.y;
+        v[i + QZ] = rotation.z;
+        v[i + QW] = rotation.w;
+        actors[handle] = actor;
+        actor.transformStore = this;
+        actor.transformOffset = i;
+        return handle;
+    }
+
+    /** Moves the position, scale and rotation of the actor back into its fields. The last actor of the store takes its handle.
+     * @return false if the actor is not in this store. */
+    public boolean remove (Actor3D actor) {
+        if (actor.transformStore != this) return false;
+        final int i = actor.transformOffset;
+        final float[] v = values;
+        actor.x = v[i + X];
+        actor.y = v[i + Y];
+        actor.z = v[i + Z];
+        actor.scaleX = v[i + SCALE_X];
+        actor.scaleY = v[i + SCALE_Y];
+        actor.scaleZ = v[i + SCALE_Z];
+        actor.yaw = v[i + YAW];
+        actor.pitch = v[i + PITCH];
+        actor.roll = v[i + ROLL];
+        actor.rotation.set(v[i + QX], v[i + QY], v[i + QZ], v[i + QW]);
+        actor.transformStore = null;
+        actor.transformOffset = -1;
+
+        final int last = --size;
+        final int handle = i / STRIDE;
+        if (handle != last) {
+            System.arraycopy(v, last * STRIDE, v, i, STRIDE);
+            final Actor3D moved = actors[last];
+            actors[handle] = moved;
+            moved.transformOffset = i;
+        }
+        actors[last] = null;
+        return true;
+    }
+
+    /** Removes all actors, see {@link #remove(Actor3D)}. */
+    public void clear () {
+        while (size > 0)
+            remove(actors[size - 1]);
+    }
+
+    public int size () {
+        return size;
+    }
+
+    public Actor3D getActor (int handle) {
+        if (handle >= size) throw new IndexOutOfBoundsException("handle can't be >= size: " + handle + " >= " + size);
+        return actors[handle];
+    }
+
+    /** @return the handle of the actor, or -1 if it is not in this store. */
+    public int getHandle (Actor3D actor) {
+        return actor.transformStore == this ? actor.transformOffset / STRIDE : -1;
+    }
+
+    /** Returns the backing array, {@link #STRIDE} floats per handle. After changing values directly, call {@link #invalidate(int)}
+     * or {@link #invalidateAll()}, and {@link #updateRotations()} if angles changed. The array is replaced when the store grows.
+     * Changes made this way are not interpolated under a fixed time step. */
+    public float[] getValues () {
+        return values;
+    }
+
+    /** Moves all actors by the specified amount. */
+    public void translate (float x, float y, float z) {
+        captureStates();
+        final float[] v = values;
+        for (int i = 0, n = size * STRIDE; i < n; i += STRIDE) {
+            v[i + X] += x;
+            v[i + Y] += y;
+            v[i + Z] += z;
+        }
+        invalidateAll();
+    }
+
+    /** Sets the positions of the actors from consecutive x, y, z triplets, in handle order.
+     * @param offset the index of the x value of handle 0. */
+    public void setPositions (float[] positions, int offset) {
+        captureStates();
+        final float[] v = values;
+        for (int i = 0, j = offset, n = size * STRIDE; i < n; i += STRIDE, j += 3) {
+            v[i + X] = positions[j];
+            v[i + Y] = positions[j + 1];
+            v[i + Z] = positions[j + 2];
+        }
+        invalidateAll();
+    }
+
+    /** Copies the positions of the actors as consecutive x, y, z triplets, in handle order.
+     * @param offset the index the x value of handle 0 is written to. */
+    public void getPositions (float[] positions, int offset) {
+        final float[] v = values;
+        for (int i = 0, j = offset, n = size * STRIDE; i < n; i += STRIDE, j += 3) {
+            positions[j] = v[i + X];
+            positions[j + 1] = v[i + Y];
+            positions[j + 2] = v[i + Z];
+        }
+    }
+
+    /** Sets the rotations of the actors from consecutive yaw, pitch, roll triplets in degrees, in handle order.
+     * @param offset the index of the yaw value of handle 0. */
+    public void setRotations (float[] angles, int offset) {
+        captureStates();
+        final float[] v = values;
+        for (int i = 0, j = offset, n = size * STRIDE; i < n; i += STRIDE, j += 3) {
+            v[i + YAW] = angles[j];
+            v[i + PITCH] = angles[j + 1];
+            v[i + ROLL] = angles[j + 2];
+        }
+        updateRotations();
+    }
+
+    /** Recomputes the quaternions from the angles of all actors and invalidates their transforms. */
+    public void updateRotations () {
+        final float[] v = values;
+        final Quaternion q = tmp;
+        for (int i = 0, n = size * STRIDE; i < n; i += STRIDE) {
+            // the same swapped axes as Actor3D#updateRotation()
+            q.setEulerAngles(v[i + PITCH], v[i + ROLL], v[i + YAW]);
+            v[i + QX] = q.x;
+            v[i + QY] = q.y;
+            v[i + QZ] = q.z;
+            v[i + QW] = q.w;
+        }
+        invalidateAll();
+    }
+
+    /** Marks the transform of the actor with the specified handle as changed. */
+    public void invalidate (int handle) {
+        actors[handle].invalidateTransform();
+    }
+
+    /** Marks the transforms of all actors as changed. */
+    public void invalidateAll () {
+        final Actor3D[] actors = this.actors;
+        for (int i = 0, n = size; i < n; i++)
+            actors[i].invalidateTransform();
+    }
+
+    /** Lets the stages of the actors keep their states before a bulk update, see {@link Actor3D#captureState()}. */
+    private void captureStates () {
+        final Actor3D[] actors = this.actors;
+        for (int i = 0, n = size; i < n; i++)
+            actors[i].captureState();
+    }
+
+    /** Recomputes the world transforms of all actors in the store that changed. The local transforms are composed in one loop
+     * over the array in handle order, then the world transforms are multiplied, parents first. Actors that are on a stage are
+     * also validated when it is drawn, this is only needed to read world transforms earlier. */
+    public void validate () {
+        final float[] v = values;
+        final Actor3D[] actors = this.actors;
+        final int n = size;
+        for (int h = 0, i = 0; h < n; h++, i += STRIDE) {
+            final Actor3D actor = actors[h];
+            if (!actor.localTransformDirty) continue;
+            actor.localTransform.set(v[i + X], v[i + Y], v[i + Z], v[i + QX], v[i + QY], v[i + QZ], v[i + QW], v[i + SCALE_X],
+                v[i + SCALE_Y], v[i + SCALE_Z]);
+            actor.localTransformDirty = false;
+        }
+        // getTransform() validates the parents first, which may have any handle or be in no store
+        for (int h = 0; h < n; h++)
+            actors[h].getTransform();
+    }
+
+    private void resize (int capacity) {
+        final float[] newValues = new float[capacity * STRIDE];
+        System.arraycopy(values, 0, newValues, 0, size * STRIDE);
+        values = newValues;
+        final Actor3D[] newActors = new Actor3D[capacity];
+        System.arraycopy(actors, 0, newActors, 0, size);
+        actors = newActors;
+    }
+}
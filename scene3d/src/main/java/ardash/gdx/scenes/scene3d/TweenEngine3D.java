@@ -0,0 +1,365 @@
+package ardash.gdx.scenes.scene3d;
+
+import java.util.Arrays;
+
+import com.badlogic.gdx.math.Interpolation;
+import com.badlogic.gdx.math.MathUtils;
+
+import ardash.gdx.scenes.scene3d.actions.Actions3D;
+
+/** Moves, scales and rotates many actors over time without an action object per transition. The start and end values, times,
+ * durations and easings of all tweens are kept in primitive arrays and each {@link #act(float)} steps them in a few linear
+ * loops, then writes the results into the actors.
+ * <p>
+ * The factory methods match those of {@link Actions3D}, with the actor as the first parameter. Unlike the actions, a tween
+ * captures the actor's current value when it is created, so the "by" methods tween to the current value plus the amount. The
+ * common {@link Interpolation interpolations} are evaluated inline, others are called like an action would.
+ * <p>
+ * The tweens of a {@link Stage3D#getTweens() stage} are dropped once their actor has left the stage, without writing to it
+ * again, and {@link Actor3D#dispose()} cancels the tweens of an actor. A tween created before its actor is added to the stage
+ * runs normally until the actor has been seen on the stage, so it is only dropped after the actor was on the stage and left. Several tweens of the same kind on one actor all write
+ * to it in the order they were created, so the last one created wins, use {@link #cancel(Actor3D)} to stop the previous
+ * ones. */
+public class TweenEngine3D {
+    /** The kinds of tweens, which setter of the actor the values are written to. */
+    public static final int MOVE = 0, SCALE = 1, ROTATE = 2;
+
+    /** The easings evaluated inline, any other interpolation is {@link #CUSTOM}. */
+    static final int LINEAR = 0, SMOOTH = 1, SMOOTH2 = 2, SMOOTHER = 3, POW2 = 4, POW2_IN = 5, POW2_OUT = 6, POW3 = 7, POW3_IN = 8,
+        POW3_OUT = 9, SINE = 10, SINE_IN = 11, SINE_OUT = 12, CUSTOM = 13;
+
+    /** The stage whose actors are tweened, or null if tweens are kept regardless of the stage of their actor. */
+    private final Stage3D stage;
+    private int size;
+    private Actor3D[] actors = new Actor3D[64];
+    private int[] kinds = new int[64], easings = new int[64];
+    /** Whether the actor of each tween was on the stage when the tween was created or last stepped. */
+    private boolean[] seenOnStage = new boolean[64];
+    /** Only set for tweens with a {@link #CUSTOM} easing. */
+    private Interpolation[] interpolations = new Interpolation[64];
+    private float[] times = new float[64], durations = new float[64], alphas = new float[64];
+    /** Three values per tween. */
+    private float[] starts = new float[64 * 3], ends = new float[64 * 3], values = new float[64 * 3];
+
+    public TweenEngine3D () {
+        this(null);
+    }
+
+    TweenEngine3D (Stage3D stage) {
+        this.stage = stage;
+    }
+
+    /** Moves the actor instantly. */
+    public void moveTo (Actor3D actor, float x, float y, float z) {
+        moveTo(actor, x, y, z, 0, null);
+    }
+
+    public void moveTo (Actor3D actor, float x, float y, float z, float duration) {
+        moveTo(actor, x, y, z, duration, null);
+    }
+
+    public void moveTo (Actor3D actor, float x, float y, float z, float duration, Interpolation interpolation) {
+        add(actor, MOVE, actor.getX(), actor.getY(), actor.getZ(), x, y, z, duration, interpolation);
+    }
+
+    /** Moves the actor instantly. */
+    public void moveBy (Actor3D actor, float amountX, float amountY, float amountZ) {
+        moveBy(actor, amountX, amountY, amountZ, 0, null);
+    }
+
+    public void moveBy (Actor3D actor, float amountX, float amountY, float amountZ, float duration) {
+        moveBy(actor, amountX, amountY, amountZ, duration, null);
+    }
+
+    public void moveBy (Actor3D actor, float amountX, float amountY, float amountZ, float duration, Interpolation interpolation) {
+        final float x = actor.getX(), y = actor.getY(), z = actor.getZ();
+        add(actor, MOVE, x, y, z, x + amountX, y + amountY, z + amountZ, duration, interpolation);
+    }
+
+    /** Scales the actor instantly. */
+    public void scaleTo (Actor3D actor, float x, float y, float z) {
+        scaleTo(actor, x, y, z, 0, null);
+    }
+
+    public void scaleTo (Actor3D actor, float x, float y, float z, float duration) {
+        scaleTo(actor, x, y, z, duration, null);
+    }
+
+    public void scaleTo (Actor3D actor, float x, float y, float z, float duration, Interpolation interpolation) {
+        add(actor, SCALE, actor.getScaleX(), actor.getScaleY(), actor.getScaleZ(), x, y, z, duration, interpolation);
+    }
+
+    /** Scales the actor instantly. */
+    public void scaleBy (Actor3D actor, float amountX, float amountY, float amountZ) {
+        scaleBy(actor, amountX, amountY, amountZ, 0, null);
+    }
+
+    public void scaleBy (Actor3D actor, float amountX, float amountY, float amountZ, float duration) {
+        scaleBy(actor, amountX, amountY, amountZ, duration, null);
+    }
+
+    public void scaleBy (Actor3D actor, float amountX, float amountY, float amountZ, float duration,
+        Interpolation interpolation) {
+        final float x = actor.getScaleX(), y = actor.getScaleY(), z = actor.getScaleZ();
+        add(actor, SCALE, x, y, z, x + amountX, y + amountY, z + amountZ, duration, interpolation);
+    }
+
+    /** Rotates the actor instantly. */
+    public void rotateTo (Actor3D actor, float yaw, float pitch, float roll) {
+        rotateTo(actor, yaw, pitch, roll, 0, null);
+    }
+
+    public void rotateTo (Actor3D actor, float yaw, float pitch, float roll, float duration) {
+        rotateTo(actor, yaw, pitch, roll, duration, null);
+    }
+
+    public void rotateTo (Actor3D actor, float yaw, float pitch, float roll, float duration, Interpolation interpolation) {
+        add(actor, ROTATE, actor.getYaw(), actor.getPitch(), actor.getRoll(), yaw, pitch, roll, duration, interpolation);
+    }
+
+    /** Rotates the actor instantly. */
+    public void rotateBy (Actor3D actor, float yaw, float pitch, float roll) {
+        rotateBy(actor, yaw, pitch, roll, 0, null);
+    }
+
+    public void rotateBy (Actor3D actor, float yaw, float pitch, float roll, float duration) {
+        rotateBy(actor, yaw, pitch, roll, duration, null);
+    }
+
+    public void rotateBy (Actor3D actor, float yaw, float pitch, float roll, float duration, Interpolation interpolation) {
+        final float startYaw = actor.getYaw(), startPitch = actor.getPitch(), startRoll = actor.getRoll();
+        add(actor, ROTATE, startYaw, startPitch, startRoll, startYaw + yaw, startPitch + pitch, startRoll + roll, duration,
+            interpolation);
+    }
+
+    private void add (Actor3D actor, int kind, float startX, float startY, float startZ, float endX, float endY, float endZ,
+        float duration, Interpolation interpolation) {
+        if (duration <= 0) {
+            write(actor, kind, endX, endY, endZ);
+            return;
+        }
+        if (size == actors.length) resize(size * 2);
+        final int i = size++, j = i * 3;
+        actors[i] = actor;
+        kinds[i] = kind;
+        seenOnStage[i] = stage != null && actor.getStage() == stage;
+        final int easing = easing(interpolation);
+        easings[i] = easing;
+        interpolations[i] = easing == CUSTOM ? interpolation : null;
+        times[i] = 0;
+        durations[i] = duration;
+        starts[j] = startX;
+        starts[j + 1] = startY;
+        starts[j + 2] = startZ;
+        ends[j] = endX;
+        ends[j + 1] = endY;
+        ends[j + 2] = endZ;
+    }
+
+    /** Advances all tweens, writes their values into the actors and removes the completed ones.
+     * @param delta Time in seconds since the last frame. */
+    public void act (float delta) {
+        final int n = size;
+        if (n == 0) return;
+        final float[] times = this.times, durations = this.durations, alphas = this.alphas;
+        for (int i = 0; i < n; i++) {
+            final float time = times[i] + delta;
+            times[i] = time;
+            alphas[i] = Math.min(time / durations[i], 1);
+        }
+        ease(n);
+        final float[] starts = this.starts, ends = this.ends, values = this.values;
+        for (int i = 0, j = 0; i < n; i++, j += 3) {
+            final float a = alphas[i];
+            values[j] = starts[j] + (ends[j] - starts[j]) * a;
+            values[j + 1] = starts[j + 1] + (ends[j + 1] - starts[j + 1]) * a;
+            values[j + 2] = starts[j + 2] + (ends[j + 2] - starts[j + 2]) * a;
+        }
+        final Actor3D[] actors = this.actors;
+        final int[] kinds = this.kinds;
+        final boolean[] seenOnStage = this.seenOnStage;
+        final Stage3D stage = this.stage;
+        boolean removed = false;
+        for (int i = 0, j = 0; i < n; i++, j += 3) {
+            final Actor3D actor = actors[i];
+            boolean left = false;
+            if (stage != null) {
+                if (actor.getStage() == stage)
+                    seenOnStage[i] = true;
+                else
+                    left = seenOnStage[i];
+            }
+            if (!left) write(actor, kinds[i], values[j], values[j + 1], values[j + 2]);
+            if (left || times[i] >= durations[i]) {
+                actors[i] = null;
+                removed = true;
+            }
+        }
+        if (removed) compact();
+    }
+
+    /** Applies the easing of each tween to its alpha. Completed tweens keep an alpha of 1, as with a temporal action. */
+    private void ease (int n) {
+        final float[] alphas = this.alphas;
+        final int[] easings = this.easings;
+        for (int i = 0; i < n; i++) {
+            final float a = alphas[i];
+            if (a >= 1) continue;
+            switch (easings[i]) {
+            case LINEAR:
+                break;
+            case SMOOTH:
+                alphas[i] = a * a * (3 - 2 * a);
+                break;
+            case SMOOTH2: {
+                final float b = a * a * (3 - 2 * a);
+                alphas[i] = b * b * (3 - 2 * b);
+                break;
+            }
+            case SMOOTHER:
+                alphas[i] = a * a * a * (a * (a * 6 - 15) + 10);
+                break;
+            case POW2:
+                if (a <= 0.5f)
+                    alphas[i] = a * a * 2;
+                else {
+                    final float b = (a - 1) * 2;
+                    alphas[i] = b * b / -2 + 1;
+                }
+                break;
+            case POW2_IN:
+                alphas[i] = a * a;
+                break;
+            case POW2_OUT:
+                alphas[i] = -(a - 1) * (a - 1) + 1;
+                break;
+            case POW3:
+                if (a <= 0.5f)
+                    alphas[i] = a * a * a * 4;
+                else {
+                    final float b = (a - 1) * 2;
+                    alphas[i] = b * b * b / 2 + 1;
+                }
+                break;
+            case POW3_IN:
+                alphas[i] = a * a * a;
+                break;
+            case POW3_OUT:
+                alphas[i] = (a - 1) * (a - 1) * (a - 1) + 1;
+                break;
+            case SINE:
+                alphas[i] = (1 - MathUtils.cos(a * MathUtils.PI)) / 2;
+                break;
+            case SINE_IN:
+                alphas[i] = 1 - MathUtils.cos(a * MathUtils.PI / 2);
+                break;
+            case SINE_OUT:
+                alphas[i] = MathUtils.sin(a * MathUtils.PI / 2);
+                break;
+            default:
+                alphas[i] = interpolations[i].apply(a);
+            }
+        }
+    }
+
+    private static int easing (Interpolation interpolation) {
+        if (interpolation == null || interpolation == Interpolation.linear) return LINEAR;
+        if (interpolation == Interpolation.smooth) return SMOOTH;
+        if (interpolation == Interpolation.smooth2) return SMOOTH2;
+        if (interpolation == Interpolation.smoother || interpolation == Interpolation.fade) return SMOOTHER;
+        if (interpolation == Interpolation.pow2) return POW2;
+        if (interpolation == Interpolation.pow2In) return POW2_IN;
+        if (interpolation == Interpolation.pow2Out) return POW2_OUT;
+        if (interpolation == Interpolation.pow3) return POW3;
+        if (interpolation == Interpolation.pow3In) return POW3_IN;
+        if (interpolation == Interpolation.pow3Out) return POW3_OUT;
+        if (interpolation == Interpolation.sine) return SINE;
+        if (interpolation == Interpolation.sineIn) return SINE_IN;
+        if (interpolation == Interpolation.sineOut) return SINE_OUT;
+        return CUSTOM;
+    }
+
+    private static void write (Actor3D actor, int kind, float x, float y, float z) {
+        switch (kind) {
+        case MOVE:
+            actor.setPosition(x, y, z);
+            break;
+        case SCALE:
+            actor.setScale(x, y, z);
+            break;
+        default:
+            actor.setRotation(x, y, z);
+        }
+    }
+
+    /** Stops all tweens of the actor, leaving it where they moved it so far.
+     * @return the number of tweens stopped. */
+    public int cancel (Actor3D actor) {
+        int count = 0;
+        for (int i = 0, n = size; i < n; i++) {
+            if (actors[i] != actor) continue;
+            actors[i] = null;
+            count++;
+        }
+        if (count > 0) compact();
+        return count;
+    }
+
+    /** @return true if the actor has a running tween. */
+    public boolean isTweening (Actor3D actor) {
+        for (int i = 0, n = size; i < n; i++)
+            if (actors[i] == actor) return true;
+        return false;
+    }
+
+    /** Stops all tweens. */
+    public void clear () {
+        Arrays.fill(actors, 0, size, null);
+        Arrays.fill(interpolations, 0, size, null);
+        size = 0;
+    }
+
+    /** @return the number of running tweens. */
+    public int size () {
+        return size;
+    }
+
+    /** Removes the tweens whose actor was set to null in one pass, keeping the others in the order they were created. */
+    private void compact () {
+        final Actor3D[] actors = this.actors;
+        final int n = size;
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (actors[i] == null) continue;
+            if (kept != i) {
+                actors[kept] = actors[i];
+                kinds[kept] = kinds[i];
+                seenOnStage[kept] = seenOnStage[i];
+                easings[kept] = easings[i];
+                interpolations[kept] = interpolations[i];
+                times[kept] = times[i];
+                durations[kept] = durations[i];
+                System.arraycopy(starts, i * 3, starts, kept * 3, 3);
+                System.arraycopy(ends, i * 3, ends, kept * 3, 3);
+            }
+            kept++;
+        }
+        Arrays.fill(actors, kept, n, null);
+        Arrays.fill(interpolations, kept, n, null);
+        size = kept;
+    }
+
+    private void resize (int capacity) {
+        actors = Arrays.copyOf(actors, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        seenOnStage = Arrays.copyOf(seenOnStage, capacity);
+        easings = Arrays.copyOf(easings, capacity);
+        interpolations = Arrays.copyOf(interpolations, capacity);
+        times = Arrays.copyOf(times, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        alphas = new float[capacity];
+        starts = Arrays.copyOf(starts, capacity * 3);
+        ends = Arrays.copyOf(ends, capacity * 3);
+        values = new float[capacity * 3];
+    }
+}
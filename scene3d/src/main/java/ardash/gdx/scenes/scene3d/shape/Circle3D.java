@@ -10,6 +10,8 @@ import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
 import com.badlogic.gdx.math.Vector3;
 
 import ardash.gdx.scenes.scene3d.Actor3D;
+import ardash.gdx.scenes.scene3d.LodActor3D;
+import ardash.gdx.scenes.scene3d.utils.SharedModelCache;
 import ardash.gdx.scenes.scene3d.utils.AdvModelBuilder;
 
 /**
@@ -32,6 +34,17 @@ public class Circle3D extends Actor3D {
         super(createModel(radius , divisions, center, modelBuilder));
     }
 
+    /** Creates a circle with levels of detail, each level has half the divisions of the level before, but at least 3.
+     * @param distances the distances from which each coarser level is drawn, see {@link LodActor3D}. */
+    public static LodActor3D lod(float radius, int divisions, Vector3 center, ModelBuilder modelBuilder, float... distances) {
+        final Model[] models = new Model[distances.length + 1];
+        for (int i = 0; i < models.length; i++) {
+            models[i] = createModel(radius, divisions, center, modelBuilder);
+            divisions = Math.max(3, divisions / 2);
+        }
+        return new LodActor3D(models, distances);
+    }
+
     private static Model createModel(float radius , int divisions, Vector3 center, ModelBuilder modelBuilder) {
         Material material = new Material();
 //        if (c1 != null) material.set( ColorAttribute.createDiffuse(c1) );
@@ -44,13 +57,16 @@ public class Circle3D extends Actor3D {
         material.set(new BlendingAttribute(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA, 1.0f));
 
 //        Gdx.gl20.glPolygonOffset(factor, units);
+        final SharedModelCache.Key key = SharedModelCache.key("circle", material, usageCode, radius, divisions, center.x, center.y, center.z);
+        final Model model = SharedModelCache.obtain(key);
+        if (model != null) return model;
         AdvModelBuilder mb = new AdvModelBuilder();
         final Model ret = mb.createCirc(radius, divisions, center, null, material, usageCode);
         for ( VertexAttribute attribute : ret.meshes.get(0).getVertexAttributes()) {
 			final VertexAttribute colorPacked = attribute.ColorPacked();
 			int i = 0;
 		}
-		return ret;
+		return SharedModelCache.add(key, ret);
 //        return modelBuilder.createRect(0, 0, 0, width, 0, 0, width, height, 0, 0, height, 0, 0, 0, 1, material, usageCode) ;
     }
 
@@ -10,6 +10,7 @@ import com.badlogic.gdx.graphics.g3d.attributes.TextureAttribute;
 import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
 
 import ardash.gdx.scenes.scene3d.Actor3D;
+import ardash.gdx.scenes.scene3d.utils.SharedModelCache;
 
 /**
  * Created by boris on 22/03/2017.
@@ -48,6 +49,9 @@ public class CubeActor3D extends Actor3D {
 
         int usageCode = VertexAttributes.Usage.Position + VertexAttributes.Usage.ColorPacked + VertexAttributes.Usage.Normal + VertexAttributes.Usage.TextureCoordinates;
 
-        return modelBuilder.createBox(width, height, depth, material, usageCode );
+        final SharedModelCache.Key key = SharedModelCache.key("box", material, usageCode, width, height, depth);
+        final Model model = SharedModelCache.obtain(key);
+        if (model != null) return model;
+        return SharedModelCache.add(key, modelBuilder.createBox(width, height, depth, material, usageCode ));
     }
 }
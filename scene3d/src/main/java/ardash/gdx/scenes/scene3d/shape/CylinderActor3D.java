@@ -10,6 +10,8 @@ import com.badlogic.gdx.graphics.g3d.attributes.TextureAttribute;
 import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
 
 import ardash.gdx.scenes.scene3d.Actor3D;
+import ardash.gdx.scenes.scene3d.LodActor3D;
+import ardash.gdx.scenes.scene3d.utils.SharedModelCache;
 
 /**
  * Created by boris on 24/05/2017.
@@ -41,13 +43,37 @@ public class CylinderActor3D extends Actor3D {
         super(createModel(radius, height, color, texture, modelBuilder));
     }
 
+    /** Creates a cylinder with levels of detail, each level has half the divisions of the level before, but at least 3.
+     * @param distances the distances from which each coarser level is drawn, see {@link LodActor3D}. */
+    public static LodActor3D lod(float radius, float height, Color color, ModelBuilder modelBuilder, float... distances) {
+        final Model[] models = new Model[distances.length + 1];
+        int divisions = Math.max(3, divisions(radius));
+        for (int i = 0; i < models.length; i++) {
+            models[i] = createModel(radius, height, color, null, divisions, modelBuilder);
+            divisions = Math.max(3, divisions / 2);
+        }
+        return new LodActor3D(models, distances);
+    }
+
+    private static int divisions(float radius) {
+        return Math.max(1, (int)(6 * (float)Math.cbrt(10 * radius)));
+    }
+
     private static Model createModel(float radius, float height, Color color, Texture texture, ModelBuilder modelBuilder) {
+        return createModel(radius, height, color, texture, divisions(radius), modelBuilder);
+    }
+
+    private static Model createModel(float radius, float height, Color color, Texture texture, int divisions,
+        ModelBuilder modelBuilder) {
         Material material = new Material();
         if (color != null) material.set( ColorAttribute.createDiffuse(color) );
         if (texture != null) material.set( TextureAttribute.createDiffuse(texture) );
 
         int usageCode = VertexAttributes.Usage.Position + VertexAttributes.Usage.ColorPacked + VertexAttributes.Usage.Normal + VertexAttributes.Usage.TextureCoordinates;
 
-        return modelBuilder.createCylinder(radius, height, radius, Math.max(1, (int)(6 * (float)Math.cbrt(10 * radius))), material, usageCode);
+        final SharedModelCache.Key key = SharedModelCache.key("cylinder", material, usageCode, radius, height, divisions);
+        final Model model = SharedModelCache.obtain(key);
+        if (model != null) return model;
+        return SharedModelCache.add(key, modelBuilder.createCylinder(radius, height, radius, divisions, material, usageCode));
     }
 }
@@ -5,14 +5,21 @@ import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.VertexAttributes;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.g3d.Environment;
 import com.badlogic.gdx.graphics.g3d.Material;
 import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.ModelBatch;
 import com.badlogic.gdx.graphics.g3d.attributes.BlendingAttribute;
 import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
 import com.badlogic.gdx.graphics.g3d.attributes.TextureAttribute;
 import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
 
 import ardash.gdx.scenes.scene3d.Actor3D;
+import ardash.gdx.scenes.scene3d.PickResult;
+import ardash.gdx.scenes.scene3d.utils.AlphaMask;
+import ardash.gdx.scenes.scene3d.utils.SharedModelCache;
 import ardash.gdx.scenes.scene3d.utils.AdvModelBuilder;
 
 /**
@@ -20,6 +27,15 @@ import ardash.gdx.scenes.scene3d.utils.AdvModelBuilder;
  */
 
 public class Image3D extends Actor3D {
+    final float width, height, shear;
+    /** The texture region the quad shows, or null if it has no texture. */
+    final TextureRegion region;
+    private AlphaMask alphaMask;
+
+    /** The batch this image is drawn with, see {@link #setBatch(Image3DBatch)}. */
+    Image3DBatch batch;
+    Image3DBatch.Page batchPage;
+    int batchSlot = -1;
 
     public Image3D(float width, float height) {
         this(width, height, Color.WHITE);
@@ -34,26 +50,104 @@ public class Image3D extends Actor3D {
     }
 
     public Image3D(float width, float height, Color color, ModelBuilder modelBuilder) {
-        super(createModel(width, height, color, (Texture)null, modelBuilder));
+        this(width, height, color, (Texture)null, modelBuilder);
     }
 
     public Image3D(float width, float height, Texture texture, ModelBuilder modelBuilder) {
-        super(createModel(width, height, null, texture, modelBuilder));
+        this(width, height, null, texture, modelBuilder);
     }
 
     public Image3D(float width, float height, Color color, Texture texture, ModelBuilder modelBuilder) {
         super(createModel(width, height, color, texture, modelBuilder));
+        this.width = width;
+        this.height = height;
+        this.shear = 0f;
+        this.region = texture == null ? null : new TextureRegion(texture);
     }
 
     /**
      * Used by normal actors with 2d sprites from texture atlas
      */
     public Image3D(float width, float height, TextureRegion textureRegion, ModelBuilder modelBuilder) {
-        super(createModel(width, height, null, textureRegion, modelBuilder, 0f));
+        this(width, height, textureRegion, modelBuilder, 0f);
     }
 
     public Image3D(float width, float height, TextureRegion textureRegion, ModelBuilder modelBuilder, float shear) {
         super(createModel(width, height, null, textureRegion, modelBuilder, shear));
+        this.width = width;
+        this.height = height;
+        this.shear = shear;
+        this.region = textureRegion;
+    }
+
+    /** Draws this image as part of the specified batch instead of with its own model, or with its own model again if the batch is
+     * null. */
+    public void setBatch (Image3DBatch batch) {
+        if (batch != null)
+            batch.add(this);
+        else if (this.batch != null)
+            this.batch.remove(this);
+    }
+
+    public Image3DBatch getBatch () {
+        return batch;
+    }
+
+    @Override
+    public void draw (ModelBatch modelBatch, Environment environment) {
+        if (batch == null) {
+            super.draw(modelBatch, environment);
+            return;
+        }
+        batch.draw(modelBatch, environment);
+        drawDebug(modelBatch, environment);
+    }
+
+    /** @return the mask of the opaque pixels of the texture region, or null if there is no texture. It is built when the
+     * {@link #setHitMode(HitMode) hit mode} is set to mesh, as reading the pixels may load the texture data again, or else on the
+     * first call. */
+    public AlphaMask getAlphaMask () {
+        // obtain is synchronized and returns the same mask on each thread, so picks running in parallel may both set it
+        if (alphaMask == null && region != null) alphaMask = AlphaMask.obtain(region);
+        return alphaMask;
+    }
+
+    /** Builds the alpha mask instead of the triangles, which {@link #intersectMesh(Ray, PickResult)} doesn't use. */
+    @Override
+    protected void prepareMeshHits () {
+        getAlphaMask();
+    }
+
+    /** Intersects the plane of the quad directly instead of its triangles, which is exact for sheared images too. Rays pass
+     * through where the texture region is transparent, see {@link #getAlphaMask()}. */
+    @Override
+    protected float intersectMesh (Ray localRay, PickResult result) {
+        final Vector3 origin = localRay.origin, direction = localRay.direction;
+        final float t = -origin.z / direction.z;
+        if (!(t >= 0 && t <= result.distance)) return -1f;
+        // the quad spans x = u * width and y = u * shear + v * height, for u and v from 0 to 1
+        final float u = (origin.x + direction.x * t) / width;
+        if (!(u >= 0 && u <= 1)) return -1f;
+        final float v = (origin.y + direction.y * t - shear * u) / height;
+        if (!(v >= 0 && v <= 1)) return -1f;
+        final AlphaMask mask = getAlphaMask();
+        if (mask != null && !mask.isOpaque(u, 1 - v)) return -1f;
+        // the triangles of the rect are (00, 10, 11) and (11, 01, 00)
+        if (v <= u) {
+            result.triangle = 0;
+            result.barycentric.set(1 - u, u - v, v);
+        } else {
+            result.triangle = 1;
+            result.barycentric.set(u, v - u, 1 - v);
+        }
+        result.uv.set(u, 1 - v);
+        return t;
+    }
+
+    @Override
+    public void dispose () {
+        if (batch != null) batch.remove(this);
+        super.dispose();
     }
     
     /**
@@ -70,7 +164,10 @@ public class Image3D extends Actor3D {
 
         int usageCode = VertexAttributes.Usage.Position + VertexAttributes.Usage.ColorPacked + VertexAttributes.Usage.Normal + VertexAttributes.Usage.TextureCoordinates;
 
-        return modelBuilder.createRect(0, 0, 0, width, 0, 0, width, height, 0, 0, height, 0, 0, 0, 1, material, usageCode) ;
+        final SharedModelCache.Key key = SharedModelCache.key("rect", material, usageCode, width, height, 0f);
+        final Model model = SharedModelCache.obtain(key);
+        if (model != null) return model;
+        return SharedModelCache.add(key, modelBuilder.createRect(0, 0, 0, width, 0, 0, width, height, 0, 0, height, 0, 0, 0, 1, material, usageCode));
     }
 
     private static Model createModel(float width, float height, Color color, TextureRegion textureRegion, ModelBuilder modelBuilder, float shear) {
@@ -82,7 +179,10 @@ public class Image3D extends Actor3D {
 
         int usageCode = VertexAttributes.Usage.Position + VertexAttributes.Usage.ColorPacked + VertexAttributes.Usage.Normal + VertexAttributes.Usage.TextureCoordinates;
 
-        return modelBuilder.createRect(0, 0, 0, width, 0+shear, 0, width, height+shear, 0, 0, height, 0, 0, 0, 1, material, usageCode) ;
+        final SharedModelCache.Key key = SharedModelCache.key("rect", material, usageCode, width, height, shear);
+        final Model model = SharedModelCache.obtain(key);
+        if (model != null) return model;
+        return SharedModelCache.add(key, modelBuilder.createRect(0, 0, 0, width, 0+shear, 0, width, height+shear, 0, 0, height, 0, 0, 0, 1, material, usageCode));
     
     }
 }
@@ -0,0 +1,317 @@
+package ardash.gdx.scenes.scene3d.shape;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.ModelBatch;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.RenderableProvider;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.TextureAttribute;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.Pool;
+
+import ardash.gdx.scenes.scene3d.Actor3D;
+import ardash.gdx.scenes.scene3d.Group3D;
+
+/** Draws many {@link Image3D} actors with few draw calls, similar to a {@link com.badlogic.gdx.graphics.g3d.decals.DecalBatch}.
+ * The quads of the images are kept in world space in dynamic meshes, one or more per texture, and only the quads of images that
+ * moved, changed color or were shown or hidden are rewritten. Texture regions and shear are kept.
+ * <p>
+ * The batch is drawn when the first of its images is drawn in a frame, and then contains all its images that are visible and on
+ * a stage, except those in a {@link Group3D#freeze() frozen} group. Images are not culled one by one, so a batch should hold
+ * images that are near each other. */
+public class Image3DBatch implements RenderableProvider, Disposable {
+    static final int VERTEX_SIZE = 9;
+    static final int QUAD_SIZE = 4 * VERTEX_SIZE;
+    /** The most quads one mesh can hold with short indices. */
+    public static final int MAX_QUADS_PER_MESH = 16383;
+    private static final float WHITE = Color.WHITE.toFloatBits();
+
+    private final int quadsPerMesh;
+    private final Array<Page> pages = new Array<>(false, 4, Page.class);
+    private long frameId = -1;
+    private ModelBatch frameModelBatch;
+
+    public Image3DBatch () {
+        this(1024);
+    }
+
+    /** @param quadsPerMesh the number of quads each mesh can hold, another mesh is created for a texture when it is full. */
+    public Image3DBatch (int quadsPerMesh) {
+        if (quadsPerMesh < 1 || quadsPerMesh > MAX_QUADS_PER_MESH)
+            throw new IllegalArgumentException("quadsPerMesh must be between 1 and " + MAX_QUADS_PER_MESH + ": " + quadsPerMesh);
+        this.quadsPerMesh = quadsPerMesh;
+    }
+
+    /** Adds the image to this batch, it is removed from the batch it was in before. */
+    public void add (Image3D image) {
+        if (image.batch == this) return;
+        if (image.batch != null) image.batch.remove(image);
+        final Texture texture = image.region == null ? null : image.region.getTexture();
+        Page page = null;
+        for (int i = 0; i < pages.size; i++) {
+            final Page candidate = pages.get(i);
+            if (candidate.texture == texture && candidate.size < quadsPerMesh) {
+                page = candidate;
+                break;
+            }
+        }
+        if (page == null) {
+            page = new Page(texture, quadsPerMesh);
+            pages.add(page);
+        }
+        image.batch = this;
+        image.batchPage = page;
+        image.batchSlot = page.size;
+        page.add(image);
+    }
+
+    /** Removes the image from this batch.
+     * @return false if the image was not in this batch. */
+    public boolean remove (Image3D image) {
+        if (image.batch != this) return false;
+        final Page page = image.batchPage;
+        page.remove(image.batchSlot);
+        image.batch = null;
+        image.batchPage = null;
+        image.batchSlot = -1;
+        if (page.size == 0) {
+            pages.removeValue(page, true);
+            page.dispose();
+        }
+        return true;
+    }
+
+    /** @return the number of images in this batch. */
+    public int size () {
+        int size = 0;
+        for (int i = 0; i < pages.size; i++)
+            size += pages.get(i).size;
+        return size;
+    }
+
+    /** @return the number of meshes, which is the number of draw calls this batch costs. */
+    public int getMeshCount () {
+        return pages.size;
+    }
+
+    /** Called by the images of this batch when they are drawn, draws the batch once per frame. */
+    void draw (ModelBatch modelBatch, Environment environment) {
+        final long frameId = Gdx.graphics.getFrameId();
+        if (frameId == this.frameId && modelBatch == frameModelBatch) return;
+        this.frameId = frameId;
+        frameModelBatch = modelBatch;
+        update();
+        modelBatch.render(this, environment);
+    }
+
+    /** Rewrites the quads of the images that changed since the last update. This is done automatically when the batch is drawn. */
+    public void update () {
+        for (int i = 0; i < pages.size; i++)
+            pages.get(i).update();
+    }
+
+    @Override
+    public void getRenderables (Array<Renderable> renderables, Pool<Renderable> pool) {
+        for (int i = 0; i < pages.size; i++) {
+            final Page page = pages.get(i);
+            final Renderable renderable = page.renderable;
+            renderable.meshPart.size = page.size * 6;
+            renderable.worldTransform.idt();
+            renderables.add(renderable);
+        }
+    }
+
+    @Override
+    public void dispose () {
+        for (int i = 0; i < pages.size; i++) {
+            final Page page = pages.get(i);
+            for (int j = 0; j < page.size; j++) {
+                final Image3D image = page.images[j];
+                image.batch = null;
+                image.batchPage = null;
+                image.batchSlot = -1;
+            }
+            page.dispose();
+        }
+        pages.clear();
+    }
+
+    /** The images sharing one texture and one mesh. */
+    static final class Page implements Disposable {
+        final Texture texture;
+        final Mesh mesh;
+        final Renderable renderable = new Renderable();
+        final float[] vertices;
+        final Image3D[] images;
+        /** Per slot the transform version, color and visibility the quad was written with. */
+        final int[] versions;
+        final float[] colors;
+        final boolean[] shown;
+        int size;
+        private int dirtyStart = Integer.MAX_VALUE, dirtyEnd;
+
+        Page (Texture texture, int capacity) {
+            this.texture = texture;
+            images = new Image3D[capacity];
+            versions = new int[capacity];
+            colors = new float[capacity];
+            shown = new boolean[capacity];
+            vertices = new float[capacity * QUAD_SIZE];
+            mesh = new Mesh(false, capacity * 4, capacity * 6, VertexAttribute.Position(), VertexAttribute.ColorPacked(),
+                VertexAttribute.Normal(), VertexAttribute.TexCoords(0));
+            final short[] indices = new short[capacity * 6];
+            for (int i = 0, j = 0; i < indices.length; i += 6, j += 4) {
+                indices[i] = (short)j;
+                indices[i + 1] = (short)(j + 1);
+                indices[i + 2] = (short)(j + 2);
+                indices[i + 3] = (short)(j + 2);
+                indices[i + 4] = (short)(j + 3);
+                indices[i + 5] = (short)j;
+            }
+            mesh.setIndices(indices);
+            mesh.setVertices(vertices);
+            renderable.meshPart.set("image3DBatch", mesh, 0, 0, GL20.GL_TRIANGLES);
+            renderable.material = texture == null ? new Material() : new Material(TextureAttribute.createDiffuse(texture));
+        }
+
+        void add (Image3D image) {
+            images[size] = image;
+            invalidate(size);
+            size++;
+        }
+
+        void remove (int slot) {
+            size--;
+            if (slot != size) {
+                final Image3D last = images[size];
+                images[slot] = last;
+                last.batchSlot = slot;
+                invalidate(slot);
+            }
+            images[size] = null;
+        }
+
+        private void invalidate (int slot) {
+            versions[slot] = Integer.MIN_VALUE;
+            markDirty(slot);
+        }
+
+        private void markDirty (int slot) {
+            if (slot < dirtyStart) dirtyStart = slot;
+            if (slot + 1 > dirtyEnd) dirtyEnd = slot + 1;
+        }
+
+        void update () {
+            for (int slot = 0; slot < size; slot++) {
+                final Image3D image = images[slot];
+                final boolean show = isShown(image);
+                if (!show) {
+                    if (shown[slot] || versions[slot] == Integer.MIN_VALUE) {
+                        hideQuad(slot);
+                        shown[slot] = false;
+                        versions[slot] = 0;
+                        markDirty(slot);
+                    }
+                    continue;
+                }
+                final Matrix4 transform = image.getTransform();
+                final int version = image.getTransformVersion();
+                final float color = packedColor(image);
+                if (shown[slot] && versions[slot] == version && colors[slot] == color) continue;
+                writeQuad(slot, image, transform, color);
+                shown[slot] = true;
+                versions[slot] = version;
+                colors[slot] = color;
+                markDirty(slot);
+            }
+            // slots past the size may have been marked before their images were removed
+            final int end = Math.min(dirtyEnd, size);
+            if (dirtyStart < end) {
+                final int offset = dirtyStart * QUAD_SIZE;
+                mesh.updateVertices(offset, vertices, offset, (end - dirtyStart) * QUAD_SIZE);
+            }
+            dirtyStart = Integer.MAX_VALUE;
+            dirtyEnd = 0;
+        }
+
+        /** @return true if the image is on a stage and it and its ancestors are visible. Images in a frozen group are drawn by
+         *         the group's merged geometry, so they are not shown by the batch. */
+        private static boolean isShown (Image3D image) {
+            if (image.getStage() == null) return false;
+            for (Actor3D actor = image; actor != null; actor = actor.getParent())
+                if (!actor.isVisible() || actor instanceof Group3D && ((Group3D)actor).isFrozen()) return false;
+            return true;
+        }
+
+        private static float packedColor (Image3D image) {
+            final ColorAttribute attribute = (ColorAttribute)image.materials.get(0).get(ColorAttribute.Diffuse);
+            return attribute == null ? WHITE : attribute.color.toFloatBits();
+        }
+
+        private void hideQuad (int slot) {
+            final float[] v = vertices;
+            for (int i = slot * QUAD_SIZE, n = i + QUAD_SIZE; i < n; i++)
+                v[i] = 0;
+        }
+
+        private void writeQuad (int slot, Image3D image, Matrix4 transform, float color) {
+            final float[] m = transform.val;
+            final float w = image.width, h = image.height, shear = image.shear;
+            float nx = m[Matrix4.M02], ny = m[Matrix4.M12], nz = m[Matrix4.M22];
+            final float length = (float)Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length != 0) {
+                nx /= length;
+                ny /= length;
+                nz /= length;
+            }
+            final float u, v, u2, v2;
+            final TextureRegion region = image.region;
+            if (region == null) {
+                u = 0;
+                v = 0;
+                u2 = 1;
+                v2 = 1;
+            } else {
+                u = region.getU();
+                v = region.getV();
+                u2 = region.getU2();
+                v2 = region.getV2();
+            }
+            // the same corners and texture coordinates as the model built by Image3D
+            int i = slot * QUAD_SIZE;
+            i = writeVertex(i, m, 0, 0, color, nx, ny, nz, u, v2);
+            i = writeVertex(i, m, w, shear, color, nx, ny, nz, u2, v2);
+            i = writeVertex(i, m, w, h + shear, color, nx, ny, nz, u2, v);
+            writeVertex(i, m, 0, h, color, nx, ny, nz, u, v);
+        }
+
+        private int writeVertex (int i, float[] m, float x, float y, float color, float nx, float ny, float nz, float u, float v) {
+            final float[] vertices = this.vertices;
+            vertices[i] = m[Matrix4.M00] * x + m[Matrix4.M01] * y + m[Matrix4.M03];
+            vertices[i + 1] = m[Matrix4.M10] * x + m[Matrix4.M11] * y + m[Matrix4.M13];
+            vertices[i + 2] = m[Matrix4.M20] * x + m[Matrix4.M21] * y + m[Matrix4.M23];
+            vertices[i + 3] = color;
+            vertices[i + 4] = nx;
+            vertices[i + 5] = ny;
+            vertices[i + 6] = nz;
+            vertices[i + 7] = u;
+            vertices[i + 8] = v;
+            return i + VERTEX_SIZE;
+        }
+
+        @Override
+        public void dispose () {
+            mesh.dispose();
+        }
+    }
+}
@@ -15,6 +15,7 @@ import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
 import com.badlogic.gdx.math.Vector3;
 
 import ardash.gdx.scenes.scene3d.Actor3D;
+import ardash.gdx.scenes.scene3d.utils.SharedModelCache;
 import ardash.gdx.scenes.scene3d.utils.AdvModelBuilder;
 
 /**
@@ -49,8 +50,13 @@ public class Triangle3D extends Actor3D {
         material.set(new BlendingAttribute(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA, 1.0f));
 
 //        Gdx.gl20.glPolygonOffset(factor, units);
+        final SharedModelCache.Key key = SharedModelCache.key("triangle", material, usageCode,
+            p1.x, p1.y, p1.z, p2.x, p2.y, p2.z, p3.x, p3.y, p3.z,
+            c1 == null ? -1f : c1.toFloatBits(), c2 == null ? -1f : c2.toFloatBits(), c3 == null ? -1f : c3.toFloatBits());
+        final Model model = SharedModelCache.obtain(key);
+        if (model != null) return model;
         AdvModelBuilder mb = new AdvModelBuilder(); // TODO mb = input parameter
-        return mb.createTria(p1, c1, p2, c2, p3, c3, material, usageCode);
+        return SharedModelCache.add(key, mb.createTria(p1, c1, p2, c2, p3, c3, material, usageCode));
 //        return modelBuilder.createRect(0, 0, 0, width, 0, 0, width, height, 0, 0, height, 0, 0, 0, 1, material, usageCode) ;
     }
 
@@ -0,0 +1,123 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import java.nio.ByteBuffer;
+import java.util.WeakHashMap;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+
+/** One bit per pixel of a texture region, set where the pixel is opaque, so picks can pass through transparent pixels without
+ * reading the texture. A mask is built once per region by {@link #obtain(TextureRegion)} and shared by all regions with the same
+ * texture and texture coordinates, it is dropped with the texture.
+ * <p>
+ * A pixel is opaque if its alpha is at least {@link #THRESHOLD}. The pixels are read from the texture data, which is loaded
+ * again for textures from files. Textures whose pixels can't be read, such as compressed ones, have a mask that is opaque
+ * everywhere. */
+public final class AlphaMask {
+    /** The alpha from which a pixel is opaque, out of 255. */
+    public static final int THRESHOLD = 128;
+
+    private static final WeakHashMap<Texture, Array<AlphaMask>> masks = new WeakHashMap<>();
+
+    private final float u, v, u2, v2;
+    private final int width, height;
+    /** The rows of the region from top to bottom, or null if every pixel is opaque. */
+    private final long[] bits;
+
+    private AlphaMask (TextureRegion region, Pixmap pixmap) {
+        u = region.getU();
+        v = region.getV();
+        u2 = region.getU2();
+        v2 = region.getV2();
+        width = Math.max(1, Math.abs(region.getRegionWidth()));
+        height = Math.max(1, Math.abs(region.getRegionHeight()));
+        bits = pixmap != null ? createBits(pixmap) : null;
+    }
+
+    /** Returns the mask of the region, building it on the first call. Texture data is loaded and consumed while building, so
+     * building is synchronized and blocks other calls, including picks running in parallel. Call this before picking to build
+     * the mask ahead, as {@link ardash.gdx.scenes.scene3d.shape.Image3D} does when its hit mode is set to mesh. */
+    public static synchronized AlphaMask obtain (TextureRegion region) {
+        final Texture texture = region.getTexture();
+        Array<AlphaMask> textureMasks = masks.get(texture);
+        if (textureMasks == null) {
+            textureMasks = new Array<>(false, 4);
+            masks.put(texture, textureMasks);
+        }
+        for (int i = 0; i < textureMasks.size; i++) {
+            final AlphaMask mask = textureMasks.get(i);
+            if (mask.u == region.getU() && mask.v == region.getV() && mask.u2 == region.getU2() && mask.v2 == region.getV2())
+                return mask;
+        }
+        final AlphaMask mask = create(region);
+        textureMasks.add(mask);
+        return mask;
+    }
+
+    /** Removes the masks of the texture, so they are built again from its current pixels. */
+    public static synchronized void invalidate (Texture texture) {
+        masks.remove(texture);
+    }
+
+    private static AlphaMask create (TextureRegion region) {
+        final TextureData data = region.getTexture().getTextureData();
+        // a prepared pixmap that is disposed after use belongs to the texture's own upload
+        if (data.getType() != TextureData.TextureDataType.Pixmap || data.isPrepared() && data.disposePixmap())
+            return new AlphaMask(region, null);
+        if (!data.isPrepared()) data.prepare();
+        final Pixmap pixmap = data.consumePixmap();
+        try {
+            return new AlphaMask(region, pixmap);
+        } finally {
+            if (data.disposePixmap()) pixmap.dispose();
+        }
+    }
+
+    /** Samples the pixmap at the center of each pixel of the region, following the texture coordinates so flipped regions are
+     * sampled flipped. */
+    private long[] createBits (Pixmap pixmap) {
+        final int pixmapWidth = pixmap.getWidth(), pixmapHeight = pixmap.getHeight();
+        final boolean rgba8888 = pixmap.getFormat() == Pixmap.Format.RGBA8888;
+        final ByteBuffer pixels = rgba8888 ? pixmap.getPixels() : null;
+        final long[] bits = new long[(width * height + 63) >>> 6];
+        boolean transparent = false;
+        for (int y = 0; y < height; y++) {
+            final float tv = v + (v2 - v) * (y + 0.5f) / height;
+            final int py = Math.min(Math.max((int)(tv * pixmapHeight), 0), pixmapHeight - 1);
+            for (int x = 0; x < width; x++) {
+                final float tu = u + (u2 - u) * (x + 0.5f) / width;
+                final int px = Math.min(Math.max((int)(tu * pixmapWidth), 0), pixmapWidth - 1);
+                final int alpha = rgba8888 ? pixels.get((py * pixmapWidth + px) * 4 + 3) & 0xFF : pixmap.getPixel(px, py) & 0xFF;
+                if (alpha >= THRESHOLD) {
+                    final int bit = y * width + x;
+                    bits[bit >>> 6] |= 1L << bit;
+                } else
+                    transparent = true;
+            }
+        }
+        return transparent ? bits : null;
+    }
+
+    public int getWidth () {
+        return width;
+    }
+
+    public int getHeight () {
+        return height;
+    }
+
+    /** @param u the horizontal position in the region, from 0 at the left to 1 at the right edge.
+     * @param v the vertical position in the region, from 0 at the top to 1 at the bottom edge.
+     * @return true if the pixel at the position is opaque. Positions outside the region are clamped to its edges. */
+    public boolean isOpaque (float u, float v) {
+        final long[] bits = this.bits;
+        if (bits == null) return true;
+        final int x = Math.min(Math.max((int)(u * width), 0), width - 1);
+        final int y = Math.min(Math.max((int)(v * height), 0), height - 1);
+        final int bit = y * width + x;
+        return (bits[bit >>> 6] & 1L << bit) != 0;
+    }
+}
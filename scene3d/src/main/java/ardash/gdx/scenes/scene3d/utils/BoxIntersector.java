@@ -0,0 +1,82 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.collision.BoundingBox;
+
+/**
+ * Tests whether two boxes given in model space overlap once each is transformed to world space, using the separating axis
+ * theorem. A transformed box is a parallelepiped, so rotation, scale and the shear of a non-uniformly scaled parent are all
+ * handled. The axes tested are the three face normals of each box and the nine cross products of their edges.
+ * <p>
+ * The intersector keeps its scratch space in fields, so it does not allocate. Use one instance per thread.
+ */
+public class BoxIntersector {
+    /** The three half edge vectors of each box, x, y and z of each. */
+    private final float[] edgesA = new float[9], edgesB = new float[9];
+    private final float[] axis = new float[3];
+
+    /** @return true if the boxes overlap or touch. Invalid boxes never overlap. */
+    public boolean overlaps (BoundingBox a, Matrix4 transformA, BoundingBox b, Matrix4 transformB) {
+        if (!a.isValid() || !b.isValid()) return false;
+        final float[] ea = edgesA, eb = edgesB;
+        final float[] ma = transformA.val, mb = transformB.val;
+        halfEdges(a, ma, ea);
+        halfEdges(b, mb, eb);
+        // the vector between the centers
+        final float cax = (a.min.x + a.max.x) * 0.5f, cay = (a.min.y + a.max.y) * 0.5f, caz = (a.min.z + a.max.z) * 0.5f;
+        final float cbx = (b.min.x + b.max.x) * 0.5f, cby = (b.min.y + b.max.y) * 0.5f, cbz = (b.min.z + b.max.z) * 0.5f;
+        final float dx = mb[Matrix4.M00] * cbx + mb[Matrix4.M01] * cby + mb[Matrix4.M02] * cbz + mb[Matrix4.M03]
+            - (ma[Matrix4.M00] * cax + ma[Matrix4.M01] * cay + ma[Matrix4.M02] * caz + ma[Matrix4.M03]);
+        final float dy = mb[Matrix4.M10] * cbx + mb[Matrix4.M11] * cby + mb[Matrix4.M12] * cbz + mb[Matrix4.M13]
+            - (ma[Matrix4.M10] * cax + ma[Matrix4.M11] * cay + ma[Matrix4.M12] * caz + ma[Matrix4.M13]);
+        final float dz = mb[Matrix4.M20] * cbx + mb[Matrix4.M21] * cby + mb[Matrix4.M22] * cbz + mb[Matrix4.M23]
+            - (ma[Matrix4.M20] * cax + ma[Matrix4.M21] * cay + ma[Matrix4.M22] * caz + ma[Matrix4.M23]);
+
+        // face normals of each box
+        for (int i = 0; i < 3; i++) {
+            if (separates(ea, (i + 1) % 3, ea, (i + 2) % 3, dx, dy, dz)) return false;
+            if (separates(eb, (i + 1) % 3, eb, (i + 2) % 3, dx, dy, dz)) return false;
+        }
+        // edge against edge
+        for (int i = 0; i < 3; i++)
+            for (int j = 0; j < 3; j++)
+                if (separates(ea, i, eb, j, dx, dy, dz)) return false;
+        return true;
+    }
+
+    /** Sets the half edge vectors of the transformed box, these are the columns of the transform scaled by the half extents. */
+    private static void halfEdges (BoundingBox box, float[] m, float[] out) {
+        final float ex = (box.max.x - box.min.x) * 0.5f, ey = (box.max.y - box.min.y) * 0.5f, ez = (box.max.z - box.min.z) * 0.5f;
+        out[0] = m[Matrix4.M00] * ex;
+        out[1] = m[Matrix4.M10] * ex;
+        out[2] = m[Matrix4.M20] * ex;
+        out[3] = m[Matrix4.M01] * ey;
+        out[4] = m[Matrix4.M11] * ey;
+        out[5] = m[Matrix4.M21] * ey;
+        out[6] = m[Matrix4.M02] * ez;
+        out[7] = m[Matrix4.M12] * ez;
+        out[8] = m[Matrix4.M22] * ez;
+    }
+
+    /** Tests the axis that is the cross product of edge i of the first and edge j of the second edge set.
+     * @return true if the projections of the boxes onto the axis are disjoint. */
+    private boolean separates (float[] e1, int i, float[] e2, int j, float dx, float dy, float dz) {
+        final int o1 = i * 3, o2 = j * 3;
+        final float[] l = axis;
+        l[0] = e1[o1 + 1] * e2[o2 + 2] - e1[o1 + 2] * e2[o2 + 1];
+        l[1] = e1[o1 + 2] * e2[o2] - e1[o1] * e2[o2 + 2];
+        l[2] = e1[o1] * e2[o2 + 1] - e1[o1 + 1] * e2[o2];
+        final float length2 = l[0] * l[0] + l[1] * l[1] + l[2] * l[2];
+        // parallel edges give no axis, the other axes cover that case
+        if (length2 < 1e-12f) return false;
+        final float distance = Math.abs(dx * l[0] + dy * l[1] + dz * l[2]);
+        return distance > radius(edgesA, l) + radius(edgesB, l);
+    }
+
+    /** @return the half length of the projection of a box onto the axis. */
+    private static float radius (float[] edges, float[] l) {
+        return Math.abs(edges[0] * l[0] + edges[1] * l[1] + edges[2] * l[2])
+            + Math.abs(edges[3] * l[0] + edges[4] * l[1] + edges[5] * l[2])
+            + Math.abs(edges[6] * l[0] + edges[7] * l[1] + edges[8] * l[2]);
+    }
+}
@@ -0,0 +1,478 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import com.badlogic.gdx.math.Frustum;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.math.collision.Ray;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * A bounding volume hierarchy over axis aligned boxes that is updated incrementally, as in the dynamic tree of Box2D.
+ * <p>
+ * Each proxy is stored with a fattened box, so an object that moves a little stays inside its box and does not touch the tree.
+ * Only when it leaves the fat box the leaf is removed and inserted again, which is O(log n). The tree is kept balanced with
+ * rotations, so queries take logarithmic time as well.
+ * <p>
+ * Nodes are stored in primitive arrays and recycled through a free list, so the tree does not allocate once it reached its
+ * working size. Queries are not thread safe.
+ */
+public class DynamicBvh<T> {
+    public static final int NULL = -1;
+
+    /** Receives the proxies found by a box or frustum query. */
+    public interface QueryCallback<T> {
+        /** @return false to stop the query. */
+        boolean report (T data);
+    }
+
+    /** Receives the proxies whose fat box is hit by a ray, roughly nearest first. */
+    public interface RayCallback<T> {
+        /** @param maxDistance the distance along the ray that is still searched.
+         * @return the new maximum distance, typically the distance of a hit or maxDistance to continue unchanged. 0 stops the
+         *         raycast. */
+        float report (T data, Ray ray, float maxDistance);
+    }
+
+    private float[] bounds; // minX, minY, minZ, maxX, maxY, maxZ per node
+    private int[] parent, child1, child2, height;
+    private Object[] data;
+    private int capacity, nodeCount, freeList;
+    private int root = NULL;
+
+    private float margin = 0.05f, relativeMargin = 0.1f;
+
+    private final IntArray stack = new IntArray(64);
+
+    public DynamicBvh () {
+        this(16);
+    }
+
+    public DynamicBvh (int initialCapacity) {
+        capacity = Math.max(1, initialCapacity);
+        bounds = new float[capacity * 6];
+        parent = new int[capacity];
+        child1 = new int[capacity];
+        child2 = new int[capacity];
+        height = new int[capacity];
+        data = new Object[capacity];
+        linkFreeNodes(0);
+    }
+
+    /** Sets how far the stored boxes extend beyond the actual boxes, as an absolute distance plus a fraction of the box size on
+     * each axis. Larger margins mean fewer reinsertions for moving objects, but more false positives in queries. Applies to
+     * proxies created or moved afterwards. */
+    public void setMargin (float margin, float relativeMargin) {
+        this.margin = margin;
+        this.relativeMargin = relativeMargin;
+    }
+
+    /** Adds a proxy for the specified box.
+     * @return the id of the proxy, to be used for {@link #moveProxy(int, BoundingBox)} and {@link #destroyProxy(int)}. */
+    public int createProxy (BoundingBox aabb, T userData) {
+        final int proxyId = allocateNode();
+        setFatBounds(proxyId, aabb);
+        data[proxyId] = userData;
+        height[proxyId] = 0;
+        insertLeaf(proxyId);
+        return proxyId;
+    }
+
+    public void destroyProxy (int proxyId) {
+        removeLeaf(proxyId);
+        freeNode(proxyId);
+    }
+
+    /** Updates the box of a proxy. Nothing happens if the box is still inside the fat box stored for the proxy.
+     * @return true if the proxy was reinserted. */
+    public boolean moveProxy (int proxyId, BoundingBox aabb) {
+        final int o = proxyId * 6;
+        final float[] b = bounds;
+        if (b[o] <= aabb.min.x && b[o + 1] <= aabb.min.y && b[o + 2] <= aabb.min.z && aabb.max.x <= b[o + 3]
+            && aabb.max.y <= b[o + 4] && aabb.max.z <= b[o + 5]) return false;
+        removeLeaf(proxyId);
+        setFatBounds(proxyId, aabb);
+        insertLeaf(proxyId);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getUserData (int proxyId) {
+        return (T)data[proxyId];
+    }
+
+    /** Sets out to the fat box stored for the proxy. */
+    public BoundingBox getFatBounds (int proxyId, BoundingBox out) {
+        final int o = proxyId * 6;
+        out.min.set(bounds[o], bounds[o + 1], bounds[o + 2]);
+        out.max.set(bounds[o + 3], bounds[o + 4], bounds[o + 5]);
+        return out.set(out.min, out.max);
+    }
+
+    /** Returns the number of proxies in the tree. */
+    public int size () {
+        return (nodeCount + 1) / 2;
+    }
+
+    /** Returns the height of the tree, 0 for a single proxy. */
+    public int getHeight () {
+        return root == NULL ? 0 : height[root];
+    }
+
+    /** Reports every proxy whose fat box overlaps the specified box. */
+    public void query (BoundingBox aabb, QueryCallback<T> callback) {
+        final float[] b = bounds;
+        final IntArray stack = this.stack;
+        stack.clear();
+        if (root != NULL) stack.add(root);
+        while (stack.size > 0) {
+            final int node = stack.pop();
+            final int o = node * 6;
+            if (b[o] > aabb.max.x || b[o + 1] > aabb.max.y || b[o + 2] > aabb.max.z || b[o + 3] < aabb.min.x
+                || b[o + 4] < aabb.min.y || b[o + 5] < aabb.min.z) continue;
+            if (child1[node] == NULL) {
+                if (!callback.report(getUserData(node))) return;
+            } else {
+                stack.add(child1[node]);
+                stack.add(child2[node]);
+            }
+        }
+    }
+
+    /** Reports every proxy whose fat box is at least partially inside the frustum. */
+    public void query (Frustum frustum, QueryCallback<T> callback) {
+        final float[] b = bounds;
+        final IntArray stack = this.stack;
+        stack.clear();
+        if (root != NULL) stack.add(root);
+        while (stack.size > 0) {
+            final int node = stack.pop();
+            final int o = node * 6;
+            final float hx = (b[o + 3] - b[o]) * 0.5f, hy = (b[o + 4] - b[o + 1]) * 0.5f, hz = (b[o + 5] - b[o + 2]) * 0.5f;
+            if (!frustum.boundsInFrustum(b[o] + hx, b[o + 1] + hy, b[o + 2] + hz, hx, hy, hz)) continue;
+            if (child1[node] == NULL) {
+                if (!callback.report(getUserData(node))) return;
+            } else {
+                stack.add(child1[node]);
+                stack.add(child2[node]);
+            }
+        }
+    }
+
+    /** Reports the proxies whose fat box is hit by the ray within maxDistance. Of two overlapping subtrees the nearer one is
+     * visited first, so a callback that clips the ray to its hits prunes most of the tree.
+     * @param ray the direction must be normalized. */
+    public void raycast (Ray ray, float maxDistance, RayCallback<T> callback) {
+        raycast(ray, maxDistance, callback, stack);
+    }
+
+    /** Like {@link #raycast(Ray, float, RayCallback)}, but with the specified traversal stack, so several threads can cast rays
+     * at once while the tree is not changed.
+     * @param stack is cleared before use. */
+    public void raycast (Ray ray, float maxDistance, RayCallback<T> callback, IntArray stack) {
+        final float ox = ray.origin.x, oy = ray.origin.y, oz = ray.origin.z;
+        final float ix = 1f / ray.direction.x, iy = 1f / ray.direction.y, iz = 1f / ray.direction.z;
+        stack.clear();
+        if (root == NULL || rayDistance(root, ox, oy, oz, ix, iy, iz, maxDistance) < 0) return;
+        stack.add(root);
+        while (stack.size > 0) {
+            final int node = stack.pop();
+            if (child1[node] == NULL) {
+                // the box was hit when it was pushed, but the ray may have been clipped since
+                if (rayDistance(node, ox, oy, oz, ix, iy, iz, maxDistance) < 0) continue;
+                final float value = callback.report(getUserData(node), ray, maxDistance);
+                if (value == 0) return;
+                if (value > 0) maxDistance = value;
+                continue;
+            }
+            final int c1 = child1[node], c2 = child2[node];
+            final float d1 = rayDistance(c1, ox, oy, oz, ix, iy, iz, maxDistance);
+            final float d2 = rayDistance(c2, ox, oy, oz, ix, iy, iz, maxDistance);
+            // push the farther child first, so the nearer one is popped next
+            if (d1 >= 0 && d2 >= 0) {
+                if (d1 <= d2) {
+                    stack.add(c2);
+                    stack.add(c1);
+                } else {
+                    stack.add(c1);
+                    stack.add(c2);
+                }
+            } else if (d1 >= 0) {
+                stack.add(c1);
+            } else if (d2 >= 0) {
+                stack.add(c2);
+            }
+        }
+    }
+
+    /** @return the distance along the ray at which it enters the box of the node, or -1 if it misses the box within maxDistance.
+     *         Never NaN. */
+    private float rayDistance (int node, float ox, float oy, float oz, float ix, float iy, float iz, float maxDistance) {
+        final int o = node * 6;
+        final float[] b = bounds;
+        float t1 = (b[o] - ox) * ix, t2 = (b[o + 3] - ox) * ix;
+        float tMin = Math.min(t1, t2), tMax = Math.max(t1, t2);
+        t1 = (b[o + 1] - oy) * iy;
+        t2 = (b[o + 4] - oy) * iy;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+        t1 = (b[o + 2] - oz) * iz;
+        t2 = (b[o + 5] - oz) * iz;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+        // a zero direction component and an origin on the slab boundary give NaN, which spreads through min and max. Such a box
+        // is taken as hit at the origin, the exact tests below it decide.
+        if (tMin != tMin || tMax != tMax) return 0;
+        if (tMax < 0 || tMin > tMax || tMin > maxDistance) return -1;
+        return Math.max(tMin, 0);
+    }
+
+    private void setFatBounds (int node, BoundingBox aabb) {
+        final float ex = margin + relativeMargin * (aabb.max.x - aabb.min.x);
+        final float ey = margin + relativeMargin * (aabb.max.y - aabb.min.y);
+        final float ez = margin + relativeMargin * (aabb.max.z - aabb.min.z);
+        final int o = node * 6;
+        bounds[o] = aabb.min.x - ex;
+        bounds[o + 1] = aabb.min.y - ey;
+        bounds[o + 2] = aabb.min.z - ez;
+        bounds[o + 3] = aabb.max.x + ex;
+        bounds[o + 4] = aabb.max.y + ey;
+        bounds[o + 5] = aabb.max.z + ez;
+    }
+
+    private int allocateNode () {
+        if (freeList == NULL) {
+            final int oldCapacity = capacity;
+            capacity *= 2;
+            bounds = copyOf(bounds, capacity * 6);
+            parent = copyOf(parent, capacity);
+            child1 = copyOf(child1, capacity);
+            child2 = copyOf(child2, capacity);
+            height = copyOf(height, capacity);
+            Object[] newData = new Object[capacity];
+            System.arraycopy(data, 0, newData, 0, oldCapacity);
+            data = newData;
+            linkFreeNodes(oldCapacity);
+        }
+        final int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        child1[node] = NULL;
+        child2[node] = NULL;
+        height[node] = 0;
+        nodeCount++;
+        return node;
+    }
+
+    private void freeNode (int node) {
+        parent[node] = freeList;
+        data[node] = null;
+        height[node] = -1;
+        freeList = node;
+        nodeCount--;
+    }
+
+    /** Links the nodes from start to the end of the arrays into the free list, using the parent array as next pointer. */
+    private void linkFreeNodes (int start) {
+        for (int i = start; i < capacity - 1; i++) {
+            parent[i] = i + 1;
+            height[i] = -1;
+        }
+        parent[capacity - 1] = NULL;
+        height[capacity - 1] = -1;
+        freeList = start;
+    }
+
+    private void insertLeaf (int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[leaf] = NULL;
+            return;
+        }
+
+        // find the best sibling, the one whose enlargement costs the least surface area
+        final int l = leaf * 6;
+        int index = root;
+        while (child1[index] != NULL) {
+            final int c1 = child1[index], c2 = child2[index];
+            final float area = area(index);
+            final float combinedArea = unionArea(index, l);
+            final float cost = 2 * combinedArea;
+            final float inheritanceCost = 2 * (combinedArea - area);
+            float cost1 = unionArea(c1, l) + inheritanceCost;
+            if (child1[c1] != NULL) cost1 -= area(c1);
+            float cost2 = unionArea(c2, l) + inheritanceCost;
+            if (child1[c2] != NULL) cost2 -= area(c2);
+            if (cost < cost1 && cost < cost2) break;
+            index = cost1 < cost2 ? c1 : c2;
+        }
+        final int sibling = index;
+
+        final int oldParent = parent[sibling];
+        final int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        data[newParent] = null;
+        union(newParent, sibling, leaf);
+        height[newParent] = height[sibling] + 1;
+        if (oldParent != NULL) {
+            if (child1[oldParent] == sibling)
+                child1[oldParent] = newParent;
+            else
+                child2[oldParent] = newParent;
+        } else {
+            root = newParent;
+        }
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        refit(parent[leaf]);
+    }
+
+    private void removeLeaf (int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+        final int parentNode = parent[leaf];
+        final int grandParent = parent[parentNode];
+        final int sibling = child1[parentNode] == leaf ? child2[parentNode] : child1[parentNode];
+        if (grandParent != NULL) {
+            if (child1[grandParent] == parentNode)
+                child1[grandParent] = sibling;
+            else
+                child2[grandParent] = sibling;
+            parent[sibling] = grandParent;
+            freeNode(parentNode);
+            refit(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(parentNode);
+        }
+        parent[leaf] = NULL;
+    }
+
+    /** Walks from the specified node to the root, rebalancing and recomputing boxes and heights. */
+    private void refit (int index) {
+        while (index != NULL) {
+            index = balance(index);
+            final int c1 = child1[index], c2 = child2[index];
+            height[index] = 1 + Math.max(height[c1], height[c2]);
+            union(index, c1, c2);
+            index = parent[index];
+        }
+    }
+
+    /** Performs a left or right rotation if the subtree of node a is imbalanced.
+     * @return the new root of the subtree. */
+    private int balance (int a) {
+        if (child1[a] == NULL || height[a] < 2) return a;
+        final int b = child1[a], c = child2[a];
+        final int balance = height[c] - height[b];
+
+        if (balance > 1) {
+            // rotate c up
+            final int f = child1[c], g = child2[c];
+            child1[c] = a;
+            parent[c] = parent[a];
+            parent[a] = c;
+            replaceChild(parent[c], a, c);
+            if (height[f] > height[g]) {
+                child2[c] = f;
+                child2[a] = g;
+                parent[g] = a;
+                union(a, b, g);
+                union(c, a, f);
+                height[a] = 1 + Math.max(height[b], height[g]);
+                height[c] = 1 + Math.max(height[a], height[f]);
+            } else {
+                child2[c] = g;
+                child2[a] = f;
+                parent[f] = a;
+                union(a, b, f);
+                union(c, a, g);
+                height[a] = 1 + Math.max(height[b], height[f]);
+                height[c] = 1 + Math.max(height[a], height[g]);
+            }
+            return c;
+        }
+
+        if (balance < -1) {
+            // rotate b up
+            final int d = child1[b], e = child2[b];
+            child1[b] = a;
+            parent[b] = parent[a];
+            parent[a] = b;
+            replaceChild(parent[b], a, b);
+            if (height[d] > height[e]) {
+                child2[b] = d;
+                child1[a] = e;
+                parent[e] = a;
+                union(a, c, e);
+                union(b, a, d);
+                height[a] = 1 + Math.max(height[c], height[e]);
+                height[b] = 1 + Math.max(height[a], height[d]);
+            } else {
+                child2[b] = e;
+                child1[a] = d;
+                parent[d] = a;
+                union(a, c, d);
+                union(b, a, e);
+                height[a] = 1 + Math.max(height[c], height[d]);
+                height[b] = 1 + Math.max(height[a], height[e]);
+            }
+            return b;
+        }
+        return a;
+    }
+
+    private void replaceChild (int parentNode, int oldChild, int newChild) {
+        if (parentNode == NULL)
+            root = newChild;
+        else if (child1[parentNode] == oldChild)
+            child1[parentNode] = newChild;
+        else
+            child2[parentNode] = newChild;
+    }
+
+    /** Sets the box of node to enclose the boxes of nodes a and b. */
+    private void union (int node, int a, int b) {
+        final float[] bo = bounds;
+        final int o = node * 6, oa = a * 6, ob = b * 6;
+        bo[o] = Math.min(bo[oa], bo[ob]);
+        bo[o + 1] = Math.min(bo[oa + 1], bo[ob + 1]);
+        bo[o + 2] = Math.min(bo[oa + 2], bo[ob + 2]);
+        bo[o + 3] = Math.max(bo[oa + 3], bo[ob + 3]);
+        bo[o + 4] = Math.max(bo[oa + 4], bo[ob + 4]);
+        bo[o + 5] = Math.max(bo[oa + 5], bo[ob + 5]);
+    }
+
+    private float area (int node) {
+        final float[] b = bounds;
+        final int o = node * 6;
+        final float dx = b[o + 3] - b[o], dy = b[o + 4] - b[o + 1], dz = b[o + 5] - b[o + 2];
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /** @return the surface area of the box enclosing the node and the box at offset l. */
+    private float unionArea (int node, int l) {
+        final float[] b = bounds;
+        final int o = node * 6;
+        final float dx = Math.max(b[o + 3], b[l + 3]) - Math.min(b[o], b[l]);
+        final float dy = Math.max(b[o + 4], b[l + 4]) - Math.min(b[o + 1], b[l + 1]);
+        final float dz = Math.max(b[o + 5], b[l + 5]) - Math.min(b[o + 2], b[l + 2]);
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    private static float[] copyOf (float[] array, int length) {
+        float[] copy = new float[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    private static int[] copyOf (int[] array, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+}
@@ -0,0 +1,227 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Records metrics for each frame, such as the time spent in each phase of a frame and the number of actors drawn. The last
+ * frames are kept in a ring buffer and the time metrics also go into histograms, from which {@link #getStats(Stats)} computes
+ * percentiles.
+ * <p>
+ * One thread, usually the render thread, records frames while other threads may query the stats at any time without locking.
+ * When the profiler is disabled, recording is skipped entirely, the only cost is checking {@link #isEnabled()}. */
+public class FrameProfiler {
+    /** Time metrics in nanoseconds. The frame time is the time between the ends of two frames, the others are phases within a
+     * frame. */
+    public static final int ACT_TIME = 0, TRANSFORM_TIME = 1, CULL_TIME = 2, SUBMIT_TIME = 3, RENDER_TIME = 4, FRAME_TIME = 5;
+    /** Count metrics. */
+    public static final int ACTORS = 6, ACTIONS = 7, VISIBLE = 8, CULLED = 9, RENDERABLES = 10;
+    public static final int METRIC_COUNT = 11;
+    static final int TIME_METRIC_COUNT = 6;
+
+    private static final String[] names = {"act", "transform", "cull", "submit", "render", "frame", "actors", "actions",
+        "visible", "culled", "renderables"};
+
+    private volatile boolean enabled;
+    private final int capacity;
+    /** METRIC_COUNT values per frame, frame n is at (n % capacity) * METRIC_COUNT. */
+    private final AtomicLongArray ring;
+    /** The number of frames recorded, a frame is complete in the ring once this counts it. */
+    private final AtomicLong frames = new AtomicLong();
+    private final long[] current = new long[METRIC_COUNT];
+    private final Histogram[] histograms = new Histogram[TIME_METRIC_COUNT];
+    private long lastFrameEnd;
+
+    public FrameProfiler () {
+        this(300);
+    }
+
+    /** @param capacity the number of frames kept in the ring buffer. */
+    public FrameProfiler (int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+        this.capacity = capacity;
+        ring = new AtomicLongArray(capacity * METRIC_COUNT);
+        for (int i = 0; i < TIME_METRIC_COUNT; i++)
+            histograms[i] = new Histogram();
+    }
+
+    public boolean isEnabled () {
+        return enabled;
+    }
+
+    /** Turns recording on or off. Default is off. */
+    public void setEnabled (boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** Adds the time elapsed since start to a time metric of the current frame.
+     * @return the current time, so consecutive phases can be measured with one call each. */
+    public long lap (int metric, long start) {
+        final long now = System.nanoTime();
+        current[metric] += now - start;
+        return now;
+    }
+
+    /** Sets a metric of the current frame. */
+    public void set (int metric, long value) {
+        current[metric] = value;
+    }
+
+    /** Adds to a metric of the current frame. */
+    public void add (int metric, long value) {
+        current[metric] += value;
+    }
+
+    /** Completes the current frame, stores it in the ring buffer and the histograms and starts the next one. */
+    public void endFrame () {
+        final long now = System.nanoTime();
+        if (lastFrameEnd != 0) current[FRAME_TIME] = now - lastFrameEnd;
+        lastFrameEnd = now;
+        final long frame = frames.get();
+        final int offset = (int)(frame % capacity) * METRIC_COUNT;
+        final long[] current = this.current;
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            ring.lazySet(offset + i, current[i]);
+            if (i < TIME_METRIC_COUNT) histograms[i].record(current[i]);
+            current[i] = 0;
+        }
+        frames.set(frame + 1);
+    }
+
+    /** @return the number of frames recorded since the profiler was created or {@link #reset()}. */
+    public long getFrameCount () {
+        return frames.get();
+    }
+
+    /** Copies the values of a metric for the most recent frames, oldest first.
+     * @return the number of values copied, at most the capacity of the ring buffer and the length of the array. */
+    public int getRecent (int metric, long[] out) {
+        final long end = frames.get();
+        final int count = (int)Math.min(Math.min(end, capacity), out.length);
+        for (int i = 0; i < count; i++) {
+            final long frame = end - count + i;
+            out[i] = ring.get((int)(frame % capacity) * METRIC_COUNT + metric);
+        }
+        return count;
+    }
+
+    /** Discards all recorded frames. Must not be called while a frame is being recorded on another thread. */
+    public void reset () {
+        frames.set(0);
+        lastFrameEnd = 0;
+        for (int i = 0; i < METRIC_COUNT; i++)
+            current[i] = 0;
+        for (int i = 0; i < TIME_METRIC_COUNT; i++)
+            histograms[i].reset();
+    }
+
+    /** Fills the stats with the last frame, the averages over the frames in the ring buffer and, for time metrics, the
+     * percentiles over all frames since the last {@link #reset()}.
+     * @return the specified stats. */
+    public Stats getStats (Stats out) {
+        final long end = frames.get();
+        final int count = (int)Math.min(end, capacity);
+        out.frames = end;
+        for (int metric = 0; metric < METRIC_COUNT; metric++) {
+            long sum = 0, last = 0;
+            for (int i = 0; i < count; i++) {
+                last = ring.get((int)((end - count + i) % capacity) * METRIC_COUNT + metric);
+                sum += last;
+            }
+            out.last[metric] = last;
+            out.mean[metric] = count == 0 ? 0 : sum / count;
+            if (metric < TIME_METRIC_COUNT) {
+                final Histogram histogram = histograms[metric];
+                out.p50[metric] = histogram.percentile(0.5);
+                out.p90[metric] = histogram.percentile(0.9);
+                out.p99[metric] = histogram.percentile(0.99);
+                out.max[metric] = histogram.max();
+            }
+        }
+        return out;
+    }
+
+    /** @return the name of a metric, for display. */
+    public static String getName (int metric) {
+        return names[metric];
+    }
+
+    /** A snapshot of the profiler's metrics, indexed by metric. Percentiles and maximum are only filled for time metrics. */
+    public static class Stats {
+        public long frames;
+        public final long[] last = new long[METRIC_COUNT];
+        public final long[] mean = new long[METRIC_COUNT];
+        public final long[] p50 = new long[METRIC_COUNT];
+        public final long[] p90 = new long[METRIC_COUNT];
+        public final long[] p99 = new long[METRIC_COUNT];
+        public final long[] max = new long[METRIC_COUNT];
+
+        @Override
+        public String toString () {
+            final StringBuilder buffer = new StringBuilder(512);
+            buffer.append(frames).append(" frames");
+            for (int i = 0; i < METRIC_COUNT; i++) {
+                buffer.append('\n').append(names[i]).append(": ");
+                if (i < TIME_METRIC_COUNT) {
+                    buffer.append("mean ").append(mean[i] / 1000).append(" us, p50 ").append(p50[i] / 1000).append(" us, p90 ")
+                        .append(p90[i] / 1000).append(" us, p99 ").append(p99[i] / 1000).append(" us, max ").append(max[i] / 1000)
+                        .append(" us");
+                } else {
+                    buffer.append("last ").append(last[i]).append(", mean ").append(mean[i]);
+                }
+            }
+            return buffer.toString();
+        }
+    }
+
+    /** A histogram with logarithmic buckets, each power of two is split into 8 buckets, so percentiles are accurate to 12.5%. */
+    static class Histogram {
+        private static final int SUB_BITS = 3, SUB_BUCKETS = 1 << SUB_BITS;
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final AtomicLong total = new AtomicLong(), max = new AtomicLong();
+
+        void record (long value) {
+            if (value < 0) value = 0;
+            counts.incrementAndGet(bucket(value));
+            total.incrementAndGet();
+            if (value > max.get()) max.set(value);
+        }
+
+        static int bucket (long value) {
+            if (value < SUB_BUCKETS) return (int)value;
+            final int exponent = 63 - Long.numberOfLeadingZeros(value);
+            final int sub = (int)(value >>> (exponent - SUB_BITS)) & SUB_BUCKETS - 1;
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        /** @return the largest value that falls into the bucket. */
+        static long bucketLimit (int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            final int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            final long sub = bucket % SUB_BUCKETS;
+            return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        }
+
+        long percentile (double fraction) {
+            final long total = this.total.get();
+            if (total == 0) return 0;
+            final long rank = Math.max(1, (long)Math.ceil(total * fraction));
+            long seen = 0;
+            for (int i = 0, n = counts.length(); i < n; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return Math.min(bucketLimit(i), max.get());
+            }
+            return max.get();
+        }
+
+        long max () {
+            return max.get();
+        }
+
+        void reset () {
+            for (int i = 0, n = counts.length(); i < n; i++)
+                counts.set(i, 0);
+            total.set(0);
+            max.set(0);
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * A loose octree over axis aligned boxes. Each cell is enlarged to twice its size, so an object belongs to the cell containing
+ * its center at the depth where its size fits the cell. Finding that cell takes one descent, without testing neighbours, and a
+ * moving object only touches the tree when it crosses a cell boundary.
+ * <p>
+ * Objects whose center is outside the root cell are kept in the root, which is always searched. Nodes and objects are stored in
+ * primitive arrays and recycled through free lists, and queries write into arrays passed by the caller, so the tree does not
+ * allocate once it reached its working size. Queries are not thread safe.
+ */
+public class LooseOctree<T> {
+    public static final int NULL = -1;
+
+    private final float centerX, centerY, centerZ, halfSize;
+    private final int maxDepth;
+
+    // nodes
+    private int[] children; // 8 per node
+    private int[] first, count, nodeParent;
+    private float[] nodeBounds; // centerX, centerY, centerZ, halfSize of the cell per node
+    private int nodeCapacity, freeNodes;
+
+    // objects
+    private float[] bounds; // minX, minY, minZ, maxX, maxY, maxZ per object
+    private int[] node, next, previous;
+    private Object[] data;
+    private int capacity, size, freeList;
+
+    private final IntArray stack = new IntArray(64);
+    private int[] heap = new int[16];
+    private float[] heapDistances = new float[16];
+
+    /** @param halfSize half the size of the root cell, which should enclose most objects.
+     * @param maxDepth the depth of the smallest cells, the root has depth 0. */
+    public LooseOctree (float centerX, float centerY, float centerZ, float halfSize, int maxDepth) {
+        if (halfSize <= 0) throw new IllegalArgumentException("halfSize must be > 0: " + halfSize);
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.centerZ = centerZ;
+        this.halfSize = halfSize;
+        this.maxDepth = maxDepth;
+        nodeCapacity = 16;
+        children = new int[nodeCapacity * 8];
+        first = new int[nodeCapacity];
+        count = new int[nodeCapacity];
+        nodeParent = new int[nodeCapacity];
+        nodeBounds = new float[nodeCapacity * 4];
+        linkFreeNodes(0);
+        createNode(NULL, centerX, centerY, centerZ, halfSize);
+
+        capacity = 16;
+        bounds = new float[capacity * 6];
+        node = new int[capacity];
+        next = new int[capacity];
+        previous = new int[capacity];
+        data = new Object[capacity];
+        linkFreeObjects(0);
+    }
+
+    /** Adds an object with the specified box.
+     * @return the id of the object, to be used for {@link #update(int, BoundingBox)} and {@link #remove(int)}. */
+    public int add (BoundingBox aabb, T userData) {
+        if (freeList == NULL) growObjects();
+        final int id = freeList;
+        freeList = next[id];
+        data[id] = userData;
+        setBounds(id, aabb);
+        insert(id);
+        size++;
+        return id;
+    }
+
+    public void remove (int id) {
+        unlink(id);
+        data[id] = null;
+        node[id] = NULL;
+        next[id] = freeList;
+        freeList = id;
+        size--;
+    }
+
+    /** Updates the box of an object. The object only moves to another node if it crossed a cell boundary or changed its size
+     * enough to fit another depth.
+     * @return true if it moved to another node. */
+    public boolean update (int id, BoundingBox aabb) {
+        setBounds(id, aabb);
+        if (findNode(id, false) == node[id]) return false;
+        unlink(id);
+        insert(id);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getUserData (int id) {
+        return (T)data[id];
+    }
+
+    /** Returns the number of objects in the tree. */
+    public int size () {
+        return size;
+    }
+
+    /** Adds every object whose box overlaps the specified box to out.
+     * @return the number of objects added. */
+    public int query (BoundingBox aabb, Array<T> out) {
+        final float minX = aabb.min.x, minY = aabb.min.y, minZ = aabb.min.z;
+        final float maxX = aabb.max.x, maxY = aabb.max.y, maxZ = aabb.max.z;
+        final float[] b = bounds, nb = nodeBounds;
+        final int start = out.size;
+        final IntArray stack = this.stack;
+        stack.clear();
+        stack.add(0);
+        while (stack.size > 0) {
+            final int current = stack.pop();
+            if (count[current] == 0) continue;
+            if (current != 0) {
+                // the loose bounds of a cell extend twice as far as the cell itself
+                final int o = current * 4;
+                final float extent = nb[o + 3] * 2;
+                if (nb[o] - extent > maxX || nb[o] + extent < minX || nb[o + 1] - extent > maxY || nb[o + 1] + extent < minY
+                    || nb[o + 2] - extent > maxZ || nb[o + 2] + extent < minZ) continue;
+            }
+            for (int id = first[current]; id != NULL; id = next[id]) {
+                final int o = id * 6;
+                if (b[o] > maxX || b[o + 3] < minX || b[o + 1] > maxY || b[o + 4] < minY || b[o + 2] > maxZ || b[o + 5] < minZ)
+                    continue;
+                out.add(getUserData(id));
+            }
+            pushChildren(current);
+        }
+        return out.size - start;
+    }
+
+    /** Adds every object whose box is within the radius of the point to out.
+     * @return the number of objects added. */
+    public int query (float x, float y, float z, float radius, Array<T> out) {
+        final float radius2 = radius * radius;
+        final int start = out.size;
+        final IntArray stack = this.stack;
+        stack.clear();
+        stack.add(0);
+        while (stack.size > 0) {
+            final int current = stack.pop();
+            if (count[current] == 0) continue;
+            if (current != 0 && nodeDistance2(current, x, y, z) > radius2) continue;
+            for (int id = first[current]; id != NULL; id = next[id])
+                if (distance2(id, x, y, z) <= radius2) out.add(getUserData(id));
+            pushChildren(current);
+        }
+        return out.size - start;
+    }
+
+    /** Adds the k objects whose boxes are nearest to the point to out, nearest first. The distance to a box is 0 if the point is
+     * inside.
+     * @param maxDistance objects farther away are ignored.
+     * @return the number of objects added, less than k if fewer are within maxDistance. */
+    public int nearest (float x, float y, float z, int k, float maxDistance, Array<T> out) {
+        if (k <= 0) return 0;
+        if (heap.length < k) {
+            heap = new int[k];
+            heapDistances = new float[k];
+        }
+        final int[] heap = this.heap;
+        final float[] distances = heapDistances;
+        int found = 0;
+        float limit = maxDistance * maxDistance;
+        final IntArray stack = this.stack;
+        stack.clear();
+        stack.add(0);
+        while (stack.size > 0) {
+            final int current = stack.pop();
+            if (count[current] == 0) continue;
+            if (current != 0 && nodeDistance2(current, x, y, z) > limit) continue;
+            for (int id = first[current]; id != NULL; id = next[id]) {
+                final float distance = distance2(id, x, y, z);
+                if (distance > limit) continue;
+                if (found < k) {
+                    siftUp(heap, distances, found++, id, distance);
+                    if (found == k) limit = distances[0];
+                } else if (distance < distances[0]) {
+                    siftDown(heap, distances, 0, found, id, distance);
+                    limit = distances[0];
+                }
+            }
+            pushChildren(current);
+        }
+        // sort the max heap in place, nearest first
+        for (int n = found - 1; n > 0; n--) {
+            final int id = heap[n];
+            final float distance = distances[n];
+            heap[n] = heap[0];
+            distances[n] = distances[0];
+            siftDown(heap, distances, 0, n, id, distance);
+        }
+        for (int i = 0; i < found; i++)
+            out.add(getUserData(heap[i]));
+        return found;
+    }
+
+    private static void siftUp (int[] heap, float[] distances, int index, int id, float distance) {
+        while (index > 0) {
+            final int parent = (index - 1) >> 1;
+            if (distances[parent] >= distance) break;
+            heap[index] = heap[parent];
+            distances[index] = distances[parent];
+            index = parent;
+        }
+        heap[index] = id;
+        distances[index] = distance;
+    }
+
+    private static void siftDown (int[] heap, float[] distances, int index, int size, int id, float distance) {
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= size) break;
+            if (child + 1 < size && distances[child + 1] > distances[child]) child++;
+            if (distances[child] <= distance) break;
+            heap[index] = heap[child];
+            distances[index] = distances[child];
+            index = child;
+        }
+        heap[index] = id;
+        distances[index] = distance;
+    }
+
+    private void pushChildren (int current) {
+        final int[] children = this.children;
+        for (int i = current * 8, n = i + 8; i < n; i++)
+            if (children[i] != NULL) stack.add(children[i]);
+    }
+
+    /** @return the squared distance from the point to the box of the object. */
+    private float distance2 (int id, float x, float y, float z) {
+        final int o = id * 6;
+        final float[] b = bounds;
+        final float dx = Math.max(0, Math.max(b[o] - x, x - b[o + 3]));
+        final float dy = Math.max(0, Math.max(b[o + 1] - y, y - b[o + 4]));
+        final float dz = Math.max(0, Math.max(b[o + 2] - z, z - b[o + 5]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /** @return the squared distance from the point to the loose bounds of the node. */
+    private float nodeDistance2 (int current, float x, float y, float z) {
+        final int o = current * 4;
+        final float[] nb = nodeBounds;
+        final float extent = nb[o + 3] * 2;
+        final float dx = Math.max(0, Math.abs(x - nb[o]) - extent);
+        final float dy = Math.max(0, Math.abs(y - nb[o + 1]) - extent);
+        final float dz = Math.max(0, Math.abs(z - nb[o + 2]) - extent);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void setBounds (int id, BoundingBox aabb) {
+        final int o = id * 6;
+        bounds[o] = aabb.min.x;
+        bounds[o + 1] = aabb.min.y;
+        bounds[o + 2] = aabb.min.z;
+        bounds[o + 3] = aabb.max.x;
+        bounds[o + 4] = aabb.max.y;
+        bounds[o + 5] = aabb.max.z;
+    }
+
+    /** Descends to the node the object belongs to.
+     * @param create whether missing nodes are created, otherwise the deepest existing node is returned. */
+    private int findNode (int id, boolean create) {
+        final int o = id * 6;
+        final float[] b = bounds;
+        final float x = (b[o] + b[o + 3]) * 0.5f, y = (b[o + 1] + b[o + 4]) * 0.5f, z = (b[o + 2] + b[o + 5]) * 0.5f;
+        final float extent = Math.max(Math.max(b[o + 3] - b[o], b[o + 4] - b[o + 1]), b[o + 5] - b[o + 2]) * 0.5f;
+        if (Math.abs(x - centerX) > halfSize || Math.abs(y - centerY) > halfSize || Math.abs(z - centerZ) > halfSize) return 0;
+        int current = 0;
+        float cx = centerX, cy = centerY, cz = centerZ, half = halfSize;
+        for (int depth = 0; depth < maxDepth; depth++) {
+            final float childHalf = half * 0.5f;
+            // the object fits the loose bounds of a child if it extends no further than the child's cell size from its center
+            if (extent > childHalf) break;
+            int slot = 0;
+            if (x >= cx) {
+                slot |= 1;
+                cx += childHalf;
+            } else {
+                cx -= childHalf;
+            }
+            if (y >= cy) {
+                slot |= 2;
+                cy += childHalf;
+            } else {
+                cy -= childHalf;
+            }
+            if (z >= cz) {
+                slot |= 4;
+                cz += childHalf;
+            } else {
+                cz -= childHalf;
+            }
+            int child = children[current * 8 + slot];
+            if (child == NULL) {
+                if (!create) return current;
+                child = createNode(current, cx, cy, cz, childHalf);
+                children[current * 8 + slot] = child;
+            }
+            current = child;
+            half = childHalf;
+        }
+        return current;
+    }
+
+    private void insert (int id) {
+        final int target = findNode(id, true);
+        node[id] = target;
+        previous[id] = NULL;
+        next[id] = first[target];
+        if (first[target] != NULL) previous[first[target]] = id;
+        first[target] = id;
+        for (int current = target; current != NULL; current = nodeParent[current])
+            count[current]++;
+    }
+
+    private void unlink (int id) {
+        final int target = node[id];
+        if (previous[id] != NULL)
+            next[previous[id]] = next[id];
+        else
+            first[target] = next[id];
+        if (next[id] != NULL) previous[next[id]] = previous[id];
+        for (int current = target; current != NULL; current = nodeParent[current])
+            count[current]--;
+        // free the empty nodes on the way up, the root is kept
+        int current = target;
+        while (current != 0 && count[current] == 0) {
+            final int parent = nodeParent[current];
+            for (int i = parent * 8, n = i + 8; i < n; i++) {
+                if (children[i] == current) {
+                    children[i] = NULL;
+                    break;
+                }
+            }
+            freeNode(current);
+            current = parent;
+        }
+    }
+
+    private int createNode (int parent, float cx, float cy, float cz, float half) {
+        if (freeNodes == NULL) growNodes();
+        final int created = freeNodes;
+        freeNodes = nodeParent[created];
+        nodeParent[created] = parent;
+        first[created] = NULL;
+        count[created] = 0;
+        for (int i = created * 8, n = i + 8; i < n; i++)
+            children[i] = NULL;
+        final int o = created * 4;
+        nodeBounds[o] = cx;
+        nodeBounds[o + 1] = cy;
+        nodeBounds[o + 2] = cz;
+        nodeBounds[o + 3] = half;
+        return created;
+    }
+
+    private void freeNode (int current) {
+        nodeParent[current] = freeNodes;
+        freeNodes = current;
+    }
+
+    private void growNodes () {
+        final int oldCapacity = nodeCapacity;
+        nodeCapacity *= 2;
+        children = copyOf(children, nodeCapacity * 8);
+        first = copyOf(first, nodeCapacity);
+        count = copyOf(count, nodeCapacity);
+        nodeParent = copyOf(nodeParent, nodeCapacity);
+        nodeBounds = copyOf(nodeBounds, nodeCapacity * 4);
+        linkFreeNodes(oldCapacity);
+    }
+
+    /** Links the nodes from start to the end of the arrays into the free list, using the parent array as next pointer. */
+    private void linkFreeNodes (int start) {
+        for (int i = start; i < nodeCapacity - 1; i++)
+            nodeParent[i] = i + 1;
+        nodeParent[nodeCapacity - 1] = NULL;
+        freeNodes = start;
+    }
+
+    private void growObjects () {
+        final int oldCapacity = capacity;
+        capacity *= 2;
+        bounds = copyOf(bounds, capacity * 6);
+        node = copyOf(node, capacity);
+        next = copyOf(next, capacity);
+        previous = copyOf(previous, capacity);
+        Object[] newData = new Object[capacity];
+        System.arraycopy(data, 0, newData, 0, oldCapacity);
+        data = newData;
+        linkFreeObjects(oldCapacity);
+    }
+
+    private void linkFreeObjects (int start) {
+        for (int i = start; i < capacity - 1; i++) {
+            next[i] = i + 1;
+            node[i] = NULL;
+        }
+        next[capacity - 1] = NULL;
+        node[capacity - 1] = NULL;
+        freeList = start;
+    }
+
+    private static int[] copyOf (int[] array, int length) {
+        final int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    private static float[] copyOf (float[] array, int length) {
+        final float[] copy = new float[length];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+}
@@ -0,0 +1,9 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+/** Implemented by model batches and renderable sorters that know how many renderables the batch rendered in the last frame.
+ * {@link ardash.gdx.scenes.scene3d.Stage3D} records this count in its profiler. */
+public interface RenderableCounter {
+    /** @return the number of renderables rendered in the last frame. A shader usually issues a draw call for each, but one
+     *         renderable can cost several draw calls or none, so this is not a count of draw calls. */
+    int getRenderableCount ();
+}
@@ -0,0 +1,138 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import java.util.Arrays;
+
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/** Shares the models of identical shapes between actors. A model is identified by a {@link Key} made of the shape, its
+ * parameters, the material and the vertex attributes. Each {@link #obtain(Key)} or {@link #add(Key, Model)} counts a reference
+ * and each {@link #release(Model)} removes one, the model is disposed when the last reference is released.
+ * <p>
+ * Sharing a model is safe because each {@link com.badlogic.gdx.graphics.g3d.ModelInstance} copies the materials, so changing
+ * the color of one actor does not affect the others. */
+public final class SharedModelCache {
+    private static final ObjectMap<Key, Entry> entries = new ObjectMap<>();
+    private static final IdentityMap<Model, Entry> models = new IdentityMap<>();
+
+    private SharedModelCache () {
+    }
+
+    /** @return a new key for a model created by the specified shape with the specified parameters. The material and parameters
+     * are copied. */
+    public static Key key (String shape, Material material, long attributes, float... params) {
+        return new Key(shape, material, attributes, params);
+    }
+
+    /** Returns the model for the key and counts a reference to it, or returns null if there is none and the model has to be
+     * created and {@link #add(Key, Model) added}. */
+    public static synchronized Model obtain (Key key) {
+        final Entry entry = entries.get(key);
+        if (entry == null) return null;
+        entry.references++;
+        return entry.model;
+    }
+
+    /** Adds a model created for the key and counts a reference to it. If another thread added a model for the same key in the
+     * meantime, the specified model is disposed and the one in the cache is returned. */
+    public static synchronized Model add (Key key, Model model) {
+        final Entry existing = entries.get(key);
+        if (existing != null) {
+            if (existing.model != model) model.dispose();
+            existing.references++;
+            return existing.model;
+        }
+        final Entry entry = new Entry(key, model);
+        entries.put(key, entry);
+        models.put(model, entry);
+        return model;
+    }
+
+    /** Removes a reference to the model and disposes it if it was the last one.
+     * @return false if the model is not in the cache. */
+    public static synchronized boolean release (Model model) {
+        final Entry entry = models.get(model);
+        if (entry == null) return false;
+        if (--entry.references == 0) {
+            entries.remove(entry.key);
+            models.remove(model);
+            model.dispose();
+        }
+        return true;
+    }
+
+    /** @return the number of references to the model, or 0 if it is not in the cache. */
+    public static synchronized int getReferences (Model model) {
+        final Entry entry = models.get(model);
+        return entry == null ? 0 : entry.references;
+    }
+
+    /** @return the number of models in the cache. */
+    public static synchronized int size () {
+        return entries.size;
+    }
+
+    /** Disposes all models in the cache, regardless of their references. Call this when the GL context is lost for good. */
+    public static synchronized void clear () {
+        for (Entry entry : entries.values())
+            entry.model.dispose();
+        entries.clear();
+        models.clear();
+    }
+
+    private static final class Entry {
+        final Key key;
+        final Model model;
+        int references = 1;
+
+        Entry (Key key, Model model) {
+            this.key = key;
+            this.model = model;
+        }
+    }
+
+    /** Identifies a shared model. Materials are compared by their attributes, so two materials with different ids but the same
+     * color and texture are the same. */
+    public static final class Key {
+        private final String shape;
+        private final Material material;
+        private final long attributes;
+        private final float[] params;
+        private final int hash;
+
+        Key (String shape, Material material, long attributes, float[] params) {
+            if (shape == null) throw new IllegalArgumentException("shape cannot be null.");
+            this.shape = shape;
+            this.material = material == null ? null : material.copy();
+            this.attributes = attributes;
+            this.params = params.clone();
+            int hash = shape.hashCode();
+            hash = 31 * hash + (material == null ? 0 : material.attributesHash());
+            hash = 31 * hash + (int)(attributes ^ (attributes >>> 32));
+            this.hash = 31 * hash + Arrays.hashCode(params);
+        }
+
+        @Override
+        public int hashCode () {
+            return hash;
+        }
+
+        @Override
+        public boolean equals (Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            final Key other = (Key)obj;
+            if (hash != other.hash || attributes != other.attributes || !shape.equals(other.shape)) return false;
+            if (!Arrays.equals(params, other.params)) return false;
+            if (material == null || other.material == null) return material == other.material;
+            return material.same(other.material, true);
+        }
+
+        @Override
+        public String toString () {
+            return shape + Arrays.toString(params);
+        }
+    }
+}
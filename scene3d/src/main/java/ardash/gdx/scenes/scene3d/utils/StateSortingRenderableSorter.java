@@ -0,0 +1,146 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import java.util.Arrays;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.Shader;
+import com.badlogic.gdx.graphics.g3d.attributes.BlendingAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.TextureAttribute;
+import com.badlogic.gdx.graphics.g3d.utils.DefaultRenderableSorter;
+import com.badlogic.gdx.graphics.g3d.utils.RenderableSorter;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/** Sorts renderables so that the GL state changes as little as possible. Opaque renderables come first, grouped by shader, then
+ * by diffuse texture, then by material and within each group front to back, so the depth test rejects hidden fragments early.
+ * Blended renderables follow, back to front, so they blend correctly.
+ * <p>
+ * The sorter counts the shader, texture and material switches between consecutive renderables before and after sorting, see
+ * {@link #getStateChangesAvoided()}. */
+public class StateSortingRenderableSorter implements RenderableSorter, RenderableCounter {
+    private static final int INDEX_BITS = 21;
+    private static final long BLENDED = 1L << 62;
+
+    private final Vector3 tmp = new Vector3();
+    private final ObjectIntMap<Shader> shaderIds = new ObjectIntMap<>();
+    private final Array<Renderable> sorted = new Array<>(Renderable.class);
+    private final DefaultRenderableSorter fallback = new DefaultRenderableSorter();
+    private long[] keys = new long[64];
+
+    private int stateChangesBefore, stateChangesAfter, renderableCount;
+
+    @Override
+    public void sort (Camera camera, Array<Renderable> renderables) {
+        final int n = renderables.size;
+        renderableCount = n;
+        stateChangesBefore = countStateChanges(renderables);
+        if (n >= 1 << INDEX_BITS) {
+            fallback.sort(camera, renderables);
+            stateChangesAfter = countStateChanges(renderables);
+            return;
+        }
+        if (keys.length < n) keys = new long[Math.max(n, keys.length * 2)];
+        final long[] keys = this.keys;
+        final Vector3 position = camera.position;
+        for (int i = 0; i < n; i++) {
+            final Renderable renderable = renderables.get(i);
+            final float distance = getTranslation(renderable, tmp).dst2(position);
+            final int depth = Float.floatToIntBits(distance);
+            long key;
+            if (isBlended(renderable.material)) {
+                // the largest distance first, 32 bits of depth
+                key = BLENDED | (long)(~depth & 0x7FFFFFFF) << INDEX_BITS;
+            } else {
+                // 8 bits shader, 10 bits texture, 8 bits material and the 14 most significant bits of depth
+                key = (long)shaderId(renderable.shader) << 53 | (long)(textureHandle(renderable.material) & 0x3FF) << 43
+                    | (long)(materialHash(renderable.material) & 0xFF) << 35 | (long)(depth >>> 17) << INDEX_BITS;
+            }
+            keys[i] = key | i;
+        }
+        Arrays.sort(keys, 0, n);
+
+        final Array<Renderable> sorted = this.sorted;
+        sorted.ensureCapacity(n);
+        for (int i = 0; i < n; i++)
+            sorted.add(renderables.get((int)(keys[i] & (1 << INDEX_BITS) - 1)));
+        renderables.clear();
+        renderables.addAll(sorted);
+        sorted.clear();
+        stateChangesAfter = countStateChanges(renderables);
+        if (shaderIds.size > 256) shaderIds.clear();
+    }
+
+    /** @return the number of renderables sorted during the last sort, which are the renderables a batch using this sorter
+     *         rendered in its last flush. */
+    @Override
+    public int getRenderableCount () {
+        return renderableCount;
+    }
+
+    /** @return the number of shader, texture and material switches in the order the renderables were submitted during the last
+     * sort. */
+    public int getStateChangesBefore () {
+        return stateChangesBefore;
+    }
+
+    /** @return the number of shader, texture and material switches in the sorted order during the last sort. */
+    public int getStateChangesAfter () {
+        return stateChangesAfter;
+    }
+
+    /** @return the number of state switches that sorting avoided during the last sort. This can be negative when depth ordering of
+     * blended renderables interleaves their materials. */
+    public int getStateChangesAvoided () {
+        return stateChangesBefore - stateChangesAfter;
+    }
+
+    private int shaderId (Shader shader) {
+        if (shader == null) return 0;
+        int id = shaderIds.get(shader, -1);
+        if (id == -1) {
+            id = shaderIds.size & 0xFF;
+            shaderIds.put(shader, id);
+        }
+        return id;
+    }
+
+    private static int countStateChanges (Array<Renderable> renderables) {
+        int changes = 0;
+        for (int i = 1, n = renderables.size; i < n; i++) {
+            final Renderable a = renderables.get(i - 1), b = renderables.get(i);
+            if (a.shader != b.shader) changes++;
+            if (textureHandle(a.material) != textureHandle(b.material)) changes++;
+            if (a.material != b.material && (a.material == null || b.material == null || !a.material.same(b.material, true)))
+                changes++;
+        }
+        return changes;
+    }
+
+    private static boolean isBlended (Material material) {
+        if (material == null) return false;
+        final BlendingAttribute blending = (BlendingAttribute)material.get(BlendingAttribute.Type);
+        return blending != null && blending.blended;
+    }
+
+    private static int textureHandle (Material material) {
+        if (material == null) return 0;
+        final TextureAttribute texture = (TextureAttribute)material.get(TextureAttribute.Diffuse);
+        return texture == null || texture.textureDescription.texture == null ? 0
+            : texture.textureDescription.texture.getTextureObjectHandle();
+    }
+
+    private static int materialHash (Material material) {
+        return material == null ? 0 : material.attributesHash();
+    }
+
+    private static Vector3 getTranslation (Renderable renderable, Vector3 out) {
+        final Matrix4 transform = renderable.worldTransform;
+        final Vector3 center = renderable.meshPart.center;
+        if (center.isZero()) return transform.getTranslation(out);
+        return out.set(center).mul(transform);
+    }
+}
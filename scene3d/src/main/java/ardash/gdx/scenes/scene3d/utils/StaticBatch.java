@@ -0,0 +1,90 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import com.badlogic.gdx.graphics.g3d.ModelCache;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.RenderableProvider;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.Pool;
+
+/** Merges the world space geometry of many renderable providers into a few meshes, one per material and vertex layout, using a
+ * {@link ModelCache}. The geometry is baked relative to a transform, and can afterwards be moved as a whole by
+ * {@link #setTransform(Matrix4) setting} a new one, which costs one matrix multiplication per merged mesh.
+ * <p>
+ * Providers are baked with the materials and node transforms they have at the time they are added, later changes are not
+ * reflected. */
+public class StaticBatch implements RenderableProvider, Disposable {
+    private final ModelCache cache = new ModelCache();
+    private final Matrix4 inverseBakeTransform = new Matrix4();
+    private final Matrix4 offset = new Matrix4();
+    private final Array<Renderable> renderables = new Array<>(Renderable.class);
+    private final Array<Matrix4> bakedTransforms = new Array<>(Matrix4.class);
+    private boolean building, offsetChanged;
+    private int providerCount;
+
+    /** Starts baking relative to the specified transform. */
+    public void begin (Matrix4 transform) {
+        if (building) throw new IllegalStateException("Call end() first");
+        building = true;
+        providerCount = 0;
+        // a transform that can't be inverted collapses the geometry anyway, so it is baked as it is
+        inverseBakeTransform.set(transform);
+        if (!Matrix4.inv(inverseBakeTransform.val)) inverseBakeTransform.idt();
+        offset.idt();
+        cache.begin();
+    }
+
+    public void add (RenderableProvider provider) {
+        if (!building) throw new IllegalStateException("Call begin() first");
+        cache.add(provider);
+        providerCount++;
+    }
+
+    /** Merges the geometry of the added providers. */
+    public void end () {
+        if (!building) throw new IllegalStateException("Call begin() first");
+        building = false;
+        cache.end();
+        renderables.clear();
+        bakedTransforms.clear();
+        cache.getRenderables(renderables, null);
+        for (int i = 0; i < renderables.size; i++)
+            bakedTransforms.add(new Matrix4(renderables.get(i).worldTransform));
+        renderables.clear();
+        offsetChanged = false;
+    }
+
+    /** Moves the baked geometry. The geometry appears as if its providers were added while the specified transform was the one
+     * passed to {@link #begin(Matrix4)}. */
+    public void setTransform (Matrix4 transform) {
+        offset.set(transform).mul(inverseBakeTransform);
+        offsetChanged = true;
+    }
+
+    /** @return the number of providers that were added. */
+    public int getProviderCount () {
+        return providerCount;
+    }
+
+    /** @return the number of renderables, which is the number of draw calls the baked geometry costs. */
+    public int getRenderableCount () {
+        return bakedTransforms.size;
+    }
+
+    @Override
+    public void getRenderables (Array<Renderable> renderables, Pool<Renderable> pool) {
+        if (building) throw new IllegalStateException("Call end() first");
+        final int start = renderables.size;
+        cache.getRenderables(renderables, pool);
+        if (!offsetChanged) return;
+        offsetChanged = false;
+        for (int i = start, n = renderables.size; i < n; i++)
+            renderables.get(i).worldTransform.set(offset).mul(bakedTransforms.get(i - start));
+    }
+
+    @Override
+    public void dispose () {
+        cache.dispose();
+    }
+}
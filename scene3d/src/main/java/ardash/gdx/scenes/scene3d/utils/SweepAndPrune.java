@@ -0,0 +1,159 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import java.util.Arrays;
+
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.LongArray;
+
+/**
+ * Finds the pairs of overlapping axis aligned boxes by sorting them along the x axis and sweeping over the sorted list, so only
+ * boxes whose x intervals overlap are compared. The sorted order is kept between calls and restored with an insertion sort,
+ * which takes close to linear time when the boxes move a little each frame.
+ * <p>
+ * Boxes are stored in primitive arrays and recycled through a free list, so finding pairs does not allocate once the arrays
+ * reached their working size. Not thread safe.
+ */
+public class SweepAndPrune<T> {
+    public static final int NULL = -1;
+
+    private float[] bounds; // minX, minY, minZ, maxX, maxY, maxZ per box
+    private Object[] data;
+    private int[] next;
+    private int capacity, size, freeList;
+    /** The ids of the boxes, sorted by minimum x as of the last call to findPairs. */
+    private int[] order;
+
+    public SweepAndPrune () {
+        this(16);
+    }
+
+    public SweepAndPrune (int initialCapacity) {
+        capacity = Math.max(1, initialCapacity);
+        bounds = new float[capacity * 6];
+        data = new Object[capacity];
+        next = new int[capacity];
+        order = new int[capacity];
+        linkFree(0);
+    }
+
+    /** Adds a box.
+     * @return the id of the box, to be used for {@link #update(int, BoundingBox)} and {@link #remove(int)}. */
+    public int add (BoundingBox aabb, T userData) {
+        if (freeList == NULL) grow();
+        final int id = freeList;
+        freeList = next[id];
+        next[id] = NULL;
+        data[id] = userData;
+        setBounds(id, aabb);
+        order[size++] = id;
+        return id;
+    }
+
+    public void update (int id, BoundingBox aabb) {
+        setBounds(id, aabb);
+    }
+
+    /** Removes a box. This takes time linear in the number of boxes, as the sorted order is kept. */
+    public void remove (int id) {
+        for (int i = 0; i < size; i++) {
+            if (order[i] == id) {
+                System.arraycopy(order, i + 1, order, i, size - i - 1);
+                break;
+            }
+        }
+        size--;
+        data[id] = null;
+        next[id] = freeList;
+        freeList = id;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getUserData (int id) {
+        return (T)data[id];
+    }
+
+    /** Returns the number of boxes. */
+    public int size () {
+        return size;
+    }
+
+    /** Adds a key for each pair of overlapping boxes to out, sorted ascending. A key holds the smaller id in the upper and the
+     * larger id in the lower 32 bits, see {@link #getFirst(long)} and {@link #getSecond(long)}. Boxes that only touch overlap.
+     * @return the number of pairs added. */
+    public int findPairs (LongArray out) {
+        final float[] b = bounds;
+        final int[] order = this.order;
+        final int size = this.size;
+        for (int i = 1; i < size; i++) {
+            final int id = order[i];
+            final float minX = b[id * 6];
+            int j = i - 1;
+            while (j >= 0 && b[order[j] * 6] > minX) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = id;
+        }
+
+        final int start = out.size;
+        for (int i = 0; i < size; i++) {
+            final int a = order[i];
+            final int oa = a * 6;
+            final float maxX = b[oa + 3];
+            for (int j = i + 1; j < size; j++) {
+                final int other = order[j];
+                final int ob = other * 6;
+                if (b[ob] > maxX) break;
+                if (b[ob + 1] > b[oa + 4] || b[ob + 4] < b[oa + 1] || b[ob + 2] > b[oa + 5] || b[ob + 5] < b[oa + 2]) continue;
+                out.add(a < other ? (long)a << 32 | other : (long)other << 32 | a);
+            }
+        }
+        if (out.size - start > 1) Arrays.sort(out.items, start, out.size);
+        return out.size - start;
+    }
+
+    /** @return the smaller id of a pair key. */
+    public static int getFirst (long key) {
+        return (int)(key >>> 32);
+    }
+
+    /** @return the larger id of a pair key. */
+    public static int getSecond (long key) {
+        return (int)key;
+    }
+
+    private void setBounds (int id, BoundingBox aabb) {
+        final int o = id * 6;
+        bounds[o] = aabb.min.x;
+        bounds[o + 1] = aabb.min.y;
+        bounds[o + 2] = aabb.min.z;
+        bounds[o + 3] = aabb.max.x;
+        bounds[o + 4] = aabb.max.y;
+        bounds[o + 5] = aabb.max.z;
+    }
+
+    private void grow () {
+        final int oldCapacity = capacity;
+        capacity *= 2;
+        final float[] newBounds = new float[capacity * 6];
+        System.arraycopy(bounds, 0, newBounds, 0, oldCapacity * 6);
+        bounds = newBounds;
+        final Object[] newData = new Object[capacity];
+        System.arraycopy(data, 0, newData, 0, oldCapacity);
+        data = newData;
+        final int[] newNext = new int[capacity];
+        System.arraycopy(next, 0, newNext, 0, oldCapacity);
+        next = newNext;
+        final int[] newOrder = new int[capacity];
+        System.arraycopy(order, 0, newOrder, 0, size);
+        order = newOrder;
+        linkFree(oldCapacity);
+    }
+
+    private void linkFree (int start) {
+        for (int i = start; i < capacity - 1; i++)
+            next[i] = i + 1;
+        next[capacity - 1] = NULL;
+        freeList = start;
+    }
+}
@@ -0,0 +1,365 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import java.util.Arrays;
+import java.util.WeakHashMap;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.ModelInstance;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+/** The triangles of a model in model space, in a bounding volume hierarchy for precise ray tests. The mesh of a model is built
+ * once by {@link #obtain(Model)} and shared by all its instances, it is dropped with the model. The node transforms are applied
+ * as they were when the mesh was built, node animations that run later are not taken into account. Only parts rendered as
+ * {@link GL20#GL_TRIANGLES} are included.
+ * <p>
+ * A triangle mesh is not changed after it was built, so rays can be tested from several threads, each with its own
+ * {@link Hit}. */
+public class TriangleMesh {
+    private static final WeakHashMap<Model, TriangleMesh> meshes = new WeakHashMap<>();
+    private static final int LEAF_SIZE = 4;
+
+    /** The nearest triangle hit by a ray, see {@link TriangleMesh#intersect(Ray, float, Hit)}. */
+    public static class Hit {
+        /** The index of the triangle in the order the nodes and parts of the model list them, or -1 if none was hit. */
+        public int triangle = -1;
+        /** The multiple of the ray direction from the origin to the hit point. */
+        public float distance;
+        /** The barycentric weights of the second and third corner at the hit point, the first corner has 1 - u - v. */
+        public float u, v;
+
+        final IntArray stack = new IntArray(32);
+
+        public Hit reset () {
+            triangle = -1;
+            distance = 0;
+            u = 0;
+            v = 0;
+            return this;
+        }
+    }
+
+    /** Nine floats per triangle, the three corners in model space. */
+    private final float[] corners;
+    /** Six floats per triangle, the texture coordinates of the three corners, or null if the model has none. */
+    private final float[] texCoords;
+    private final int size;
+
+    /** The triangles in the order of the leaves. */
+    private final int[] order;
+    private float[] bounds; // minX, minY, minZ, maxX, maxY, maxZ per node
+    // the first child of an inner node follows it, start is the index of the second child and count is 0. A leaf has the
+    // triangles from start to start + count in the order.
+    private int[] start, count;
+    private int nodeCount;
+
+    /** Returns the triangle mesh of the model, building it on the first call. Meshes are read through their shared vertex
+     * buffer, so building is synchronized. */
+    public static synchronized TriangleMesh obtain (Model model) {
+        TriangleMesh mesh = meshes.get(model);
+        if (mesh == null) {
+            mesh = new TriangleMesh(model.nodes);
+            meshes.put(model, mesh);
+        }
+        return mesh;
+    }
+
+    /** Builds the triangle mesh of the model, without sharing it. */
+    public TriangleMesh (Model model) {
+        this(model.nodes);
+    }
+
+    /** Builds the triangle mesh of the instance with its current node transforms, without sharing it. */
+    public TriangleMesh (ModelInstance instance) {
+        this(instance.nodes);
+    }
+
+    private TriangleMesh (Array<Node> nodes) {
+        final FloatArray corners = new FloatArray();
+        final FloatArray texCoords = new FloatArray();
+        final Matrix4 identity = new Matrix4();
+        boolean textured = false;
+        for (int i = 0; i < nodes.size; i++)
+            textured |= addNode(nodes.get(i), identity, corners, texCoords);
+        this.corners = corners.toArray();
+        size = this.corners.length / 9;
+        this.texCoords = textured ? texCoords.toArray() : null;
+
+        order = new int[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+        final int capacity = Math.max(1, 2 * size - 1);
+        bounds = new float[capacity * 6];
+        start = new int[capacity];
+        count = new int[capacity];
+        if (size > 0) build(0, size, centroids());
+        bounds = Arrays.copyOf(bounds, nodeCount * 6);
+        start = Arrays.copyOf(start, nodeCount);
+        count = Arrays.copyOf(count, nodeCount);
+    }
+
+    /** Adds the triangles of the node, with the transform composed from the translation, rotation and scale of the node and its
+     * parents. Those are set in models and instances alike, unlike the global transforms.
+     * @return whether a part had texture coordinates. */
+    private static boolean addNode (Node node, Matrix4 parentTransform, FloatArray corners, FloatArray texCoords) {
+        final Matrix4 transform = new Matrix4(parentTransform).mul(new Matrix4().set(node.translation, node.rotation, node.scale));
+        boolean textured = false;
+        for (int i = 0; i < node.parts.size; i++) {
+            final NodePart part = node.parts.get(i);
+            if (part.enabled) textured |= addPart(part.meshPart, transform, corners, texCoords);
+        }
+        for (Node child : node.getChildren())
+            textured |= addNode(child, transform, corners, texCoords);
+        return textured;
+    }
+
+    private static boolean addPart (MeshPart part, Matrix4 transform, FloatArray corners, FloatArray texCoords) {
+        if (part.primitiveType != GL20.GL_TRIANGLES) return false;
+        final Mesh mesh = part.mesh;
+        final VertexAttribute position = mesh.getVertexAttribute(VertexAttributes.Usage.Position);
+        if (position == null) return false;
+        final VertexAttribute texCoord = mesh.getVertexAttribute(VertexAttributes.Usage.TextureCoordinates);
+        final int stride = mesh.getVertexSize() / 4, offset = position.offset / 4;
+        final int texOffset = texCoord != null ? texCoord.offset / 4 : -1;
+        final float[] vertices = new float[mesh.getNumVertices() * stride];
+        mesh.getVertices(vertices);
+        final short[] indices = mesh.getNumIndices() > 0 ? new short[mesh.getNumIndices()] : null;
+        if (indices != null) mesh.getIndices(indices);
+
+        final Vector3 tmp = new Vector3();
+        final int end = part.offset + part.size - part.size % 3;
+        corners.ensureCapacity((end - part.offset) * 3);
+        texCoords.ensureCapacity((end - part.offset) * 2);
+        for (int i = part.offset; i < end; i++) {
+            final int vertex = (indices != null ? indices[i] & 0xFFFF : i) * stride;
+            final int v = vertex + offset;
+            tmp.set(vertices[v], vertices[v + 1], vertices[v + 2]).mul(transform);
+            corners.add(tmp.x, tmp.y, tmp.z);
+            if (texOffset != -1)
+                texCoords.add(vertices[vertex + texOffset], vertices[vertex + texOffset + 1]);
+            else
+                texCoords.add(0, 0);
+        }
+        return texCoord != null;
+    }
+
+    private float[] centroids () {
+        final float[] c = corners;
+        final float[] centroids = new float[size * 3];
+        for (int i = 0, j = 0, n = size * 9; i < n; i += 9, j += 3) {
+            centroids[j] = c[i] + c[i + 3] + c[i + 6];
+            centroids[j + 1] = c[i + 1] + c[i + 4] + c[i + 7];
+            centroids[j + 2] = c[i + 2] + c[i + 5] + c[i + 8];
+        }
+        return centroids;
+    }
+
+    /** Builds the subtree over the triangles from to to in the order, splitting them at the median of the centroids along the
+     * axis on which the centroids spread most.
+     * @return the index of the root of the subtree. */
+    private int build (int from, int to, float[] centroids) {
+        final int node = nodeCount++;
+        final int[] order = this.order;
+        final float[] c = corners;
+        float minX = Float.POSITIVE_INFINITY, minY = minX, minZ = minX;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+        float cMinX = minX, cMinY = minX, cMinZ = minX, cMaxX = maxX, cMaxY = maxX, cMaxZ = maxX;
+        for (int i = from; i < to; i++) {
+            final int t = order[i];
+            for (int j = t * 9, n = j + 9; j < n; j += 3) {
+                minX = Math.min(minX, c[j]);
+                minY = Math.min(minY, c[j + 1]);
+                minZ = Math.min(minZ, c[j + 2]);
+                maxX = Math.max(maxX, c[j]);
+                maxY = Math.max(maxY, c[j + 1]);
+                maxZ = Math.max(maxZ, c[j + 2]);
+            }
+            final int j = t * 3;
+            cMinX = Math.min(cMinX, centroids[j]);
+            cMinY = Math.min(cMinY, centroids[j + 1]);
+            cMinZ = Math.min(cMinZ, centroids[j + 2]);
+            cMaxX = Math.max(cMaxX, centroids[j]);
+            cMaxY = Math.max(cMaxY, centroids[j + 1]);
+            cMaxZ = Math.max(cMaxZ, centroids[j + 2]);
+        }
+        final int o = node * 6;
+        bounds[o] = minX;
+        bounds[o + 1] = minY;
+        bounds[o + 2] = minZ;
+        bounds[o + 3] = maxX;
+        bounds[o + 4] = maxY;
+        bounds[o + 5] = maxZ;
+
+        final float ex = cMaxX - cMinX, ey = cMaxY - cMinY, ez = cMaxZ - cMinZ;
+        if (to - from <= LEAF_SIZE || ex <= 0 && ey <= 0 && ez <= 0) {
+            start[node] = from;
+            count[node] = to - from;
+            return node;
+        }
+        final int axis = ex >= ey && ex >= ez ? 0 : ey >= ez ? 1 : 2;
+        final int mid = (from + to) >>> 1;
+        select(from, to, mid, axis, centroids);
+        build(from, mid, centroids);
+        start[node] = build(mid, to, centroids);
+        count[node] = 0;
+        return node;
+    }
+
+    /** Partially sorts the triangles from to to in the order, so the one at nth has no larger centroid on the axis before it and
+     * no smaller one after it. */
+    private void select (int from, int to, int nth, int axis, float[] centroids) {
+        final int[] order = this.order;
+        int lo = from, hi = to - 1;
+        while (lo < hi) {
+            final float pivot = centroids[order[(lo + hi) >>> 1] * 3 + axis];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (centroids[order[i] * 3 + axis] < pivot)
+                    i++;
+                while (centroids[order[j] * 3 + axis] > pivot)
+                    j--;
+                if (i <= j) {
+                    final int t = order[i];
+                    order[i++] = order[j];
+                    order[j--] = t;
+                }
+            }
+            if (nth <= j)
+                hi = j;
+            else if (nth >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    /** @return the number of triangles. */
+    public int size () {
+        return size;
+    }
+
+    /** @return whether the model has texture coordinates, otherwise {@link #getTexCoords(Hit, Vector2)} returns zero. */
+    public boolean hasTexCoords () {
+        return texCoords != null;
+    }
+
+    /** Stores a corner of the triangle in out.
+     * @param corner 0, 1 or 2. */
+    public Vector3 getCorner (int triangle, int corner, Vector3 out) {
+        final int i = triangle * 9 + corner * 3;
+        return out.set(corners[i], corners[i + 1], corners[i + 2]);
+    }
+
+    /** Stores the texture coordinates at the hit point in out, interpolated from the corners of the hit triangle. */
+    public Vector2 getTexCoords (Hit hit, Vector2 out) {
+        if (texCoords == null || hit.triangle == -1) return out.setZero();
+        final float[] t = texCoords;
+        final int i = hit.triangle * 6;
+        final float w = 1 - hit.u - hit.v;
+        return out.set(t[i] * w + t[i + 2] * hit.u + t[i + 4] * hit.v, t[i + 1] * w + t[i + 3] * hit.u + t[i + 5] * hit.v);
+    }
+
+    /** Finds the nearest triangle hit by the ray. The direction of the ray does not have to be normalized, distances are multiples
+     * of the direction. Both sides of a triangle count as a hit.
+     * @param maxDistance hits further away are ignored.
+     * @param hit receives the nearest hit, it is reset if no triangle was hit.
+     * @return true if a triangle was hit. */
+    public boolean intersect (Ray ray, float maxDistance, Hit hit) {
+        hit.reset();
+        if (nodeCount == 0) return false;
+        final float ox = ray.origin.x, oy = ray.origin.y, oz = ray.origin.z;
+        final float dx = ray.direction.x, dy = ray.direction.y, dz = ray.direction.z;
+        final float ix = 1f / dx, iy = 1f / dy, iz = 1f / dz;
+        final float[] c = corners;
+        final int[] order = this.order, start = this.start, count = this.count;
+        final IntArray stack = hit.stack;
+        stack.clear();
+        if (rayDistance(0, ox, oy, oz, ix, iy, iz, maxDistance) < 0) return false;
+        stack.add(0);
+        while (stack.size > 0) {
+            final int node = stack.pop();
+            final int n = count[node];
+            if (n == 0) {
+                final int c1 = node + 1, c2 = start[node];
+                final float d1 = rayDistance(c1, ox, oy, oz, ix, iy, iz, maxDistance);
+                final float d2 = rayDistance(c2, ox, oy, oz, ix, iy, iz, maxDistance);
+                // push the farther child first, so the nearer one is popped next
+                if (d1 >= 0 && d2 >= 0) {
+                    if (d1 <= d2) {
+                        stack.add(c2);
+                        stack.add(c1);
+                    } else {
+                        stack.add(c1);
+                        stack.add(c2);
+                    }
+                } else if (d1 >= 0) {
+                    stack.add(c1);
+                } else if (d2 >= 0) {
+                    stack.add(c2);
+                }
+                continue;
+            }
+            // the box was hit when it was pushed, but the ray may have been clipped since
+            if (rayDistance(node, ox, oy, oz, ix, iy, iz, maxDistance) < 0) continue;
+            for (int k = start[node], end = k + n; k < end; k++) {
+                final int triangle = order[k];
+                final int i = triangle * 9;
+                // Moeller-Trumbore
+                final float e1x = c[i + 3] - c[i], e1y = c[i + 4] - c[i + 1], e1z = c[i + 5] - c[i + 2];
+                final float e2x = c[i + 6] - c[i], e2y = c[i + 7] - c[i + 1], e2z = c[i + 8] - c[i + 2];
+                final float px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+                final float det = e1x * px + e1y * py + e1z * pz;
+                if (det == 0) continue;
+                final float inv = 1f / det;
+                final float sx = ox - c[i], sy = oy - c[i + 1], sz = oz - c[i + 2];
+                final float u = (sx * px + sy * py + sz * pz) * inv;
+                if (u < 0 || u > 1) continue;
+                final float qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+                final float v = (dx * qx + dy * qy + dz * qz) * inv;
+                if (v < 0 || u + v > 1) continue;
+                final float t = (e2x * qx + e2y * qy + e2z * qz) * inv;
+                if (t < 0 || t > maxDistance) continue;
+                maxDistance = t;
+                hit.triangle = triangle;
+                hit.distance = t;
+                hit.u = u;
+                hit.v = v;
+            }
+        }
+        return hit.triangle != -1;
+    }
+
+    /** @return the multiple of the ray direction at which it enters the box of the node, or -1 if it misses the box within
+     *         maxDistance. Never NaN. */
+    private float rayDistance (int node, float ox, float oy, float oz, float ix, float iy, float iz, float maxDistance) {
+        final int o = node * 6;
+        final float[] b = bounds;
+        float t1 = (b[o] - ox) * ix, t2 = (b[o + 3] - ox) * ix;
+        float tMin = Math.min(t1, t2), tMax = Math.max(t1, t2);
+        t1 = (b[o + 1] - oy) * iy;
+        t2 = (b[o + 4] - oy) * iy;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+        t1 = (b[o + 2] - oz) * iz;
+        t2 = (b[o + 5] - oz) * iz;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+        // a zero direction component and an origin on the slab boundary give NaN, which spreads through min and max. Such a box
+        // is taken as hit at the origin, the exact tests below it decide.
+        if (tMin != tMin || tMax != tMax) return 0;
+        if (tMax < 0 || tMin > tMax || tMin > maxDistance) return -1;
+        return Math.max(tMin, 0);
+    }
+}
@@ -0,0 +1,125 @@
+package ardash.gdx.scenes.scene3d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.ModelBatch;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.RenderableProvider;
+import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.Pool;
+
+/** Checks that a stage validating and culling on a pool draws the same renderables in the same order as a stage doing it on the
+ * calling thread, while children move in and out of view and are removed, so the reused tasks of the groups are rebuilt. */
+public class Group3DParallelTest {
+    private static ForkJoinPool pool;
+    private static Model model;
+
+    private final Random random = new Random(13);
+
+    @BeforeClass
+    public static void setUp () {
+        HeadlessGdx.start();
+        pool = new ForkJoinPool(4);
+        model = new ModelBuilder().createBox(1, 1, 1, new Material(), Usage.Position);
+    }
+
+    @AfterClass
+    public static void tearDown () {
+        pool.shutdown();
+        model.dispose();
+    }
+
+    @Test
+    public void parallelDrawMatchesSerial () {
+        final RecordingBatch serialBatch = new RecordingBatch(), parallelBatch = new RecordingBatch();
+        final Stage3D serial = new Stage3D(800, 480, new Environment(), serialBatch);
+        final Stage3D parallel = new Stage3D(800, 480, new Environment(), parallelBatch);
+        parallel.setParallel(pool, 16);
+        final Group3D serialGroup = new Group3D(), parallelGroup = new Group3D();
+        serial.addActor(serialGroup);
+        parallel.addActor(parallelGroup);
+        for (int i = 0; i < 150; i++) {
+            serial.addActor(actor(i));
+            parallel.addActor(actor(i));
+            serialGroup.addActor(actor(i));
+            parallelGroup.addActor(actor(i));
+        }
+        for (int frame = 0; frame < 60; frame++) {
+            if (frame % 10 == 5) {
+                // changes the number of children, so the groups rebuild their tasks
+                final int index = random.nextInt(serialGroup.getChildren().size);
+                serialGroup.getChildren().get(index).remove();
+                parallelGroup.getChildren().get(index).remove();
+            }
+            for (int i = 0; i < 40; i++) {
+                final int index = random.nextInt(serialGroup.getChildren().size);
+                final float x = random.nextFloat() * 16 - 8, y = random.nextFloat() * 4 - 2;
+                serialGroup.getChildren().get(index).translate(x, y, 0);
+                parallelGroup.getChildren().get(index).translate(x, y, 0);
+            }
+            final float yaw = random.nextFloat() * 10;
+            serialGroup.rotateYaw(yaw);
+            parallelGroup.rotateYaw(yaw);
+            serial.draw();
+            parallel.draw();
+            assertTrue(serialBatch.transforms.size > 0);
+            assertEquals(serialBatch.transforms.size, parallelBatch.transforms.size);
+            assertArrayEquals(serialBatch.transforms.toArray(), parallelBatch.transforms.toArray(), 0);
+        }
+        serial.dispose();
+        parallel.dispose();
+    }
+
+    private Actor3D actor (int i) {
+        final Actor3D actor = new Actor3D(model);
+        actor.setPosition(i % 15 * 8 - 56, i / 15 * 3 - 15, -40);
+        return actor;
+    }
+
+    /** Records the world transforms of the renderables of each frame, in the order they are submitted, instead of rendering. */
+    static class RecordingBatch extends ModelBatch {
+        private final Array<Renderable> renderables = new Array<>(Renderable.class);
+        private final Pool<Renderable> pool = new Pool<Renderable>() {
+            @Override
+            protected Renderable newObject () {
+                return new Renderable();
+            }
+        };
+        final FloatArray transforms = new FloatArray();
+
+        @Override
+        public void begin (Camera camera) {
+            this.camera = camera;
+            transforms.clear();
+        }
+
+        @Override
+        public void end () {
+        }
+
+        @Override
+        public void render (RenderableProvider renderableProvider, Environment environment) {
+            renderableProvider.getRenderables(renderables, pool);
+            for (int i = 0; i < renderables.size; i++)
+                transforms.addAll(renderables.get(i).worldTransform.val);
+            pool.freeAll(renderables);
+            renderables.clear();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ardash.gdx.scenes.scene3d;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.nio.IntBuffer;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.GL20;
+
+/** Starts the headless backend once per test run, with a mocked GL so meshes, models and stages can be created. The vertices
+ * of meshes stay readable, since they are kept in buffers on the JVM side. */
+public final class HeadlessGdx {
+    private static boolean started;
+
+    private HeadlessGdx () {
+    }
+
+    public static synchronized void start () {
+        if (started) return;
+        started = true;
+        final HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        // the tests drive the scene themselves, the application must not render
+        config.renderInterval = -1;
+        new HeadlessApplication(new ApplicationAdapter() {
+        }, config);
+
+        // stub only, so the mock does not record the invocations
+        final GL20 gl = mock(GL20.class, withSettings().stubOnly());
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer (InvocationOnMock invocation) {
+                final IntBuffer params = invocation.getArgument(1);
+                params.put(0, 16);
+                return null;
+            }
+        }).when(gl).glGetIntegerv(anyInt(), any(IntBuffer.class));
+        Gdx.gl = gl;
+        Gdx.gl20 = gl;
+    }
+}
@@ -0,0 +1,75 @@
+package ardash.gdx.scenes.scene3d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+
+/** Checks that batch picks on a pool find the same actors as on the calling thread, for batches of repeated and changing
+ * sizes, so the reused tasks of the stage are rebuilt. */
+public class Stage3DPickTest {
+    private static ForkJoinPool pool;
+    private static Model model;
+
+    private final Random random = new Random(23);
+
+    @BeforeClass
+    public static void setUp () {
+        HeadlessGdx.start();
+        pool = new ForkJoinPool(4);
+        model = new ModelBuilder().createBox(1, 1, 1, new Material(), Usage.Position);
+    }
+
+    @AfterClass
+    public static void tearDown () {
+        pool.shutdown();
+        model.dispose();
+    }
+
+    @Test
+    public void parallelBatchPickMatchesSerial () {
+        final Stage3D stage = new Stage3D(800, 480);
+        for (int i = 0; i < 300; i++) {
+            final Actor3D actor = new Actor3D(model);
+            actor.setPosition(random.nextFloat() * 40 - 20, random.nextFloat() * 40 - 20, random.nextFloat() * 40 - 20);
+            stage.addActor(actor);
+        }
+        final int[] sizes = {100, 100, 37, 100, 16, 17};
+        int hits = 0;
+        for (int size : sizes) {
+            final Ray[] rays = new Ray[size];
+            final PickResult[] serial = new PickResult[size], parallel = new PickResult[size];
+            for (int i = 0; i < size; i++) {
+                final Vector3 origin = new Vector3(random.nextFloat() * 60 - 30, random.nextFloat() * 60 - 30, 40);
+                final Vector3 target = new Vector3(random.nextFloat() * 40 - 20, random.nextFloat() * 40 - 20, 0);
+                rays[i] = new Ray(origin, target.sub(origin).nor());
+                serial[i] = new PickResult();
+                parallel[i] = new PickResult();
+            }
+            stage.setParallel(null, 1024);
+            stage.pickAll(rays, serial);
+            stage.setParallel(pool, 1024);
+            stage.pickAll(rays, parallel);
+            for (int i = 0; i < size; i++) {
+                assertSame(serial[i].actor, parallel[i].actor);
+                assertEquals(serial[i].distance, parallel[i].distance, 0);
+                if (serial[i].actor != null) hits++;
+            }
+        }
+        assertTrue("hits " + hits, hits > 0);
+        stage.dispose();
+    }
+}
@@ -0,0 +1,86 @@
+package ardash.gdx.scenes.scene3d;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.ModelBatch;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.RenderableProvider;
+import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+import ardash.gdx.scenes.scene3d.utils.FrameProfiler;
+import ardash.gdx.scenes.scene3d.utils.RenderableCounter;
+
+/** Checks that the profiler of a stage records the renderables of a model batch passed to the stage. */
+public class Stage3DProfilerTest {
+    @BeforeClass
+    public static void startGdx () {
+        HeadlessGdx.start();
+    }
+
+    @Test
+    public void countsRenderablesOfPassedBatch () {
+        final CountingBatch batch = new CountingBatch();
+        final Stage3D stage = new Stage3D(800, 480, new Environment(), batch);
+        final Model model = new ModelBuilder().createBox(1, 1, 1, new Material(), Usage.Position);
+        for (int i = 0; i < 5; i++) {
+            final Actor3D actor = new Actor3D(model);
+            actor.setPosition(i * 2 - 4, 0, -20);
+            stage.addActor(actor);
+        }
+        stage.getCamera().position.setZero();
+        stage.getCamera().lookAt(0, 0, -1);
+        stage.getProfiler().setEnabled(true);
+        stage.draw();
+        final FrameProfiler.Stats stats = stage.getProfiler().getStats(new FrameProfiler.Stats());
+        assertEquals(5, batch.renderableCount);
+        assertEquals(5, stats.last[FrameProfiler.VISIBLE]);
+        assertEquals(5, stats.last[FrameProfiler.RENDERABLES]);
+        stage.dispose();
+        model.dispose();
+    }
+
+    /** Counts the renderables of each provider instead of rendering them. */
+    static class CountingBatch extends ModelBatch implements RenderableCounter {
+        private final Array<Renderable> renderables = new Array<>(Renderable.class);
+        private final Pool<Renderable> pool = new Pool<Renderable>() {
+            @Override
+            protected Renderable newObject () {
+                return new Renderable();
+            }
+        };
+        int renderableCount;
+
+        @Override
+        public int getRenderableCount () {
+            return renderableCount;
+        }
+
+        @Override
+        public void begin (Camera camera) {
+            this.camera = camera;
+            renderableCount = 0;
+        }
+
+        @Override
+        public void end () {
+        }
+
+        @Override
+        public void render (RenderableProvider renderableProvider, Environment environment) {
+            renderableProvider.getRenderables(renderables, pool);
+            renderableCount += renderables.size;
+            pool.freeAll(renderables);
+            renderables.clear();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ardash.gdx.scenes.scene3d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.g3d.Environment;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
+
+/** Checks the world transforms {@link TransformStore#validate()} computes against actors that keep their values in their
+ * fields, and that bulk updates are interpolated under a fixed time step. */
+public class TransformStoreTest {
+    private static Model model;
+
+    private final Random random = new Random(12);
+
+    @BeforeClass
+    public static void setUp () {
+        HeadlessGdx.start();
+        model = new ModelBuilder().createBox(1, 1, 1, new Material(), Usage.Position);
+    }
+
+    @Test
+    public void validateMatchesActorsOutsideTheStore () {
+        final TransformStore store = new TransformStore(4);
+        final List<Actor3D> stored = new ArrayList<>(), plain = new ArrayList<>();
+        final Group3D storedGroup = new Group3D(), plainGroup = new Group3D();
+        for (int i = 0; i < 60; i++) {
+            final Actor3D a = new Actor3D(model), b = new Actor3D(model);
+            a.setPosition(random.nextFloat() * 10, random.nextFloat() * 10, random.nextFloat() * 10);
+            b.setPosition(a.getX(), a.getY(), a.getZ());
+            // half of the actors are children of a group, which is added to the store after them
+            if (i % 2 == 0) {
+                storedGroup.addActor(a);
+                plainGroup.addActor(b);
+            }
+            store.add(a);
+            stored.add(a);
+            plain.add(b);
+        }
+        store.add(storedGroup);
+        stored.add(storedGroup);
+        plain.add(plainGroup);
+
+        final float[] positions = new float[store.size() * 3], angles = new float[store.size() * 3];
+        for (int round = 0; round < 20; round++) {
+            switch (round % 3) {
+            case 0:
+                store.translate(1, -2, 0.5f);
+                for (int i = 0; i < plain.size(); i++)
+                    plain.get(i).translate(1, -2, 0.5f);
+                break;
+            case 1:
+                for (int i = 0; i < positions.length; i++)
+                    positions[i] = random.nextFloat() * 20 - 10;
+                store.setPositions(positions, 0);
+                for (int i = 0; i < plain.size(); i++)
+                    plain.get(i).setPosition(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]);
+                break;
+            default:
+                for (int i = 0; i < angles.length; i++)
+                    angles[i] = random.nextFloat() * 360;
+                store.setRotations(angles, 0);
+                for (int i = 0; i < plain.size(); i++)
+                    plain.get(i).setRotation(angles[i * 3], angles[i * 3 + 1], angles[i * 3 + 2]);
+            }
+            // a few actors change through their setters as well
+            for (int i = 0; i < 5; i++) {
+                final int index = random.nextInt(stored.size());
+                final float scale = 0.5f + random.nextFloat();
+                stored.get(index).setScale(scale);
+                plain.get(index).setScale(scale);
+            }
+            store.validate();
+            for (int i = 0; i < stored.size(); i++) {
+                // the field, so a transform that validate() left stale isn't recomputed by getTransform()
+                assertArrayEquals(plain.get(i).getTransform().val, stored.get(i).transform.val, 1e-4f);
+                assertEquals(i, store.getHandle(stored.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void bulkUpdatesAreInterpolated () {
+        final Group3DParallelTest.RecordingBatch batch = new Group3DParallelTest.RecordingBatch();
+        final Stage3D stage = new Stage3D(800, 480, new Environment(), batch);
+        stage.setFixedTimeStep(0.1f, 4);
+        final TransformStore store = new TransformStore();
+        final Actor3D actor = new Actor3D(model);
+        actor.setPosition(0, 0, -10);
+        stage.addActor(actor);
+        store.add(actor);
+        actor.addAction(new Action3D() {
+            @Override
+            public boolean act (float delta) {
+                store.translate(1, 0, 0);
+                return false;
+            }
+        });
+        // one step and half of the next, so the actor is drawn halfway between its states before and after the step
+        stage.act(0.15f);
+        stage.draw();
+        assertEquals(16, batch.transforms.size);
+        assertEquals(0.5f, batch.transforms.get(12), 1e-4f);
+        assertEquals(1, actor.getX(), 0);
+        stage.dispose();
+    }
+}
@@ -0,0 +1,73 @@
+package ardash.gdx.scenes.scene3d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Checks when the tweens of a stage are dropped because their actor is not on the stage. */
+public class TweenEngine3DTest {
+    private Stage3D stage;
+
+    @BeforeClass
+    public static void startGdx () {
+        HeadlessGdx.start();
+    }
+
+    @Before
+    public void createStage () {
+        stage = new Stage3D(800, 480);
+    }
+
+    @After
+    public void disposeStage () {
+        stage.dispose();
+    }
+
+    @Test
+    public void tweenCreatedBeforeTheActorIsAddedRuns () {
+        final Actor3D actor = new Actor3D();
+        final Group3D group = new Group3D();
+        stage.addActor(group);
+        stage.getTweens().moveTo(actor, 10, 0, 0, 1);
+        group.addActor(actor);
+        stage.act(0.5f);
+        assertEquals(5, actor.getX(), 1e-4f);
+        stage.act(0.5f);
+        assertEquals(10, actor.getX(), 1e-4f);
+        assertEquals(0, stage.getTweens().size());
+    }
+
+    @Test
+    public void tweenOfAnActorNeverOnTheStageRuns () {
+        final Actor3D actor = new Actor3D();
+        stage.getTweens().moveTo(actor, 10, 0, 0, 1);
+        stage.act(0.5f);
+        assertEquals(5, actor.getX(), 1e-4f);
+        assertTrue(stage.getTweens().isTweening(actor));
+    }
+
+    @Test
+    public void tweenIsDroppedOnceTheActorLeaves () {
+        final Actor3D actor = new Actor3D();
+        final Actor3D other = new Actor3D();
+        stage.getTweens().moveTo(actor, 10, 0, 0, 1);
+        stage.getTweens().moveTo(other, 10, 0, 0, 1);
+        stage.addActor(actor);
+        stage.addActor(other);
+        stage.act(0.5f);
+        actor.remove();
+        stage.act(0.25f);
+        assertEquals(5, actor.getX(), 1e-4f);
+        assertFalse(stage.getTweens().isTweening(actor));
+        // the other tween was moved into the slot of the dropped one and keeps running
+        assertEquals(7.5f, other.getX(), 1e-4f);
+        stage.act(0.25f);
+        assertEquals(10, other.getX(), 1e-4f);
+        assertEquals(0, stage.getTweens().size());
+    }
+}
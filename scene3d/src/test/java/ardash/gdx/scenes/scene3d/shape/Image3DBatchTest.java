@@ -0,0 +1,190 @@
+package ardash.gdx.scenes.scene3d.shape;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
+import com.badlogic.gdx.graphics.glutils.VertexData;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+
+import ardash.gdx.scenes.scene3d.HeadlessGdx;
+import ardash.gdx.scenes.scene3d.Stage3D;
+
+/** Checks that the meshes of a batch hold the quads of its images after images are added, removed, moved and hidden between
+ * updates. */
+public class Image3DBatchTest {
+    private final Random random = new Random(9);
+    private final ModelBuilder modelBuilder = new ModelBuilder();
+    private final Set<Mesh> guarded = new HashSet<>();
+    private Stage3D stage;
+
+    @BeforeClass
+    public static void startGdx () {
+        HeadlessGdx.start();
+    }
+
+    @Before
+    public void createStage () {
+        stage = new Stage3D(800, 480);
+    }
+
+    @After
+    public void disposeStage () {
+        stage.dispose();
+    }
+
+    @Test
+    public void removingMarkedSlotsAtTheEnd () throws ReflectiveOperationException {
+        final Image3DBatch batch = new Image3DBatch(8);
+        final Image3D a = add(batch), b = add(batch);
+        batch.update();
+        // c marks its slot, then c and b are removed as the last slots, which marks none
+        final Image3D c = add(batch);
+        c.setBatch(null);
+        b.setBatch(null);
+        final List<Image3D> images = new ArrayList<>();
+        images.add(a);
+        guardUploads(images);
+        batch.update();
+        assertQuads(batch, images);
+    }
+
+    @Test
+    public void quadsFollowImagesUnderChurn () throws ReflectiveOperationException {
+        // a few quads per mesh, so pages are created and disposed as well
+        final Image3DBatch batch = new Image3DBatch(6);
+        final List<Image3D> images = new ArrayList<>();
+        final List<Image3D> removed = new ArrayList<>();
+        for (int frame = 0; frame < 500; frame++) {
+            for (int i = random.nextInt(8); i > 0; i--) {
+                final int operation = random.nextInt(8);
+                if (images.isEmpty() || operation == 0) {
+                    images.add(add(batch));
+                } else if (operation == 1 && !removed.isEmpty()) {
+                    final Image3D image = removed.remove(random.nextInt(removed.size()));
+                    image.setBatch(batch);
+                    images.add(image);
+                } else if (operation == 2) {
+                    final Image3D image = images.remove(random.nextInt(images.size()));
+                    image.setBatch(null);
+                    removed.add(image);
+                } else if (operation == 3) {
+                    final Image3D image = images.get(random.nextInt(images.size()));
+                    image.setVisible(!image.isVisible());
+                } else if (operation == 4) {
+                    final Image3D image = images.get(random.nextInt(images.size()));
+                    if (image.getStage() != null)
+                        image.remove();
+                    else
+                        stage.addActor(image);
+                } else {
+                    final Image3D image = images.get(random.nextInt(images.size()));
+                    image.setPosition(random.nextFloat() * 20, random.nextFloat() * 20, random.nextFloat() * 20);
+                }
+            }
+            guardUploads(images);
+            batch.update();
+            assertQuads(batch, images);
+        }
+    }
+
+    private Image3D add (Image3DBatch batch) {
+        final Image3D image = new Image3D(1 + random.nextInt(3), 1 + random.nextInt(3), Color.WHITE, modelBuilder);
+        image.setPosition(random.nextFloat() * 20, random.nextFloat() * 20, random.nextFloat() * 20);
+        stage.addActor(image);
+        image.setBatch(batch);
+        return image;
+    }
+
+    /** Wraps the vertex data of the meshes of the images, so an upload outside the vertices fails the test. The backend passes
+     * uploads to a native copy without checking them, which would write past the buffer instead of failing. */
+    private void guardUploads (List<Image3D> images) throws ReflectiveOperationException {
+        final Field field = Mesh.class.getDeclaredField("vertices");
+        field.setAccessible(true);
+        for (int i = 0; i < images.size(); i++) {
+            final Mesh mesh = images.get(i).batchPage.mesh;
+            if (!guarded.add(mesh)) continue;
+            final VertexData vertices = (VertexData)field.get(mesh);
+            final VertexData checked = mock(VertexData.class,
+                withSettings().defaultAnswer(AdditionalAnswers.delegatesTo(vertices)).stubOnly());
+            doAnswer(new Answer<Void>() {
+                @Override
+                public Void answer (InvocationOnMock invocation) {
+                    final int targetOffset = invocation.getArgument(0), sourceOffset = invocation.getArgument(2);
+                    final int count = invocation.getArgument(3);
+                    final float[] source = invocation.getArgument(1);
+                    final int capacity = vertices.getNumMaxVertices() * Image3DBatch.VERTEX_SIZE;
+                    assertTrue("upload of " + count + " floats at " + targetOffset, count >= 0 && sourceOffset >= 0
+                        && sourceOffset + count <= source.length && targetOffset >= 0 && targetOffset + count <= capacity);
+                    vertices.updateVertices(targetOffset, source, sourceOffset, count);
+                    return null;
+                }
+            }).when(checked).updateVertices(anyInt(), any(float[].class), anyInt(), anyInt());
+            field.set(mesh, checked);
+        }
+    }
+
+    /** Checks that the meshes hold exactly the images, each written where its slot is, and zeros for hidden images. */
+    private static void assertQuads (Image3DBatch batch, List<Image3D> images) {
+        assertEquals(images.size(), batch.size());
+        final Array<Renderable> renderables = new Array<>();
+        batch.getRenderables(renderables, null);
+        assertEquals(batch.getMeshCount(), renderables.size);
+        int quads = 0;
+        for (int i = 0; i < renderables.size; i++)
+            quads += renderables.get(i).meshPart.size / 6;
+        assertEquals(images.size(), quads);
+
+        final float[] quad = new float[Image3DBatch.QUAD_SIZE];
+        final Vector3 corner = new Vector3();
+        for (int i = 0; i < images.size(); i++) {
+            final Image3D image = images.get(i);
+            assertSame(batch, image.getBatch());
+            final Image3DBatch.Page page = image.batchPage;
+            assertSame(image, page.images[image.batchSlot]);
+            page.mesh.getVertices(image.batchSlot * Image3DBatch.QUAD_SIZE, quad.length, quad, 0);
+            for (int j = 0; j < quad.length; j++)
+                assertEquals(page.vertices[image.batchSlot * Image3DBatch.QUAD_SIZE + j], quad[j], 0);
+            if (image.getStage() == null || !image.isVisible()) {
+                for (int j = 0; j < quad.length; j++)
+                    assertEquals(0, quad[j], 0);
+                continue;
+            }
+            // the first corner is at the origin of the image, the third at its far corner
+            corner.setZero().mul(image.getTransform());
+            assertEquals(corner.x, quad[0], 1e-4f);
+            assertEquals(corner.y, quad[1], 1e-4f);
+            assertEquals(corner.z, quad[2], 1e-4f);
+            corner.set(image.width, image.height + image.shear, 0).mul(image.getTransform());
+            final int third = 2 * Image3DBatch.VERTEX_SIZE;
+            assertEquals(corner.x, quad[third], 1e-4f);
+            assertEquals(corner.y, quad[third + 1], 1e-4f);
+            assertEquals(corner.z, quad[third + 2], 1e-4f);
+        }
+    }
+}
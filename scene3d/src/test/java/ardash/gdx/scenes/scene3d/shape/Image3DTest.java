@@ -0,0 +1,60 @@
+package ardash.gdx.scenes.scene3d.shape;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+
+import ardash.gdx.scenes.scene3d.Actor3D.HitMode;
+import ardash.gdx.scenes.scene3d.HeadlessGdx;
+import ardash.gdx.scenes.scene3d.PickResult;
+import ardash.gdx.scenes.scene3d.utils.AlphaMask;
+
+/** Checks that picks pass through the transparent pixels of an image and that its alpha mask is built before the first pick. */
+public class Image3DTest {
+    @BeforeClass
+    public static void startGdx () {
+        HeadlessGdx.start();
+    }
+
+    @Test
+    public void maskIsBuiltWhenSwitchingToMeshMode () throws ReflectiveOperationException {
+        // the left half is opaque, the right half transparent
+        final Pixmap pixmap = new Pixmap(4, 4, Pixmap.Format.RGBA8888);
+        pixmap.setColor(Color.CLEAR);
+        pixmap.fill();
+        pixmap.setColor(Color.WHITE);
+        pixmap.fillRectangle(0, 0, 2, 4);
+        final Texture texture = new Texture(pixmap);
+        final Image3D image = new Image3D(2, 2, texture, new ModelBuilder());
+        final Field field = Image3D.class.getDeclaredField("alphaMask");
+        field.setAccessible(true);
+        assertNull(field.get(image));
+        image.setHitMode(HitMode.mesh);
+        final AlphaMask mask = (AlphaMask)field.get(image);
+        assertNotNull(mask);
+        assertSame(mask, AlphaMask.obtain(image.region));
+
+        final PickResult result = new PickResult();
+        assertTrue(image.intersects(new Ray(new Vector3(0.5f, 1, 5), new Vector3(0, 0, -1)), result));
+        assertSame(image, result.actor);
+        result.reset();
+        assertFalse(image.intersects(new Ray(new Vector3(1.5f, 1, 5), new Vector3(0, 0, -1)), result));
+        image.dispose();
+        texture.dispose();
+        pixmap.dispose();
+    }
+}
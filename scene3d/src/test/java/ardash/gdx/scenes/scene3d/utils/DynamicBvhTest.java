@@ -0,0 +1,224 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.PerspectiveCamera;
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.math.collision.Ray;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+/** Checks the tree against brute force over the fat boxes it should hold, while proxies are created, moved and destroyed. */
+public class DynamicBvhTest {
+    private static final float MARGIN = 0.2f, RELATIVE_MARGIN = 0.1f;
+
+    private final Random random = new Random(4);
+    private final DynamicBvh<Integer> tree = new DynamicBvh<>(2);
+    /** The fat box of each proxy ever created, null once it was destroyed. */
+    private final List<BoundingBox> fatBoxes = new ArrayList<>();
+    private final List<Integer> live = new ArrayList<>();
+
+    @BeforeClass
+    public static void loadNatives () {
+        // the camera multiplies matrices natively
+        GdxNativesLoader.load();
+    }
+
+    @Test
+    public void queriesMatchBruteForceWhileProxiesChange () {
+        tree.setMargin(MARGIN, RELATIVE_MARGIN);
+        for (int step = 0; step < 4000; step++) {
+            final int operation = random.nextInt(10);
+            if (live.size() < 20 || operation < 3 && live.size() < 400)
+                create();
+            else if (operation < 5)
+                destroy(live.get(random.nextInt(live.size())));
+            else
+                move(live.get(random.nextInt(live.size())));
+            if (step % 50 == 0) check();
+        }
+        while (!live.isEmpty()) {
+            destroy(live.get(random.nextInt(live.size())));
+            if (live.size() % 25 == 0) check();
+        }
+        assertEquals(0, tree.size());
+        create();
+        check();
+    }
+
+    @Test
+    public void rayAlongBoxFaceHitsBox () {
+        tree.setMargin(0, 0);
+        for (int i = 0; i < 8; i++)
+            tree.createProxy(new BoundingBox(new Vector3(i * 2, 0, 0), new Vector3(i * 2 + 1, 1, 1)), i);
+        final Set<Integer> hits = new HashSet<>();
+        // the origin lies on the y = 0 faces and the ray has no y component
+        tree.raycast(new Ray(new Vector3(-5, 0, 0.5f), new Vector3(1, 0, 0)), 100, new DynamicBvh.RayCallback<Integer>() {
+            @Override
+            public float report (Integer data, Ray ray, float maxDistance) {
+                hits.add(data);
+                return maxDistance;
+            }
+        });
+        assertEquals(8, hits.size());
+    }
+
+    private void create () {
+        final BoundingBox box = randomBox();
+        // ids are recycled, so the user data is the index into the model
+        live.add(tree.createProxy(box, fatBoxes.size()));
+        fatBoxes.add(fat(box));
+    }
+
+    private void destroy (int id) {
+        final int index = tree.getUserData(id);
+        tree.destroyProxy(id);
+        fatBoxes.set(index, null);
+        live.remove(Integer.valueOf(id));
+    }
+
+    private void move (int id) {
+        final int index = tree.getUserData(id);
+        final BoundingBox old = fatBoxes.get(index);
+        final BoundingBox box;
+        if (random.nextBoolean()) {
+            // a small step, which mostly stays inside the fat box
+            final Vector3 center = old.getCenter(new Vector3()), size = old.getDimensions(new Vector3()).scl(0.5f);
+            center.add(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+            box = new BoundingBox(center.cpy().mulAdd(size, -0.5f), center.cpy().mulAdd(size, 0.5f));
+        } else {
+            box = randomBox();
+        }
+        final boolean inside = old.min.x <= box.min.x && old.min.y <= box.min.y && old.min.z <= box.min.z
+            && box.max.x <= old.max.x && box.max.y <= old.max.y && box.max.z <= old.max.z;
+        assertEquals(!inside, tree.moveProxy(id, box));
+        if (!inside) fatBoxes.set(index, fat(box));
+    }
+
+    private void check () {
+        assertEquals(live.size(), tree.size());
+        assertTrue("height " + tree.getHeight() + " for " + live.size(),
+            tree.getHeight() <= 2 * (32 - Integer.numberOfLeadingZeros(Math.max(1, live.size()))));
+        final BoundingBox stored = new BoundingBox();
+        for (int i = 0; i < live.size(); i++) {
+            final int id = live.get(i);
+            final BoundingBox expected = fatBoxes.get(tree.getUserData(id));
+            tree.getFatBounds(id, stored);
+            assertEquals(expected.min, stored.min);
+            assertEquals(expected.max, stored.max);
+        }
+        for (int i = 0; i < 5; i++)
+            checkBoxQuery(randomBox());
+        for (int i = 0; i < 5; i++)
+            checkRaycast(randomRay());
+        checkFrustumQuery();
+    }
+
+    private void checkBoxQuery (BoundingBox box) {
+        final Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < fatBoxes.size(); i++) {
+            final BoundingBox fat = fatBoxes.get(i);
+            if (fat != null && fat.min.x <= box.max.x && fat.max.x >= box.min.x && fat.min.y <= box.max.y && fat.max.y >= box.min.y
+                && fat.min.z <= box.max.z && fat.max.z >= box.min.z) expected.add(i);
+        }
+        final Set<Integer> found = new HashSet<>();
+        tree.query(box, collect(found));
+        assertEquals(expected, found);
+    }
+
+    private void checkFrustumQuery () {
+        final PerspectiveCamera camera = new PerspectiveCamera(60, 4, 3);
+        camera.position.set(random.nextFloat() * 40 - 20, random.nextFloat() * 40 - 20, random.nextFloat() * 40 - 20);
+        camera.lookAt(0, 0, 0);
+        camera.near = 0.5f;
+        camera.far = 30;
+        camera.update();
+        final Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < fatBoxes.size(); i++) {
+            final BoundingBox fat = fatBoxes.get(i);
+            if (fat == null) continue;
+            final float hx = (fat.max.x - fat.min.x) * 0.5f, hy = (fat.max.y - fat.min.y) * 0.5f, hz = (fat.max.z - fat.min.z) * 0.5f;
+            if (camera.frustum.boundsInFrustum(fat.min.x + hx, fat.min.y + hy, fat.min.z + hz, hx, hy, hz)) expected.add(i);
+        }
+        final Set<Integer> found = new HashSet<>();
+        tree.query(camera.frustum, collect(found));
+        assertEquals(expected, found);
+    }
+
+    private void checkRaycast (Ray ray) {
+        final Set<Integer> expected = new HashSet<>();
+        final Vector3 point = new Vector3();
+        float nearest = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < fatBoxes.size(); i++) {
+            final BoundingBox fat = fatBoxes.get(i);
+            if (fat == null || !Intersector.intersectRayBounds(ray, fat, point)) continue;
+            expected.add(i);
+            nearest = Math.min(nearest, ray.origin.dst(point));
+        }
+        final Set<Integer> found = new HashSet<>();
+        tree.raycast(ray, 1000, new DynamicBvh.RayCallback<Integer>() {
+            @Override
+            public float report (Integer data, Ray ray, float maxDistance) {
+                found.add(data);
+                return maxDistance;
+            }
+        });
+        assertEquals(expected, found);
+
+        // clipping the ray to each hit must still find the nearest one
+        final float[] clipped = {Float.POSITIVE_INFINITY};
+        tree.raycast(ray, 1000, new DynamicBvh.RayCallback<Integer>() {
+            @Override
+            public float report (Integer data, Ray ray, float maxDistance) {
+                if (!Intersector.intersectRayBounds(ray, fatBoxes.get(data), point)) return maxDistance;
+                final float distance = ray.origin.dst(point);
+                if (distance > maxDistance) return maxDistance;
+                clipped[0] = Math.min(clipped[0], distance);
+                return distance;
+            }
+        });
+        assertEquals(nearest, clipped[0], 1e-4f);
+    }
+
+    private static DynamicBvh.QueryCallback<Integer> collect (final Set<Integer> found) {
+        return new DynamicBvh.QueryCallback<Integer>() {
+            @Override
+            public boolean report (Integer data) {
+                assertTrue("reported twice: " + data, found.add(data));
+                return true;
+            }
+        };
+    }
+
+    private BoundingBox randomBox () {
+        final Vector3 min = new Vector3(random.nextFloat() * 40 - 20, random.nextFloat() * 40 - 20, random.nextFloat() * 40 - 20);
+        final float size = random.nextInt(8) == 0 ? 10 : 2;
+        return new BoundingBox(min, min.cpy().add(random.nextFloat() * size, random.nextFloat() * size, random.nextFloat() * size));
+    }
+
+    private Ray randomRay () {
+        final Vector3 origin = new Vector3(random.nextFloat() * 60 - 30, random.nextFloat() * 60 - 30, random.nextFloat() * 60 - 30);
+        final Vector3 target = new Vector3(random.nextFloat() * 20 - 10, random.nextFloat() * 20 - 10, random.nextFloat() * 20 - 10);
+        return new Ray(origin, target.sub(origin).nor());
+    }
+
+    /** The fat box the tree stores for the box, computed the same way. */
+    private static BoundingBox fat (BoundingBox box) {
+        final float ex = MARGIN + RELATIVE_MARGIN * (box.max.x - box.min.x);
+        final float ey = MARGIN + RELATIVE_MARGIN * (box.max.y - box.min.y);
+        final float ez = MARGIN + RELATIVE_MARGIN * (box.max.z - box.min.z);
+        return new BoundingBox(new Vector3(box.min.x - ex, box.min.y - ey, box.min.z - ez),
+            new Vector3(box.max.x + ex, box.max.y + ey, box.max.z + ez));
+    }
+}
@@ -0,0 +1,153 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.Array;
+
+/** Checks the octree against brute force over the boxes of its objects, while objects are added, moved and removed. Some
+ * objects lie outside the root cell or are larger than the smallest cells. */
+public class LooseOctreeTest {
+    private final Random random = new Random(15);
+    private final LooseOctree<Integer> tree = new LooseOctree<>(0, 0, 0, 16, 5);
+    /** The box of each object ever added, null once it was removed. */
+    private final List<BoundingBox> boxes = new ArrayList<>();
+    private final List<Integer> live = new ArrayList<>();
+
+    @Test
+    public void queriesMatchBruteForceWhileObjectsChange () {
+        for (int step = 0; step < 4000; step++) {
+            final int operation = random.nextInt(10);
+            if (live.size() < 20 || operation < 3 && live.size() < 400)
+                add();
+            else if (operation < 5)
+                remove(live.get(random.nextInt(live.size())));
+            else
+                update(live.get(random.nextInt(live.size())));
+            if (step % 50 == 0) check();
+        }
+        while (!live.isEmpty()) {
+            remove(live.get(random.nextInt(live.size())));
+            if (live.size() % 25 == 0) check();
+        }
+        assertEquals(0, tree.size());
+        add();
+        check();
+    }
+
+    private void add () {
+        final BoundingBox box = randomBox();
+        // ids are recycled, so the user data is the index into the model
+        live.add(tree.add(box, boxes.size()));
+        boxes.add(box);
+    }
+
+    private void remove (int id) {
+        boxes.set(tree.getUserData(id), null);
+        tree.remove(id);
+        live.remove(Integer.valueOf(id));
+    }
+
+    private void update (int id) {
+        final int index = tree.getUserData(id);
+        final BoundingBox box;
+        if (random.nextBoolean()) {
+            // a small step, which mostly stays in the same cell
+            final Vector3 step = new Vector3(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+            box = new BoundingBox(boxes.get(index).min.cpy().add(step), boxes.get(index).max.cpy().add(step));
+        } else {
+            box = randomBox();
+        }
+        tree.update(id, box);
+        boxes.set(index, box);
+    }
+
+    private void check () {
+        assertEquals(live.size(), tree.size());
+        for (int i = 0; i < 5; i++)
+            checkBoxQuery(randomBox());
+        for (int i = 0; i < 5; i++)
+            checkRadiusQuery(randomPoint(), random.nextFloat() * 10);
+        for (int i = 0; i < 5; i++)
+            checkNearest(randomPoint(), 1 + random.nextInt(12), random.nextBoolean() ? Float.POSITIVE_INFINITY : 8);
+    }
+
+    private void checkBoxQuery (BoundingBox box) {
+        final Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < boxes.size(); i++) {
+            final BoundingBox b = boxes.get(i);
+            if (b != null && b.min.x <= box.max.x && b.max.x >= box.min.x && b.min.y <= box.max.y && b.max.y >= box.min.y
+                && b.min.z <= box.max.z && b.max.z >= box.min.z) expected.add(i);
+        }
+        final Array<Integer> out = new Array<>();
+        out.add(-1);
+        assertEquals(expected.size(), tree.query(box, out));
+        assertEquals(expected, found(out));
+    }
+
+    private void checkRadiusQuery (Vector3 point, float radius) {
+        final Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < boxes.size(); i++)
+            if (boxes.get(i) != null && distance2(boxes.get(i), point) <= radius * radius) expected.add(i);
+        final Array<Integer> out = new Array<>();
+        out.add(-1);
+        assertEquals(expected.size(), tree.query(point.x, point.y, point.z, radius, out));
+        assertEquals(expected, found(out));
+    }
+
+    private void checkNearest (Vector3 point, int k, float maxDistance) {
+        final List<Float> distances = new ArrayList<>();
+        for (int i = 0; i < boxes.size(); i++)
+            if (boxes.get(i) != null && distance2(boxes.get(i), point) <= maxDistance * maxDistance)
+                distances.add(distance2(boxes.get(i), point));
+        final Float[] expected = distances.toArray(new Float[0]);
+        Arrays.sort(expected);
+        final Array<Integer> out = new Array<>();
+        final int count = tree.nearest(point.x, point.y, point.z, k, maxDistance, out);
+        assertEquals(Math.min(k, expected.length), count);
+        // ties may be reported in any order, so the distances are compared
+        for (int i = 0; i < count; i++)
+            assertEquals(expected[i], distance2(boxes.get(out.get(i)), point), 0);
+    }
+
+    /** @return the user data added after the marker at index 0, which must be left alone, each reported once. */
+    private static Set<Integer> found (Array<Integer> out) {
+        assertEquals(-1, (int)out.first());
+        final Set<Integer> found = new HashSet<>();
+        for (int i = 1; i < out.size; i++)
+            assertTrue("reported twice: " + out.get(i), found.add(out.get(i)));
+        return found;
+    }
+
+    /** The squared distance from the point to the box, computed the same way as the tree. */
+    private static float distance2 (BoundingBox box, Vector3 point) {
+        final float dx = Math.max(0, Math.max(box.min.x - point.x, point.x - box.max.x));
+        final float dy = Math.max(0, Math.max(box.min.y - point.y, point.y - box.max.y));
+        final float dz = Math.max(0, Math.max(box.min.z - point.z, point.z - box.max.z));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private Vector3 randomPoint () {
+        return new Vector3(random.nextFloat() * 48 - 24, random.nextFloat() * 48 - 24, random.nextFloat() * 48 - 24);
+    }
+
+    /** A box with its center mostly inside the root cell, of any size from much smaller than the smallest cells to larger than
+     * the root. */
+    private BoundingBox randomBox () {
+        final Vector3 center = randomPoint();
+        final float size = random.nextInt(10) == 0 ? 40 : random.nextInt(3) == 0 ? 4 : 0.5f;
+        final Vector3 half = new Vector3(random.nextFloat() * size, random.nextFloat() * size, random.nextFloat() * size).scl(0.5f);
+        return new BoundingBox(center.cpy().sub(half), center.cpy().add(half));
+    }
+}
@@ -0,0 +1,102 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.LongArray;
+
+/** Checks the pairs found by sweep and prune against all pairs of boxes, while boxes are added, moved and removed. The boxes lie
+ * on a coarse grid, so many of them only touch. */
+public class SweepAndPruneTest {
+    private final Random random = new Random(16);
+    private final SweepAndPrune<BoundingBox> broadphase = new SweepAndPrune<>(2);
+    /** The box of each id, null for free ids. */
+    private final List<BoundingBox> boxes = new ArrayList<>();
+    private final List<Integer> live = new ArrayList<>();
+
+    @Test
+    public void pairsMatchBruteForceWhileBoxesChange () {
+        for (int step = 0; step < 3000; step++) {
+            final int operation = random.nextInt(10);
+            if (live.size() < 10 || operation < 3 && live.size() < 200)
+                add();
+            else if (operation < 5)
+                remove(live.get(random.nextInt(live.size())));
+            else
+                update(live.get(random.nextInt(live.size())));
+            if (step % 20 == 0) check();
+        }
+        while (!live.isEmpty()) {
+            remove(live.get(random.nextInt(live.size())));
+            check();
+        }
+    }
+
+    private void add () {
+        final BoundingBox box = randomBox();
+        // the box is the user data, it is changed in place when the box moves
+        final int id = broadphase.add(box, box);
+        while (boxes.size() <= id)
+            boxes.add(null);
+        assertEquals(null, boxes.get(id));
+        boxes.set(id, box);
+        live.add(id);
+    }
+
+    private void remove (int id) {
+        broadphase.remove(id);
+        boxes.set(id, null);
+        live.remove(Integer.valueOf(id));
+    }
+
+    private void update (int id) {
+        final BoundingBox box;
+        if (random.nextInt(4) != 0) {
+            // a small step, which keeps the sorted order nearly intact
+            final Vector3 step = new Vector3(random.nextInt(3) - 1, random.nextInt(3) - 1, random.nextInt(3) - 1);
+            box = new BoundingBox(boxes.get(id).min.cpy().add(step), boxes.get(id).max.cpy().add(step));
+        } else {
+            box = randomBox();
+        }
+        broadphase.update(id, boxes.get(id).set(box));
+    }
+
+    private void check () {
+        assertEquals(live.size(), broadphase.size());
+        for (int i = 0; i < live.size(); i++)
+            assertSame(boxes.get(live.get(i)), broadphase.getUserData(live.get(i)));
+        final LongArray expected = new LongArray();
+        for (int a = 0; a < boxes.size(); a++) {
+            for (int b = a + 1; b < boxes.size(); b++) {
+                final BoundingBox first = boxes.get(a), second = boxes.get(b);
+                if (first == null || second == null) continue;
+                if (first.min.x <= second.max.x && first.max.x >= second.min.x && first.min.y <= second.max.y
+                    && first.max.y >= second.min.y && first.min.z <= second.max.z && first.max.z >= second.min.z)
+                    expected.add((long)a << 32 | b);
+            }
+        }
+        final LongArray out = new LongArray();
+        out.add(-1);
+        assertEquals(expected.size, broadphase.findPairs(out));
+        assertEquals(-1, out.first());
+        final long[] pairs = new long[out.size - 1];
+        System.arraycopy(out.items, 1, pairs, 0, pairs.length);
+        assertArrayEquals(expected.toArray(), pairs);
+        for (int i = 0; i < pairs.length; i++)
+            assertEquals(pairs[i], (long)SweepAndPrune.getFirst(pairs[i]) << 32 | SweepAndPrune.getSecond(pairs[i]));
+    }
+
+    private BoundingBox randomBox () {
+        final Vector3 min = new Vector3(random.nextInt(40), random.nextInt(40), random.nextInt(40));
+        return new BoundingBox(min, min.cpy().add(1 + random.nextInt(4), 1 + random.nextInt(4), 1 + random.nextInt(4)));
+    }
+}
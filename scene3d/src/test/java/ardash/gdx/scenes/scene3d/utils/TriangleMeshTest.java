@@ -0,0 +1,148 @@
+package ardash.gdx.scenes.scene3d.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.VertexAttributes.Usage;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.utils.MeshPartBuilder;
+import com.badlogic.gdx.graphics.g3d.utils.MeshPartBuilder.VertexInfo;
+import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder;
+import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+
+import ardash.gdx.scenes.scene3d.HeadlessGdx;
+
+/** Checks ray tests against the triangle BVH of a model with a random triangle soup against testing every triangle. One node of
+ * the model is moved, rotated and scaled, so the node transforms are checked as well. */
+public class TriangleMeshTest {
+    private static final int TRIANGLES_PER_NODE = 300;
+
+    private final Random random = new Random(24);
+    /** The corners of each triangle in model space and their texture coordinates, in the order of the model. */
+    private final List<Vector3[]> corners = new ArrayList<>();
+    private final List<Vector2[]> texCoords = new ArrayList<>();
+
+    @BeforeClass
+    public static void startGdx () {
+        HeadlessGdx.start();
+    }
+
+    @Test
+    public void nearestHitMatchesBruteForce () {
+        final Model model = createModel();
+        final TriangleMesh mesh = new TriangleMesh(model);
+        assertEquals(corners.size(), mesh.size());
+        assertTrue(mesh.hasTexCoords());
+        final Vector3 corner = new Vector3();
+        for (int i = 0; i < corners.size(); i++)
+            for (int j = 0; j < 3; j++)
+                assertTrue(corners.get(i)[j].epsilonEquals(mesh.getCorner(i, j, corner), 1e-4f));
+
+        final TriangleMesh.Hit hit = new TriangleMesh.Hit();
+        final Vector3 point = new Vector3(), expectedPoint = new Vector3();
+        final Vector2 uv = new Vector2();
+        int hits = 0;
+        for (int i = 0; i < 2000; i++) {
+            final Ray ray = randomRay();
+            final float maxDistance = random.nextBoolean() ? Float.POSITIVE_INFINITY : random.nextFloat() * 40;
+            int expected = -1;
+            float nearest = maxDistance;
+            for (int t = 0; t < corners.size(); t++) {
+                final Vector3[] c = corners.get(t);
+                if (!Intersector.intersectRayTriangle(ray, c[0], c[1], c[2], point)) continue;
+                final float distance = ray.origin.dst(point);
+                if (distance <= nearest) {
+                    nearest = distance;
+                    expected = t;
+                }
+            }
+            final boolean found = mesh.intersect(ray, maxDistance, hit);
+            assertEquals(expected != -1, found);
+            if (!found) {
+                assertEquals(-1, hit.triangle);
+                continue;
+            }
+            hits++;
+            assertEquals(nearest, hit.distance, 1e-3f);
+            // the barycentric weights give the hit point on the reported triangle
+            final Vector3[] c = corners.get(hit.triangle);
+            final float w = 1 - hit.u - hit.v;
+            point.set(c[0]).scl(w).mulAdd(c[1], hit.u).mulAdd(c[2], hit.v);
+            ray.getEndPoint(expectedPoint, hit.distance);
+            assertTrue(point.epsilonEquals(expectedPoint, 1e-3f));
+            final Vector2[] t = texCoords.get(hit.triangle);
+            mesh.getTexCoords(hit, uv);
+            assertEquals(t[0].x * w + t[1].x * hit.u + t[2].x * hit.v, uv.x, 1e-4f);
+            assertEquals(t[0].y * w + t[1].y * hit.u + t[2].y * hit.v, uv.y, 1e-4f);
+        }
+        // most rays aim at the soup, so both outcomes are covered
+        assertTrue("hits " + hits, hits > 500 && hits < 1900);
+        model.dispose();
+    }
+
+    @Test
+    public void emptyModelIsNeverHit () {
+        final TriangleMesh mesh = new TriangleMesh(new Model());
+        assertEquals(0, mesh.size());
+        assertFalse(mesh.intersect(randomRay(), Float.POSITIVE_INFINITY, new TriangleMesh.Hit()));
+    }
+
+    private Model createModel () {
+        final ModelBuilder builder = new ModelBuilder();
+        builder.begin();
+        builder.node().id = "plain";
+        addTriangles(builder.part("plain", GL20.GL_TRIANGLES, Usage.Position | Usage.TextureCoordinates, new Material()),
+            new Matrix4());
+        final Node moved = builder.node();
+        moved.id = "moved";
+        moved.translation.set(3, -2, 1);
+        moved.rotation.setEulerAngles(30, 45, 10);
+        moved.scale.set(1.5f, 0.5f, 2);
+        addTriangles(builder.part("moved", GL20.GL_TRIANGLES, Usage.Position | Usage.TextureCoordinates, new Material()),
+            new Matrix4().set(moved.translation, moved.rotation, moved.scale));
+        return builder.end();
+    }
+
+    private void addTriangles (MeshPartBuilder part, Matrix4 transform) {
+        for (int i = 0; i < TRIANGLES_PER_NODE; i++) {
+            final Vector3 center = new Vector3(random.nextFloat() * 20 - 10, random.nextFloat() * 20 - 10,
+                random.nextFloat() * 20 - 10);
+            final VertexInfo[] vertices = new VertexInfo[3];
+            final Vector3[] c = new Vector3[3];
+            final Vector2[] t = new Vector2[3];
+            for (int j = 0; j < 3; j++) {
+                final Vector3 position = center.cpy().add(random.nextFloat() * 4 - 2, random.nextFloat() * 4 - 2,
+                    random.nextFloat() * 4 - 2);
+                t[j] = new Vector2(random.nextFloat(), random.nextFloat());
+                vertices[j] = new VertexInfo().setPos(position).setUV(t[j]);
+                c[j] = position.cpy().mul(transform);
+            }
+            part.triangle(vertices[0], vertices[1], vertices[2]);
+            corners.add(c);
+            texCoords.add(t);
+        }
+    }
+
+    private Ray randomRay () {
+        final Vector3 origin = new Vector3(random.nextFloat() * 80 - 40, random.nextFloat() * 80 - 40,
+            random.nextFloat() * 80 - 40);
+        final Vector3 target = new Vector3(random.nextFloat() * 24 - 12, random.nextFloat() * 24 - 12,
+            random.nextFloat() * 24 - 12);
+        return new Ray(origin, target.sub(origin).nor());
+    }
+}